@@ -0,0 +1,134 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.HttpClientTransport;
+import com.github.sftwnd.etsiorg.Transport;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Download of the large file from the local server to the disk: the stream copy through the heap buffer
+ * against the channel write paths
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DownloadBenchmark {
+
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    @Param({"67108864"})
+    int bytes;
+
+    private HttpServer server;
+    private Transport transport;
+    private URI uri;
+    private Path path;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = new byte[bytes];
+        new Random(bytes).nextBytes(content);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, content.length);
+                exchange.getResponseBody().write(content);
+            }
+        });
+        this.server.start();
+        this.transport = new HttpClientTransport();
+        this.uri = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/file.zip");
+        this.path = Files.createTempFile("download", ".zip");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.server.stop(0);
+        Files.deleteIfExists(this.path);
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        try (Transport.Response response = transport.get(uri, Map.of()).join();
+             InputStream inputStream = response.body();
+             OutputStream outputStream = Files.newOutputStream(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            byte[] buff = new byte[BUFFER_SIZE];
+            long readed = 0;
+            for (int read = inputStream.read(buff); read >= 0; read = inputStream.read(buff)) {
+                outputStream.write(buff, 0, read);
+                readed += read;
+            }
+            return readed;
+        }
+    }
+
+    @Benchmark
+    public long transferFrom() throws IOException {
+        try (Transport.Response response = transport.get(uri, Map.of()).join();
+             ReadableByteChannel source = Channels.newChannel(response.body());
+             FileChannel fileChannel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            long contentLength = response.contentLength();
+            long readed = 0;
+            for (long transferred = 1; transferred > 0 && readed < contentLength; readed += transferred) {
+                transferred = fileChannel.transferFrom(source, readed, contentLength - readed);
+            }
+            return readed;
+        }
+    }
+
+    @Benchmark
+    public long directBuffer() throws IOException {
+        try (Transport.Response response = transport.get(uri, Map.of()).join();
+             ReadableByteChannel source = Channels.newChannel(response.body());
+             FileChannel fileChannel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE << 2);
+            long readed = 0;
+            for (boolean eof = false; !eof; ) {
+                eof = source.read(buffer) < 0;
+                if (!buffer.hasRemaining() || eof) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        readed += fileChannel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            return readed;
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.ComplexProcessorFactory;
+import com.github.sftwnd.etsiorg.CrawlContext;
+import com.github.sftwnd.etsiorg.CrawlScheduler;
+import com.github.sftwnd.etsiorg.ExecutionMode;
+import com.github.sftwnd.etsiorg.HREF;
+import com.github.sftwnd.etsiorg.Page;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Crawl of the flat folder from the local server with the response latency: the fixed pool against
+ * the virtual threads with the same download limit of the scheduler
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    private static final String FOLDER = "/deliver/etsi_ts/129000_129099/129078/";
+
+    @Param({"FIXED", "VIRTUAL"})
+    ExecutionMode mode;
+
+    @Param({"8", "64"})
+    int downloads;
+
+    @Param({"256"})
+    int files;
+
+    @Param({"20"})
+    long latency;
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private byte[] listing;
+    private byte[] content;
+    private ExecutorService executor;
+    private Path root;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder builder = new StringBuilder("<html><head><title>www.etsi.org - ").append(FOLDER)
+                .append("</title></head><body><H1>www.etsi.org - ").append(FOLDER).append("</H1><hr>\n\n<pre><A HREF=\"")
+                .append(FOLDER).append("\">[To Parent Directory]</A><br><br>");
+        this.content = new byte[16 << 10];
+        for (int i = 0; i < files; i++) {
+            builder.append(String.format(" 4/21/2022  8:39 AM %12d <A HREF=\"%sts_%d.pdf\">ts_%d.pdf</A><br>", content.length, FOLDER, i, i));
+        }
+        this.listing = builder.append("</pre><hr></body></html>").toString().getBytes(StandardCharsets.UTF_8);
+        // The server handles all the requests in flight, so the latency is the only limit of the server side
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(serverExecutor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+        this.executor = mode.executor(downloads + 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void createRoot() throws IOException {
+        this.root = Files.createTempDirectory("executionMode");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteRoot() throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long crawl() {
+        CrawlScheduler scheduler = new CrawlScheduler(executor, 1, downloads, CrawlScheduler.DEFAULT_QUEUE,
+                CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        URI uri = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + FOLDER);
+        return new ComplexProcessorFactory(root, CrawlContext.builder().executor(executor).scheduler(scheduler).build())
+                .processor(Page.of(HREF.builder().uri(uri).build()))
+                .process()
+                .join()
+                .count();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Thread.sleep(latency);
+            byte[] body = exchange.getRequestURI().getPath().endsWith("/") ? listing : content;
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
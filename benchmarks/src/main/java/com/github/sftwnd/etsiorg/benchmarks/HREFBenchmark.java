@@ -0,0 +1,79 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.HREF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the resource reference and the version codec: once for each row of each listing
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HREFBenchmark {
+
+    private URI file;
+    private URI versioned;
+    private LocalDateTime dateTime;
+    private String versionName;
+    private long version;
+    private StringBuilder builder;
+
+    @Setup
+    public void setUp() {
+        this.file = URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/17.00.00_60/ts_129078v170000p.pdf");
+        this.versioned = URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/17.00.00_60/");
+        this.dateTime = LocalDateTime.of(2022, 4, 21, 8, 39);
+        this.versionName = "17.00.00_60";
+        this.version = HREF.versionOfFile(versionName);
+        this.builder = new StringBuilder();
+    }
+
+    @Benchmark
+    public HREF buildFile() {
+        return HREF.builder().uri(file).bytes(932564L).dateTime(dateTime).regularFile(true).build();
+    }
+
+    @Benchmark
+    public HREF buildVersionedFolder() {
+        return HREF.builder().uri(versioned).dateTime(dateTime).regularFile(false).build();
+    }
+
+    @Benchmark
+    public long versionOfFile() {
+        return HREF.versionOfFile(versionName);
+    }
+
+    @Benchmark
+    public String versionName() {
+        return HREF.versionName(version);
+    }
+
+    @Benchmark
+    public StringBuilder appendVersionName() {
+        builder.setLength(0);
+        return HREF.appendVersionName(builder, version);
+    }
+
+    @Benchmark
+    public long versionOfUri() {
+        String path = versioned.getPath();
+        return HREF.versionOf(path, path.lastIndexOf('/', path.length() - 2) + 1, path.length() - 1);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.CompactHREF;
+import com.github.sftwnd.etsiorg.CrawlIndex;
+import com.github.sftwnd.etsiorg.HREF;
+import com.github.sftwnd.etsiorg.PathTrie;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Retained heap of the synthetic ETSI-like tree of the resource references, of their compact form and of the crawl
+ * index which keeps the records of the tree between the runs in the compact form:
+ * {@code java -cp benchmarks/target/benchmarks.jar com.github.sftwnd.etsiorg.benchmarks.HeapFootprint [entries]}
+ * (one million entries by default)
+ */
+public class HeapFootprint {
+
+    private static final int DEFAULT_ENTRIES = 1_000_000;
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        List<HREF> hrefs = measure("HREF", entries, i -> href(i));
+        hrefs.clear();
+        PathTrie trie = new PathTrie();
+        List<CompactHREF> compact = measure("CompactHREF", entries, i -> CompactHREF.of(href(i), trie));
+        System.out.printf("Trie nodes: %d%n", trie.size());
+        compact.clear();
+        index(entries);
+    }
+
+    /**
+     * Records of the synced tree in the crawl index
+     */
+    private static void index(int entries) throws IOException {
+        Path root = Files.createTempDirectory("heapFootprint");
+        try {
+            long before = used();
+            try (CrawlIndex index = CrawlIndex.open(root, true)) {
+                for (int i = 0; i < entries; i++) {
+                    index.synced(href(i));
+                }
+                long retained = used() - before;
+                System.out.printf("CrawlIndex: %d entries, %d MB retained, %d bytes per entry%n", entries, retained >> 20, retained / entries);
+            }
+        } finally {
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Synthetic tree: 100 groups of 100 specifications of 10 versions of 10 files for the million of entries
+     */
+    private static HREF href(int i) {
+        int file = i % 10;
+        int version = i / 10 % 10;
+        int spec = i / 100 % 100;
+        int group = i / 10_000;
+        String number = String.format("%03d%03d", group, spec);
+        return HREF.builder()
+                .uri(URI.create(String.format("https://www.etsi.org/deliver/etsi_ts/%03d000_%03d099/%s/%02d.00.00_60/ts_%sv%02d0000p%d.pdf",
+                        group, group, number, version + 10, number, version + 10, file)))
+                .bytes(932564L + i)
+                .dateTime(DATE_TIME.plusMinutes(i))
+                .regularFile(true)
+                .build();
+    }
+
+    private static <T> List<T> measure(String name, int entries, Function<Integer, T> factory) {
+        long before = used();
+        List<T> result = new ArrayList<>(entries);
+        long list = used() - before;
+        for (int i = 0; i < entries; i++) {
+            result.add(factory.apply(i));
+        }
+        long retained = used() - before - list;
+        System.out.printf("%s: %d entries, %d MB retained, %d bytes per entry%n", name, entries, retained >> 20, retained / entries);
+        return result;
+    }
+
+    private static long used() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Folder listing of the given number of rows built from the rows captured on www.etsi.org:
+ * versioned folders, specification folders and files
+ */
+@State(Scope.Benchmark)
+public class ListingFixture {
+
+    static final URI BASE = URI.create("https://www.etsi.org/");
+
+    private static final String HEADER = "<html><head><title>www.etsi.org - /deliver/etsi_ts/129000_129099/129079/</title></head>" +
+            "<body><H1>www.etsi.org - /deliver/etsi_ts/129000_129099/129079/</H1><hr>\n\n" +
+            "<pre><A HREF=\"/deliver/etsi_ts/129000_129099/\">[To Parent Directory]</A><br><br>";
+    private static final String FOOTER = "<br></pre><hr></body></html>";
+
+    private static final String[] ROWS = {
+            "%2d/%d/2011 12:08 PM        &lt;dir&gt; <A HREF=\"/deliver/etsi_ts/129000_129099/129079/%02d.%02d.00_60/\">%02d.%02d.00_60</A>",
+            "%2d/%d/2022  8:39 AM       932564 <A HREF=\"/deliver/etsi_ts/129000_129099/129078/17.00.00_60/ts_1290%02dv17%02d00p.pdf\">ts_1290%02dv17%02d00p.pdf</A>",
+            "%2d/%d/2015  1:24 PM        &lt;dir&gt; <A HREF=\"/deliver/etsi_ts/129000_129099/1290%02d%02d/\">1290%02d%02d</A>"
+    };
+
+    @Param({"10", "1000", "50000"})
+    int rows;
+
+    byte[] listing;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(HEADER);
+        for (int i = 0; i < rows; i++) {
+            int major = i / 100 % 100;
+            int minor = i % 100;
+            builder.append(i == 0 ? "" : "<br>")
+                    .append(String.format(ROWS[i % ROWS.length], i % 12 + 1, i % 28 + 1, major, minor, major, minor))
+                    .append('\n');
+        }
+        this.listing = builder.append(FOOTER).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.ListingParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the folder listing: the listing parser of TextHtmlProcessor over the in-memory body
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingParserBenchmark {
+
+    @Benchmark
+    public void parse(ListingFixture fixture, Blackhole blackhole) throws IOException {
+        try (ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(fixture.listing))) {
+            ListingParser.parse(channel, ListingFixture.BASE, blackhole::consume);
+        }
+    }
+
+}
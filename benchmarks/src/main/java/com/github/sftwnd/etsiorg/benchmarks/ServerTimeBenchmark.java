@@ -0,0 +1,71 @@
+package com.github.sftwnd.etsiorg.benchmarks;
+
+import com.github.sftwnd.etsiorg.HREF;
+import com.github.sftwnd.etsiorg.ServerTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation instant of the listed file: the former zoned date time conversion on each request,
+ * the conversion by the zone rules and the instant cached by the resource reference
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerTimeBenchmark {
+
+    private HREF href;
+    private LocalDateTime dateTime;
+    private ZoneId zone;
+
+    @Setup
+    public void setUp() {
+        this.dateTime = LocalDateTime.of(2022, 4, 21, 8, 39);
+        this.zone = ServerTime.ETSI_ZONE;
+        this.href = HREF.builder()
+                .uri(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/17.00.00_60/ts_129078v170000p.pdf"))
+                .bytes(932564L)
+                .dateTime(dateTime)
+                .build();
+    }
+
+    @Benchmark
+    public Instant zonedDateTime() {
+        return Optional.ofNullable(dateTime)
+                .map(localDateTime -> localDateTime.atZone(zone))
+                .map(ZonedDateTime::toInstant)
+                .map(instant -> instant.truncatedTo(ChronoUnit.SECONDS))
+                .orElse(null);
+    }
+
+    @Benchmark
+    public long epochSecond() {
+        return ServerTime.epochSecond(dateTime, zone);
+    }
+
+    @Benchmark
+    public Instant cached() {
+        return href.instant(zone);
+    }
+
+}
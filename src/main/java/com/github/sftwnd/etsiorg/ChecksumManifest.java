@@ -0,0 +1,244 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * SHA-256 manifest of the folder files in the format of sha256sum: {@code <hex>  <file name>} per line,
+ * so the folder can be checked by {@code sha256sum -c SHA256SUMS} as well
+ */
+@Slf4j
+public final class ChecksumManifest {
+
+    public static final String MANIFEST_FILE = "SHA256SUMS";
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final String SEPARATOR = "  ";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int CACHED_MANIFESTS = 256;
+
+    /**
+     * Locks of the manifests striped by the path: the saves of the different folders are not serialized
+     */
+    private static final Object[] LOCKS = new Object[64];
+
+    /**
+     * Checksums of the recently recorded manifests, so the manifest is read once for the files of the folder
+     * and the new files are appended to it
+     */
+    private static final Map<Path, Cached> MANIFESTS = Collections.synchronizedMap(
+            new LinkedHashMap<>(CACHED_MANIFESTS, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, Cached> eldest) {
+                    return size() > CACHED_MANIFESTS;
+                }
+            });
+
+    static {
+        Arrays.setAll(LOCKS, ignore -> new Object());
+    }
+
+    private ChecksumManifest() {
+    }
+
+    /**
+     * Record the checksum of the file to the manifest of its folder
+     * @param file path to the file
+     * @param checksum hex SHA-256 of the file content
+     * @throws IOException in the case of error
+     */
+    public static void record(@NonNull Path file, @NonNull String checksum) throws IOException {
+        Objects.requireNonNull(checksum, "ChecksumManifest::record - checksum is null");
+        Path manifest = manifest(Objects.requireNonNull(file, "ChecksumManifest::record - file is null"));
+        String name = file.getFileName().toString();
+        // The files of the folder are saved concurrently: the manifest is changed under the lock of its path
+        synchronized (lock(manifest)) {
+            Cached cached = cached(manifest);
+            String previous = cached.checksums.put(name, checksum);
+            if (previous == null) {
+                String line = checksum + SEPARATOR + name + System.lineSeparator();
+                Files.write(manifest, line.getBytes(StandardCharsets.UTF_8), CREATE, APPEND);
+                cached.size += line.getBytes(StandardCharsets.UTF_8).length;
+            } else if (!checksum.equals(previous)) {
+                // The changed file is not appended: sha256sum -c would check its previous checksum as well
+                cached.size = write(manifest, cached.checksums);
+            }
+        }
+    }
+
+    /**
+     * Remove the file from the manifest of its folder
+     * @param file path to the file
+     * @throws IOException in the case of error
+     */
+    public static void remove(@NonNull Path file) throws IOException {
+        Path manifest = manifest(Objects.requireNonNull(file, "ChecksumManifest::remove - file is null"));
+        synchronized (lock(manifest)) {
+            Cached cached = cached(manifest);
+            if (cached.checksums.remove(file.getFileName().toString()) != null) {
+                cached.size = write(manifest, cached.checksums);
+            }
+        }
+    }
+
+    /**
+     * Recorded checksum of the file
+     * @param file path to the file
+     * @return hex SHA-256 of the file if recorded
+     * @throws IOException in the case of error
+     */
+    public static @NonNull Optional<String> get(@NonNull Path file) throws IOException {
+        return Optional.ofNullable(read(manifest(Objects.requireNonNull(file, "ChecksumManifest::get - file is null")))
+                .get(file.getFileName().toString()));
+    }
+
+    /**
+     * Checksums of the folder manifest
+     * @param manifest path to the manifest
+     * @return checksums by the file names
+     * @throws IOException in the case of error
+     */
+    public static @NonNull Map<String, String> read(@NonNull Path manifest) throws IOException {
+        Map<String, String> checksums = new TreeMap<>();
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator > 0) {
+                    checksums.put(line.substring(separator + SEPARATOR.length()), line.substring(0, separator));
+                } else if (!line.isBlank()) {
+                    logger.warn("Checksum manifest record is skipped: '{}' of: '{}'", line, manifest);
+                }
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * New digest of the checksum
+     * @return SHA-256 digest
+     */
+    public static @NonNull MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException nsaex) {
+            throw new IllegalStateException(ALGORITHM + " is not supported", nsaex);
+        }
+    }
+
+    /**
+     * Hex representation of the digest
+     * @param digest digest of the content
+     * @return hex checksum
+     */
+    public static @NonNull String hex(@NonNull MessageDigest digest) {
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length << 1];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i << 1] = HEX[(bytes[i] >> 4) & 0x0f];
+            hex[(i << 1) + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Checksum of the file content read by the pooled transfer buffer: no mapping is left to the GC
+     * @param file path to the file
+     * @return hex SHA-256 of the file
+     * @throws IOException in the case of error
+     */
+    public static @NonNull String checksum(@NonNull Path file) throws IOException {
+        MessageDigest digest = digest();
+        ByteBuffer buffer = Page.buffer();
+        try (FileChannel fileChannel = FileChannel.open(file, READ)) {
+            while (fileChannel.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        } finally {
+            Page.release(buffer);
+        }
+        return hex(digest);
+    }
+
+    private static @NonNull Object lock(@NonNull Path manifest) {
+        return LOCKS[(manifest.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+    }
+
+    /**
+     * Checksums of the manifest with the size of it after the last change
+     */
+    private static class Cached {
+        private final Map<String, String> checksums;
+        private long size;
+        private Cached(@NonNull Map<String, String> checksums, long size) {
+            this.checksums = checksums;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Checksums of the manifest read on the first change: the manifest of the other size has been changed
+     * or deleted since, so it is read again
+     */
+    private static @NonNull Cached cached(@NonNull Path manifest) throws IOException {
+        long size;
+        try {
+            size = Files.size(manifest);
+        } catch (NoSuchFileException ignore) {
+            size = 0L;
+        }
+        Cached cached = MANIFESTS.get(manifest);
+        if (cached == null || cached.size != size) {
+            cached = new Cached(read(manifest), size);
+            MANIFESTS.put(manifest, cached);
+        }
+        return cached;
+    }
+
+    private static @NonNull Path manifest(@NonNull Path file) {
+        return Optional.ofNullable(file.toAbsolutePath().getParent())
+                .orElseThrow(() -> new IllegalArgumentException("ChecksumManifest - file has no folder: " + file))
+                .resolve(MANIFEST_FILE);
+    }
+
+    private static long write(@NonNull Path manifest, @NonNull Map<String, String> checksums) throws IOException {
+        if (checksums.isEmpty()) {
+            Files.deleteIfExists(manifest);
+            return 0L;
+        }
+        List<String> lines = checksums.entrySet().stream()
+                .map(entry -> entry.getValue() + SEPARATOR + entry.getKey())
+                .collect(Collectors.toList());
+        Path temp = manifest.resolveSibling(MANIFEST_FILE + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, manifest, REPLACE_EXISTING, ATOMIC_MOVE);
+        return Files.size(manifest);
+    }
+
+}
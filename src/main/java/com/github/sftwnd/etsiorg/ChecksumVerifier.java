@@ -0,0 +1,189 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verification of the saved tree by the folder checksum manifests: the files are hashed in parallel by the memory-mapped reads.
+ * The repair deletes the corrupted files, so they are loaded again by the next crawl.
+ */
+@Slf4j
+@Getter
+public class ChecksumVerifier {
+
+    private final Path root;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Constructor of the verifier on the common pool
+     * @param root destination root
+     */
+    public ChecksumVerifier(@NonNull Path root) {
+        this(root, null, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Constructor of the verifier
+     * @param root destination root
+     * @param executor executor of the hashing or null for the common pool
+     * @param parallelism files hashed at the same time
+     */
+    public ChecksumVerifier(@NonNull Path root, @Nullable Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("ChecksumVerifier::new - parallelism must be positive: " + parallelism);
+        }
+        this.root = Objects.requireNonNull(root, "ChecksumVerifier::new - root is null");
+        this.executor = Optional.ofNullable(executor).orElseGet(ForkJoinPool::commonPool);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Verify the files of the manifests
+     * @param repair true to delete the corrupted files and their manifest records
+     * @return report of the verification
+     * @throws IOException in the case of error
+     */
+    public @NonNull Report verify(boolean repair) throws IOException {
+        Report report = new Report();
+        if (!Files.isDirectory(root)) {
+            return report;
+        }
+        Semaphore slots = new Semaphore(parallelism);
+        try (Stream<Path> manifests = Files.walk(root)) {
+            for (Path manifest : (Iterable<Path>) manifests
+                    .filter(path -> ChecksumManifest.MANIFEST_FILE.equals(String.valueOf(path.getFileName())))
+                    .filter(path -> !root.relativize(path).startsWith(CrawlIndex.INDEX_FOLDER))::iterator) {
+                verify(manifest, report, slots);
+            }
+        }
+        // All the slots are free when the last file is verified
+        slots.acquireUninterruptibly(parallelism);
+        if (repair) {
+            for (Map.Entry<Path, String> corrupted : report.corrupted.entrySet()) {
+                Path file = corrupted.getKey();
+                // The stored content linked to the file is corrupted as well
+                Path blob = ContentStore.blob(root, corrupted.getValue());
+                if (Files.exists(blob) && Files.isSameFile(blob, file)) {
+                    Files.delete(blob);
+                }
+                Files.deleteIfExists(file);
+                ChecksumManifest.remove(file);
+                logger.warn("Corrupted file: '{}' has been deleted", file);
+            }
+            for (Path file : report.getMissing()) {
+                ChecksumManifest.remove(file);
+            }
+        }
+        logger.info("Verified files: {}, corrupted: {}, missing: {}", report.getVerified(), report.getCorrupted().size(), report.getMissing().size());
+        return report;
+    }
+
+    private void verify(@NonNull Path manifest, @NonNull Report report, @NonNull Semaphore slots) throws IOException {
+        Path folder = manifest.getParent();
+        for (Map.Entry<String, String> record : ChecksumManifest.read(manifest).entrySet()) {
+            Path file = folder.resolve(record.getKey());
+            if (!Files.isRegularFile(file)) {
+                logger.warn("File: '{}' of the checksum manifest is missing", file);
+                report.missing.add(file);
+                continue;
+            }
+            slots.acquireUninterruptibly();
+            CompletableFuture.runAsync(() -> verify(file, record.getValue(), report), executor)
+                    .whenComplete((ignore, throwable) -> slots.release());
+        }
+    }
+
+    private void verify(@NonNull Path file, @NonNull String checksum, @NonNull Report report) {
+        try {
+            if (checksum.equalsIgnoreCase(ChecksumManifest.checksum(file))) {
+                report.verified.increment();
+                return;
+            }
+            logger.warn("Checksum mismatch of the file: '{}'", file);
+        } catch (IOException ioex) {
+            logger.warn("Unable to read file: '{}' by cause: {}", file, ioex.getMessage());
+        }
+        report.corrupted.put(file, checksum);
+    }
+
+    /**
+     * Result of the verification
+     */
+    public static class Report {
+
+        private final LongAdder verified = new LongAdder();
+        private final Map<Path, String> corrupted = new ConcurrentHashMap<>();
+        private final Collection<Path> missing = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Number of the files with the recorded checksum
+         * @return verified files
+         */
+        public long getVerified() {
+            return verified.sum();
+        }
+
+        /**
+         * Files with the checksum mismatch or unreadable
+         * @return sorted paths of the corrupted files
+         */
+        public @NonNull List<Path> getCorrupted() {
+            return sorted(corrupted.keySet());
+        }
+
+        /**
+         * Files of the manifests which are not found
+         * @return sorted paths of the missing files
+         */
+        public @NonNull List<Path> getMissing() {
+            return sorted(missing);
+        }
+
+        /**
+         * Files to be loaded again: the corrupted and the missing ones
+         * @return sorted paths of the files
+         */
+        public @NonNull List<Path> getInvalid() {
+            List<Path> invalid = new ArrayList<>(corrupted.keySet());
+            invalid.addAll(missing);
+            return sorted(invalid);
+        }
+
+        /**
+         * Check the verification result
+         * @return true if no corrupted or missing file is found
+         */
+        public boolean isValid() {
+            return corrupted.isEmpty() && missing.isEmpty();
+        }
+
+        private static @NonNull List<Path> sorted(@NonNull Collection<Path> paths) {
+            return Collections.unmodifiableList(paths.stream().sorted().collect(Collectors.toList()));
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of the host: the circuit is opened after the number of the consecutive failures and
+ * the requests wait until the open period is over. Then one trial request is let through: its success
+ * closes the circuit and its failure opens it again.
+ */
+@Getter
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURES = 5;
+    public static final Duration DEFAULT_OPEN = Duration.ofSeconds(30);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    /**
+     * Consecutive failures (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private int failures;
+
+    /**
+     * End of the open period (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private long openUntil;
+
+    /**
+     * The trial request is in flight (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private boolean trial;
+
+    /**
+     * Constructor of the circuit breaker
+     * @param failureThreshold number of the consecutive failures which opens the circuit
+     * @param open duration of the open circuit
+     */
+    public CircuitBreaker(int failureThreshold, @NonNull Duration open) {
+        this(failureThreshold, open, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, @NonNull Duration open, @NonNull LongSupplier clock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("CircuitBreaker::new - failureThreshold has to be positive: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = Objects.requireNonNull(open, "CircuitBreaker::new - open is null").toNanos();
+        this.clock = Objects.requireNonNull(clock, "CircuitBreaker::new - clock is null");
+    }
+
+    /**
+     * Time to wait before the request without the request permission
+     * @return nanoseconds to wait or 0 if the request can be sent
+     */
+    public synchronized long pause() {
+        if (failures < failureThreshold) {
+            return 0L;
+        }
+        long wait = openUntil - clock.getAsLong();
+        return wait > 0 ? wait : trial ? trialWait() : 0L;
+    }
+
+    /**
+     * Request permission to send the request: the first one after the open period is the trial request
+     * @return 0 if the request can be sent, otherwise nanoseconds to wait before the next try
+     */
+    public synchronized long acquire() {
+        long wait = pause();
+        if (wait == 0L && failures >= failureThreshold) {
+            trial = true;
+        }
+        return wait;
+    }
+
+    /**
+     * Record the successful request
+     */
+    public synchronized void success() {
+        failures = 0;
+        trial = false;
+    }
+
+    /**
+     * Release the request permission without the result of the host: the error is not the host failure
+     */
+    public synchronized void release() {
+        trial = false;
+    }
+
+    /**
+     * Record the failed request
+     * @return true if the circuit has been opened by the failure
+     */
+    public synchronized boolean failure() {
+        boolean closed = failures < failureThreshold || trial;
+        failures = Math.min(failures + 1, failureThreshold);
+        trial = false;
+        if (failures >= failureThreshold && closed) {
+            openUntil = clock.getAsLong() + openNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The requests wait for the result of the trial request
+     */
+    private long trialWait() {
+        return Math.max(1_000_000L, openNanos / 10);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * Compact form of the resource reference for the huge trees: the path is the interned node of the {@link PathTrie},
+ * the size, the creation time (in the epoch seconds of the local time) and the version are primitive fields.
+ * The {@link HREF} is the view built of it on demand.
+ */
+public final class CompactHREF {
+
+    private static final long UNDEFINED_BYTES = -1L;
+    private static final long UNDEFINED_DATE_TIME = Long.MIN_VALUE;
+    private static final byte REGULAR_FILE = 1;
+    private static final byte TRAILING_SLASH = 2;
+
+    private final PathTrie.Node node;
+    private final long bytes;
+    private final long epochSecond;
+    private final long version;
+    private final byte flags;
+
+    private CompactHREF(@NonNull PathTrie.Node node, long bytes, long epochSecond, long version, byte flags) {
+        this.node = node;
+        this.bytes = bytes;
+        this.epochSecond = epochSecond;
+        this.version = version;
+        this.flags = flags;
+    }
+
+    /**
+     * Compact form of the reference
+     * @param href resource reference
+     * @param trie trie of the paths shared by the references
+     * @return compact reference
+     */
+    public static @NonNull CompactHREF of(@NonNull HREF href, @NonNull PathTrie trie) {
+        Objects.requireNonNull(href, "CompactHREF::of - href is null");
+        Objects.requireNonNull(trie, "CompactHREF::of - trie is null");
+        String path = href.getUri().getRawPath();
+        return new CompactHREF(trie.intern(href.getUri()),
+                href.getBytes() == null ? UNDEFINED_BYTES : href.getBytes(),
+                href.getDateTime() == null ? UNDEFINED_DATE_TIME : href.getDateTime().toEpochSecond(ZoneOffset.UTC),
+                href.getVersion(),
+                (byte) ((href.isRegularFile() ? REGULAR_FILE : 0) | (path != null && path.endsWith("/") ? TRAILING_SLASH : 0)));
+    }
+
+    /**
+     * View of the reference
+     * @return resource reference of the same uri, size, creation time, version and kind
+     */
+    public @NonNull HREF href() {
+        HREF.Builder builder = HREF.builder()
+                .uri(getUri())
+                .version(version)
+                .bytes(bytes == UNDEFINED_BYTES ? null : bytes)
+                .regularFile(isRegularFile());
+        LocalDateTime dateTime = getDateTime();
+        return (dateTime == null ? builder : builder.dateTime(dateTime)).build();
+    }
+
+    /**
+     * Interned node of the path
+     * @return trie node
+     */
+    public @NonNull PathTrie.Node getNode() {
+        return node;
+    }
+
+    public @NonNull URI getUri() {
+        return node.uri((flags & TRAILING_SLASH) != 0);
+    }
+
+    public @Nullable Long getBytes() {
+        return bytes == UNDEFINED_BYTES ? null : bytes;
+    }
+
+    public @Nullable LocalDateTime getDateTime() {
+        return epochSecond == UNDEFINED_DATE_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isRegularFile() {
+        return (flags & REGULAR_FILE) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return href().toString();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.github.sftwnd.etsiorg;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,12 +23,41 @@ public class ComplexProcessorFactory implements ProcessorFactory<CompletableFutu
 
     private final Path root;
     private final Executor executor;
+    private final CrawlScheduler scheduler;
+    private final CrawlIndex index;
+    private final SegmentedDownload segmentedDownload;
     private final Consumer<Collection<Path>> onExpires;
+    private final CrawlSink sink;
+    private final ContentStore store;
+    private final CrawlFilter filter;
+    @Getter(AccessLevel.NONE)
+    private final CrawlContext context;
 
     public ComplexProcessorFactory(@Nullable Path root, @Nullable Executor executor, @Nullable Consumer<Collection<Path>> onExpires) {
+        this(root, CrawlContext.builder()
+                .executor(executor)
+                .scheduler(new CrawlScheduler(executor))
+                .onExpires(onExpires)
+                .build());
+    }
+
+    /**
+     * Constructor of the factory with the services of the crawl
+     * @param root destination root
+     * @param context services of the crawl passed to the processors, the filter is {@link CrawlFilter#DEFAULT} if not defined
+     */
+    public ComplexProcessorFactory(@Nullable Path root, @NonNull CrawlContext context) {
         this.root = Objects.requireNonNull(root, "ComplexProcessorFactory::new - root path is null");
-        this.executor = executor;
-        this.onExpires = onExpires;
+        Objects.requireNonNull(context, "ComplexProcessorFactory::new - context is null");
+        this.context = context.getFilter() != null ? context : context.toBuilder().filter(CrawlFilter.DEFAULT).build();
+        this.executor = context.getExecutor();
+        this.scheduler = context.getScheduler();
+        this.index = context.getIndex();
+        this.segmentedDownload = context.getSegmentedDownload();
+        this.onExpires = context.getOnExpires();
+        this.sink = context.getSink();
+        this.store = context.getStore();
+        this.filter = this.context.getFilter();
     }
 
     /**
@@ -35,8 +65,18 @@ public class ComplexProcessorFactory implements ProcessorFactory<CompletableFutu
      * @param page the page reference
      * @return Processor to load file from the page reference
      */
-    private Processor<CompletableFuture<Stream<Path>>> fileSaveProcessor(@NonNull Page page) {
-        return new FileSaveProcessor(root, page);
+    protected Processor<CompletableFuture<Stream<Path>>> fileSaveProcessor(@NonNull Page page) {
+        return fileSaveProcessor(page, null);
+    }
+
+    /**
+     * Instantiate File Save Processor from the page reference of the listing row
+     * @param page the page reference
+     * @param folder local folder of the listing or null
+     * @return Processor to load file from the page reference
+     */
+    protected Processor<CompletableFuture<Stream<Path>>> fileSaveProcessor(@NonNull Page page, @Nullable LocalFolder folder) {
+        return new FileSaveProcessor(root, page, folder, context);
     }
 
     /**
@@ -45,19 +85,40 @@ public class ComplexProcessorFactory implements ProcessorFactory<CompletableFutu
      * @return Processor to load text/html, parse and initialize child files loading
      */
     private Processor<CompletableFuture<Stream<Path>>> textHtmlProcessor(@NonNull Page page) {
-        return new TextHtmlProcessor(page, this, executor, onExpires);
+        return new TextHtmlProcessor(page, LocalFolder.of(localPath(page)), this, context);
     }
 
     /**
-     * Get processor for page
+     * Local path of the page in the destination root
+     */
+    private @NonNull Path localPath(@NonNull Page page) {
+        return Path.of(root.toString(), page.path().toString());
+    }
+
+    /**
+     * Get processor for page: the children of the listings are filtered before the page creation,
+     * so the filter is checked here for the page of the crawl start
      * @param page page to transform
      * @return processor for age
      */
     @Override
     public @NonNull Processor<CompletableFuture<Stream<Path>>> processor(@NonNull Page page) {
-        return ! page.getHref().isRegularFile() ? this.textHtmlProcessor(page)
-                : page.fileName().endsWith(".log") || page.fileName().endsWith(".tmp") || page.fileName().endsWith(".temp") ? EmptyProcessor.DEFAULT
+        return ! filter.test(page.getHref()) ? EmptyProcessor.DEFAULT
+                : ! page.getHref().isRegularFile() ? this.textHtmlProcessor(page)
                 : this.fileSaveProcessor(page);
     }
 
+    /**
+     * Get processor for the listing row: the file of the local folder of the listing is checked by the folder entry
+     * @param page page to transform
+     * @param folder local folder of the listing or null
+     * @return processor for page
+     */
+    @Override
+    public @NonNull Processor<CompletableFuture<Stream<Path>>> processor(@NonNull Page page, @Nullable LocalFolder folder) {
+        return folder == null || ! page.getHref().isRegularFile() || ! filter.test(page.getHref())
+                || ! folder.getPath().equals(localPath(page).getParent()) ? this.processor(page)
+                : this.fileSaveProcessor(page, folder);
+    }
+
 }
\ No newline at end of file
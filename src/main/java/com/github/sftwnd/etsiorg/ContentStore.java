@@ -0,0 +1,248 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Content-addressed store of the saved files under {@code <root>/.etsiorg/store/}: the blobs are named by their SHA-256
+ * and the files of the tree are the hard links to them, so the identical files of the versions are kept once.
+ *
+ * The append-only key log maps (size, dateTime, path) of the site resource to the blob, so the known content of the same
+ * resource is linked without the request. The other resources are linked after the download by the SHA-256 of their
+ * content only: the same name, size and time of the other resource does not mean the same content.
+ * The links share the file times: the files with the different creation time are not linked and the times of the linked
+ * file are changed on its own copy only.
+ */
+@Slf4j
+public class ContentStore implements Closeable {
+
+    public static final String STORE_FOLDER = "store";
+    public static final String KEYS_FILE = "keys.log";
+
+    private static final String SEPARATOR = "\t";
+    private static final String LINK_SUFFIX = ".link";
+
+    @Getter
+    private final Path path;
+
+    private final Map<String, String> keys;
+    private final Writer writer;
+
+    private ContentStore(@NonNull Path path, @NonNull Map<String, String> keys) throws IOException {
+        this.path = path;
+        this.keys = keys;
+        this.writer = Files.newBufferedWriter(path.resolve(KEYS_FILE), StandardCharsets.UTF_8, WRITE, CREATE, APPEND);
+    }
+
+    /**
+     * Open the content store of the destination root
+     * @param root destination root
+     * @return content store
+     * @throws IOException in the case of error
+     */
+    public static @NonNull ContentStore open(@NonNull Path root) throws IOException {
+        Path path = Files.createDirectories(Objects.requireNonNull(root, "ContentStore::open - root is null")
+                .resolve(CrawlIndex.INDEX_FOLDER).resolve(STORE_FOLDER));
+        Map<String, String> keys = new ConcurrentHashMap<>();
+        Path keysPath = path.resolve(KEYS_FILE);
+        if (Files.exists(keysPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(keysPath, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    int separator = line.indexOf(SEPARATOR);
+                    if (separator > 0) {
+                        keys.put(line.substring(separator + 1), line.substring(0, separator));
+                    } else {
+                        logger.warn("Content store record is skipped: '{}'", line);
+                    }
+                }
+            }
+        }
+        logger.debug("Content store: '{}' has been opened with {} keys", path, keys.size());
+        return new ContentStore(path, keys);
+    }
+
+    /**
+     * Replace the hard link by the own copy of the content, so the file times can be changed without the change
+     * of the stored content and of the other links
+     * @param filePath path to the file
+     * @return true if the file has been linked and it is replaced by the copy
+     * @throws IOException in the case of error
+     */
+    public static boolean detach(@NonNull Path filePath) throws IOException {
+        if (!isLinked(filePath)) {
+            return false;
+        }
+        Path copy = filePath.resolveSibling(filePath.getFileName() + LINK_SUFFIX);
+        Files.copy(filePath, copy, REPLACE_EXISTING, COPY_ATTRIBUTES);
+        Files.move(copy, filePath, REPLACE_EXISTING, ATOMIC_MOVE);
+        logger.debug("Link: '{}' has been replaced by the copy of the content", filePath);
+        return true;
+    }
+
+    /**
+     * Link the known content of the resource to the file path instead of the download
+     * @param href resource reference
+     * @param filePath path to the file
+     * @return checksum of the linked content or empty if the content is unknown
+     * @throws IOException in the case of error
+     */
+    public @NonNull Optional<String> link(@NonNull HREF href, @NonNull Path filePath) throws IOException {
+        Optional<String> checksum = key(href).map(keys::get);
+        if (checksum.isPresent()) {
+            Path blob = blob(checksum.get());
+            if (Files.isRegularFile(blob) && Objects.equals(Files.size(blob), href.getBytes())) {
+                replace(blob, filePath);
+                return checksum;
+            }
+            logger.debug("Content: {} of the file: '{}' is not found in the store", checksum.get(), filePath);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Put the loaded file to the store: the file is replaced by the link to the same content if it is stored already
+     * @param href resource reference
+     * @param filePath path to the loaded file
+     * @param checksum hex SHA-256 of the file
+     * @return true if the file has been replaced by the link to the stored content
+     * @throws IOException in the case of error
+     */
+    public boolean put(@NonNull HREF href, @NonNull Path filePath, @NonNull String checksum) throws IOException {
+        Path blob = blob(checksum);
+        boolean linked = false;
+        if (!Files.exists(blob)) {
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, filePath);
+            } catch (FileAlreadyExistsException ignore) {
+                linked = link(blob, filePath);
+            } catch (UnsupportedOperationException | IOException ex) {
+                logger.debug("Unable to store: '{}'. Cause: {}", filePath, ex.getMessage());
+                return false;
+            }
+        } else if (!Files.isSameFile(blob, filePath)) {
+            linked = link(blob, filePath);
+        }
+        key(href).filter(key -> !checksum.equals(keys.put(key, checksum))).ifPresent(key -> write(key, checksum));
+        return linked;
+    }
+
+    /**
+     * Delete the blobs which are not linked from the tree
+     * @return number of the deleted blobs
+     * @throws IOException in the case of error
+     */
+    public int prune() throws IOException {
+        int pruned = 0;
+        try (Stream<Path> blobs = Files.walk(path, 2)) {
+            for (Path blob : (Iterable<Path>) blobs.filter(Files::isRegularFile)
+                    .filter(blob -> !blob.getParent().equals(path))::iterator) {
+                // The link count is available on the POSIX file systems only
+                if (Integer.valueOf(1).equals(Files.getAttribute(blob, "unix:nlink")) && Files.deleteIfExists(blob)) {
+                    pruned++;
+                }
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException ignore) {
+            logger.debug("Unable to prune content store: '{}'. Link count is not supported", path);
+        }
+        return pruned;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Replace the file by the link to the stored content if the file times are the same
+     * @return true if the file has been replaced
+     */
+    private boolean link(@NonNull Path blob, @NonNull Path filePath) throws IOException {
+        if (!Files.getLastModifiedTime(blob).equals(Files.getLastModifiedTime(filePath))) {
+            return false;
+        }
+        replace(blob, filePath);
+        return true;
+    }
+
+    private static void replace(@NonNull Path blob, @NonNull Path filePath) throws IOException {
+        Path link = filePath.resolveSibling(filePath.getFileName() + LINK_SUFFIX);
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, blob);
+        } catch (UnsupportedOperationException | IOException ex) {
+            // The file system without the hard links (or the other one) gets the copy
+            logger.debug("Unable to link: '{}' to: '{}'. Cause: {}", filePath, blob, ex.getMessage());
+            Files.copy(blob, link, REPLACE_EXISTING, COPY_ATTRIBUTES);
+        }
+        Files.move(link, filePath, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private @NonNull Path blob(@NonNull String checksum) {
+        return path.resolve(checksum.substring(0, 2)).resolve(checksum);
+    }
+
+    /**
+     * Path to the stored content of the destination root
+     * @param root destination root
+     * @param checksum hex SHA-256 of the content
+     * @return path to the blob
+     */
+    static @NonNull Path blob(@NonNull Path root, @NonNull String checksum) {
+        return root.resolve(CrawlIndex.INDEX_FOLDER).resolve(STORE_FOLDER).resolve(checksum.substring(0, 2)).resolve(checksum);
+    }
+
+    private static @NonNull Optional<String> key(@NonNull HREF href) {
+        return Optional.ofNullable(href.getBytes())
+                .filter(bytes -> href.getDateTime() != null)
+                .map(bytes -> bytes + SEPARATOR + href.getDateTime() + SEPARATOR + href.getUri().getRawPath());
+    }
+
+    /**
+     * The link count is available on the POSIX file systems only: the file of the other one is not linked
+     */
+    private static boolean isLinked(@NonNull Path filePath) throws IOException {
+        try {
+            Object links = Files.getAttribute(filePath, "unix:nlink");
+            return links instanceof Integer && (Integer) links > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException ignore) {
+            return false;
+        }
+    }
+
+    private void write(@NonNull String key, @NonNull String checksum) {
+        synchronized (writer) {
+            try {
+                writer.write(checksum + SEPARATOR + key + System.lineSeparator());
+                writer.flush();
+            } catch (IOException ioex) {
+                logger.warn("Unable to write content store keys: '{}'. Cause: {}", path, ioex.getMessage());
+            }
+        }
+    }
+
+}
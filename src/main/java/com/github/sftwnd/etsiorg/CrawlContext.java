@@ -0,0 +1,168 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Shared services of the crawl passed from the processor factory to its processors.
+ * All of them are optional: the processor goes without the service which is not defined.
+ */
+@Getter
+public class CrawlContext {
+
+    /**
+     * Context without the services
+     */
+    public static final CrawlContext EMPTY = builder().build();
+
+    private final Executor executor;
+    private final CrawlScheduler scheduler;
+    private final CrawlIndex index;
+    private final SegmentedDownload segmentedDownload;
+    private final Consumer<Collection<Path>> onExpires;
+    private final CrawlSink sink;
+    private final ContentStore store;
+    private final CrawlFilter filter;
+
+    private CrawlContext(@NonNull Builder builder) {
+        this.executor = builder.executor;
+        this.scheduler = builder.scheduler;
+        this.index = builder.index;
+        this.segmentedDownload = builder.segmentedDownload;
+        this.onExpires = builder.onExpires;
+        this.sink = builder.sink;
+        this.store = builder.store;
+        this.filter = builder.filter;
+    }
+
+    /**
+     * Builder of the context
+     * @return context builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of the context with the services of this one
+     * @return context builder
+     */
+    public Builder toBuilder() {
+        return builder()
+                .executor(executor)
+                .scheduler(scheduler)
+                .index(index)
+                .segmentedDownload(segmentedDownload)
+                .onExpires(onExpires)
+                .sink(sink)
+                .store(store)
+                .filter(filter);
+    }
+
+    public static class Builder {
+
+        private Executor executor;
+        private CrawlScheduler scheduler;
+        private CrawlIndex index;
+        private SegmentedDownload segmentedDownload;
+        private Consumer<Collection<Path>> onExpires;
+        private CrawlSink sink;
+        private ContentStore store;
+        private CrawlFilter filter;
+
+        private Builder() {
+        }
+
+        public CrawlContext build() {
+            return new CrawlContext(this);
+        }
+
+        /**
+         * Executor for the async execution
+         * @param executor executor (the caller thread if null)
+         * @return this builder
+         */
+        public Builder executor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Scheduler of the child resources
+         * @param scheduler scheduler (unbounded async execution if null)
+         * @return this builder
+         */
+        public Builder scheduler(@Nullable CrawlScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Crawl state index
+         * @param index index (no incremental crawl if null)
+         * @return this builder
+         */
+        public Builder index(@Nullable CrawlIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Segmented download of the large files
+         * @param segmentedDownload segmented download (the single stream if null)
+         * @return this builder
+         */
+        public Builder segmentedDownload(@Nullable SegmentedDownload segmentedDownload) {
+            this.segmentedDownload = segmentedDownload;
+            return this;
+        }
+
+        /**
+         * Listener for the expired resources
+         * @param onExpires listener (the expired resources are kept if null)
+         * @return this builder
+         */
+        public Builder onExpires(@Nullable Consumer<Collection<Path>> onExpires) {
+            this.onExpires = onExpires;
+            return this;
+        }
+
+        /**
+         * Receiver of the saved files: the processors return empty streams if defined
+         * @param sink receiver (the results are collected if null)
+         * @return this builder
+         */
+        public Builder sink(@Nullable CrawlSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Content store of the identical files
+         * @param store content store (no deduplication if null)
+         * @return this builder
+         */
+        public Builder store(@Nullable ContentStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Filter of the crawled resources
+         * @param filter filter (the default one of the processor if null)
+         * @return this builder
+         */
+        public Builder filter(@Nullable CrawlFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+    }
+
+}
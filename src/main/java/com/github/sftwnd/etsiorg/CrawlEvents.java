@@ -0,0 +1,86 @@
+package com.github.sftwnd.etsiorg;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR events of the crawl hot paths. The events cost nothing until the flight recording is started,
+ * e.g. by {@code -XX:StartFlightRecording:filename=crawl.jfr}
+ */
+final class CrawlEvents {
+
+    private static final String CATEGORY = "ETSI.ORG";
+
+    private CrawlEvents() {
+    }
+
+    /**
+     * Request of the resource by Page::connect
+     */
+    @Name("com.github.sftwnd.etsiorg.Connect")
+    @Label("Connect")
+    @Category({CATEGORY, "HTTP"})
+    @Description("Request of the resource until the response headers")
+    static class Connect extends Event {
+
+        @Label("URI")
+        String uri;
+
+        @Label("Offset")
+        @DataAmount
+        long offset;
+
+        @Label("Status")
+        int status;
+
+    }
+
+    /**
+     * Load and parse of the folder listing by TextHtmlProcessor::parseFile
+     */
+    @Name("com.github.sftwnd.etsiorg.Listing")
+    @Label("Listing")
+    @Category({CATEGORY, "Crawl"})
+    @Description("Load and parse of the folder listing")
+    static class Listing extends Event {
+
+        @Label("URI")
+        String uri;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Not Modified")
+        boolean notModified;
+
+    }
+
+    /**
+     * Check and download of the file by FileSaveProcessor::saveFile
+     */
+    @Name("com.github.sftwnd.etsiorg.Save")
+    @Label("Save")
+    @Category({CATEGORY, "Crawl"})
+    @Description("Check and download of the file")
+    static class Save extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Loaded")
+        @DataAmount
+        long bytes;
+
+        @Label("Resumed")
+        boolean resumed;
+
+        @Label("Saved")
+        boolean saved;
+
+    }
+
+}
@@ -0,0 +1,392 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled include/exclude filter of the crawl, checked on the listing rows before the child page is created,
+ * so the excluded folders are never listed.
+ * <ul>
+ *     <li>Path globs ({@code *}, {@code ?}, {@code {a,b}} within the segment, {@code **} for any segments):
+ *     the glob with the slash is matched by the whole path (or by its folder, so the glob of the folder is the folder
+ *     with its subtree), the one without it by the name.
+ *     The folder is listed if it is not excluded and the include globs can match any path below it.</li>
+ *     <li>Path regular expressions are matched by the whole path: the include ones of the files only.</li>
+ *     <li>Version bounds of the versioned folders and files by the packed {@link HREF#getVersion()}: the actual
+ *     version is chosen of the versions in the bounds.</li>
+ *     <li>Size and creation time bounds of the files.</li>
+ * </ul>
+ */
+public class CrawlFilter implements Predicate<HREF> {
+
+    /**
+     * Filter of all the resources
+     */
+    public static final CrawlFilter ALL = builder().build();
+
+    /**
+     * Filter of the crawl without the log and the temporary files
+     */
+    public static final CrawlFilter DEFAULT = defaults().build();
+
+    private static final String RANGE_SEPARATOR = "..";
+    private static final char LIST_SEPARATOR = ',';
+    private static final String GLOB_SYNTAX = "glob:";
+    private static final String REGEX_SYNTAX = "regex:";
+
+    private final List<Glob> includes;
+    private final List<Glob> excludes;
+    private final List<Pattern> includePatterns;
+    private final List<Pattern> excludePatterns;
+    private final long minVersion;
+    private final long maxVersion;
+    private final long minBytes;
+    private final long maxBytes;
+    private final LocalDateTime after;
+    private final LocalDateTime before;
+
+    private CrawlFilter(@NonNull Builder builder) {
+        this.includes = List.copyOf(builder.includes);
+        this.excludes = List.copyOf(builder.excludes);
+        this.includePatterns = List.copyOf(builder.includePatterns);
+        this.excludePatterns = List.copyOf(builder.excludePatterns);
+        this.minVersion = builder.minVersion;
+        this.maxVersion = builder.maxVersion;
+        this.minBytes = builder.minBytes;
+        this.maxBytes = builder.maxBytes;
+        this.after = builder.after;
+        this.before = builder.before;
+    }
+
+    /**
+     * Check the resource has to be crawled
+     * @param href resource reference
+     * @return true if the file has to be loaded or the folder has to be listed
+     */
+    @Override
+    public boolean test(@NonNull HREF href) {
+        String path = href.getUri().getPath();
+        String[] segments = segments(path);
+        if (href.isVersioned() && (href.getVersion() < minVersion || href.getVersion() > maxVersion)) {
+            return false;
+        }
+        for (Glob exclude : excludes) {
+            if (exclude.matches(segments)) {
+                return false;
+            }
+        }
+        for (Pattern exclude : excludePatterns) {
+            if (exclude.matcher(path).matches()) {
+                return false;
+            }
+        }
+        if (!href.isRegularFile()) {
+            return includes.isEmpty() || includes.stream().anyMatch(include -> include.contains(segments));
+        }
+        return (includes.isEmpty() || includes.stream().anyMatch(include -> include.matches(segments)))
+                && (includePatterns.isEmpty() || includePatterns.stream().anyMatch(include -> include.matcher(path).matches()))
+                && (href.getBytes() == null || href.getBytes() >= minBytes && href.getBytes() <= maxBytes)
+                && (href.getDateTime() == null || (after == null || !href.getDateTime().isBefore(after))
+                        && (before == null || href.getDateTime().isBefore(before)));
+    }
+
+    /**
+     * Packed version of the version prefix, e.g. {@code 15}, {@code 15.1} or {@code 17.00.00_60}
+     * @param version version prefix
+     * @param upper true to fill the missing elements by the maximal values for the upper bound
+     * @return packed version like {@link HREF#getVersion()}
+     */
+    public static long version(@NonNull String version, boolean upper) {
+        String[] elements = Objects.requireNonNull(version, "CrawlFilter::version - version is null").trim().split("[._]");
+        if (elements.length > HREF.VERSION_ELEMENTS) {
+            throw new IllegalArgumentException("CrawlFilter::version - illegal version: " + version);
+        }
+        long result = 0L;
+        for (int i = 0; i < HREF.VERSION_ELEMENTS; i++) {
+            long element = i < elements.length ? Long.parseLong(elements[i]) : upper ? HREF.MAX_VERSION_ELEMENT : 0L;
+            if (element < 0 || element > HREF.MAX_VERSION_ELEMENT) {
+                throw new IllegalArgumentException("CrawlFilter::version - illegal version: " + version);
+            }
+            result |= element << (HREF.VERSION_BITS * (HREF.VERSION_ELEMENTS - 1 - i));
+        }
+        return result;
+    }
+
+    /**
+     * Patterns of the comma separated list: the commas of the {@code {a,b}} alternatives are not the separators
+     * @param patterns comma separated patterns
+     * @return trimmed non blank patterns
+     */
+    public static @NonNull List<String> patterns(@NonNull String patterns) {
+        Objects.requireNonNull(patterns, "CrawlFilter::patterns - patterns is null");
+        List<String> result = new ArrayList<>();
+        int depth = 0;
+        int from = 0;
+        for (int i = 0; i <= patterns.length(); i++) {
+            char ch = i < patterns.length() ? patterns.charAt(i) : LIST_SEPARATOR;
+            if (ch == '{') {
+                depth++;
+            } else if (ch == '}' && depth > 0) {
+                depth--;
+            } else if (ch == LIST_SEPARATOR && (depth == 0 || i == patterns.length())) {
+                String pattern = patterns.substring(from, i).trim();
+                if (!pattern.isEmpty()) {
+                    result.add(pattern);
+                }
+                from = i + 1;
+            }
+        }
+        return result;
+    }
+
+    private static @NonNull String[] segments(@NonNull String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        trimmed = trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+
+    /**
+     * Builder of the filter
+     * @return filter builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of the filter without the log and the temporary files
+     * @return filter builder
+     */
+    public static Builder defaults() {
+        return builder().exclude("*.log").exclude("*.tmp").exclude("*.temp");
+    }
+
+    public static class Builder {
+
+        private final List<Glob> includes = new ArrayList<>();
+        private final List<Glob> excludes = new ArrayList<>();
+        private final List<Pattern> includePatterns = new ArrayList<>();
+        private final List<Pattern> excludePatterns = new ArrayList<>();
+        private long minVersion = 0L;
+        private long maxVersion = Long.MAX_VALUE;
+        private long minBytes = 0L;
+        private long maxBytes = Long.MAX_VALUE;
+        private LocalDateTime after;
+        private LocalDateTime before;
+
+        private Builder() {
+        }
+
+        public CrawlFilter build() {
+            return new CrawlFilter(this);
+        }
+
+        /**
+         * Include the paths of the glob or of the regular expression with the {@code regex:} prefix
+         * like {@link java.nio.file.FileSystem#getPathMatcher(String)}
+         * @param pattern glob or regular expression of the path
+         * @return this builder
+         */
+        public Builder include(@NonNull String pattern) {
+            return pattern.startsWith(REGEX_SYNTAX) ? includeRegex(pattern.substring(REGEX_SYNTAX.length()))
+                    : add(this.includes, pattern);
+        }
+
+        /**
+         * Exclude the paths of the glob or of the regular expression with the {@code regex:} prefix
+         * @param pattern glob or regular expression of the path
+         * @return this builder
+         */
+        public Builder exclude(@NonNull String pattern) {
+            return pattern.startsWith(REGEX_SYNTAX) ? excludeRegex(pattern.substring(REGEX_SYNTAX.length()))
+                    : add(this.excludes, pattern);
+        }
+
+        /**
+         * Include the paths of the comma separated patterns
+         * @param patterns comma separated globs or regular expressions
+         * @return this builder
+         */
+        public Builder includes(@NonNull String patterns) {
+            patterns(patterns).forEach(this::include);
+            return this;
+        }
+
+        /**
+         * Exclude the paths of the comma separated patterns
+         * @param patterns comma separated globs or regular expressions
+         * @return this builder
+         */
+        public Builder excludes(@NonNull String patterns) {
+            patterns(patterns).forEach(this::exclude);
+            return this;
+        }
+
+        private Builder add(@NonNull List<Glob> globs, @NonNull String pattern) {
+            globs.add(new Glob(pattern.startsWith(GLOB_SYNTAX) ? pattern.substring(GLOB_SYNTAX.length()) : pattern));
+            return this;
+        }
+
+        public Builder includeRegex(@NonNull String regex) {
+            this.includePatterns.add(Pattern.compile(regex));
+            return this;
+        }
+
+        public Builder excludeRegex(@NonNull String regex) {
+            this.excludePatterns.add(Pattern.compile(regex));
+            return this;
+        }
+
+        public Builder versions(long minVersion, long maxVersion) {
+            this.minVersion = minVersion;
+            this.maxVersion = maxVersion;
+            return this;
+        }
+
+        public Builder bytes(long minBytes, long maxBytes) {
+            this.minBytes = minBytes;
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder dateTimes(@Nullable LocalDateTime after, @Nullable LocalDateTime before) {
+            this.after = after;
+            this.before = before;
+            return this;
+        }
+
+        /**
+         * Version bounds of the range {@code [min]..[max]} of the version prefixes, e.g. {@code 15..} or {@code 15..16.1}
+         * @param range range of the versions
+         * @return this builder
+         */
+        public Builder versions(@NonNull String range) {
+            String[] bounds = bounds(range);
+            return versions(bounds[0].isEmpty() ? 0L : version(bounds[0], false),
+                    bounds[1].isEmpty() ? Long.MAX_VALUE : version(bounds[1], true));
+        }
+
+        /**
+         * Size bounds of the range {@code [min]..[max]} of the bytes
+         * @param range range of the sizes
+         * @return this builder
+         */
+        public Builder bytes(@NonNull String range) {
+            String[] bounds = bounds(range);
+            return bytes(bounds[0].isEmpty() ? 0L : Long.parseLong(bounds[0]),
+                    bounds[1].isEmpty() ? Long.MAX_VALUE : Long.parseLong(bounds[1]));
+        }
+
+        /**
+         * Creation time bounds of the range {@code [from]..[to]} of the dates, both days included
+         * @param range range of the ISO dates
+         * @return this builder
+         */
+        public Builder dates(@NonNull String range) {
+            String[] bounds = bounds(range);
+            return dateTimes(bounds[0].isEmpty() ? null : LocalDate.parse(bounds[0]).atStartOfDay(),
+                    bounds[1].isEmpty() ? null : LocalDate.parse(bounds[1]).plusDays(1).atStartOfDay());
+        }
+
+        private static @NonNull String[] bounds(@NonNull String range) {
+            int separator = Objects.requireNonNull(range, "CrawlFilter.Builder::bounds - range is null").indexOf(RANGE_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("CrawlFilter.Builder::bounds - no '..' in the range: " + range);
+            }
+            return new String[] { range.substring(0, separator).trim(), range.substring(separator + RANGE_SEPARATOR.length()).trim() };
+        }
+    }
+
+    /**
+     * Path glob compiled to the patterns of the segments, null for {@code **}
+     */
+    private static class Glob {
+
+        private final List<Pattern> segments;
+        private final boolean name;
+
+        private Glob(@NonNull String glob) {
+            Objects.requireNonNull(glob, "CrawlFilter.Glob::new - glob is null");
+            if (glob.isBlank()) {
+                throw new IllegalArgumentException("CrawlFilter.Glob::new - glob is blank");
+            }
+            this.name = glob.indexOf('/') < 0;
+            List<Pattern> patterns = new ArrayList<>();
+            for (String segment : CrawlFilter.segments(glob.trim())) {
+                patterns.add("**".equals(segment) ? null : segment(segment));
+            }
+            this.segments = Collections.unmodifiableList(patterns);
+        }
+
+        /**
+         * The path is matched by the glob
+         */
+        private boolean matches(@NonNull String[] path) {
+            if (name) {
+                return path.length > 0 && match(path, path.length - 1, 0, false);
+            }
+            return match(path, 0, 0, false);
+        }
+
+        /**
+         * The folder or the path below it can be matched by the glob
+         */
+        private boolean contains(@NonNull String[] folder) {
+            return name || match(folder, 0, 0, true);
+        }
+
+        private boolean match(@NonNull String[] path, int p, int g, boolean prefix) {
+            if (p == path.length) {
+                // The rest of the glob can match the path below the folder of the prefix
+                return prefix || segments.subList(g, segments.size()).stream().allMatch(Objects::isNull);
+            }
+            if (g == segments.size()) {
+                // The folder of the path is matched by the whole glob
+                return true;
+            }
+            Pattern pattern = segments.get(g);
+            if (pattern == null) {
+                return match(path, p, g + 1, prefix) || match(path, p + 1, g, prefix);
+            }
+            return pattern.matcher(path[p]).matches() && match(path, p + 1, g + 1, prefix);
+        }
+
+        private static @NonNull Pattern segment(@NonNull String glob) {
+            StringBuilder regex = new StringBuilder();
+            boolean alternatives = false;
+            for (int i = 0; i < glob.length(); i++) {
+                char ch = glob.charAt(i);
+                if (ch == '*') {
+                    regex.append("[^/]*");
+                } else if (ch == '?') {
+                    regex.append("[^/]");
+                } else if (ch == '{' && !alternatives) {
+                    alternatives = true;
+                    regex.append("(?:");
+                } else if (ch == '}' && alternatives) {
+                    alternatives = false;
+                    regex.append(')');
+                } else if (ch == ',' && alternatives) {
+                    regex.append('|');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(ch)));
+                }
+            }
+            if (alternatives) {
+                throw new IllegalArgumentException("CrawlFilter.Glob::new - unclosed alternatives: " + glob);
+            }
+            return Pattern.compile(regex.toString());
+        }
+
+    }
+
+}
@@ -0,0 +1,420 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Persistent crawl state: the append-only log of (uri, size, dateTime, version, status, ETag, Last-Modified)
+ * under the destination root.
+ *
+ * The log is read to the memory on open (the last record of the uri wins) and compacted when it is mostly obsolete.
+ * The records are kept in the compact form attached to the nodes of the path trie, so the common prefixes of the uris
+ * are stored once, there is no map of the records and the children of the folder are the children of its node.
+ * A folder is synced when all its resources were synced in the same run, so the listing of the folder with
+ * the unchanged creation time is not loaded on the next run: its rows are replayed from the records of the children.
+ * The creation time of the folder is not changed by the changes of its subfolders, so the subfolders of such
+ * a listing are requested anyway.
+ */
+@Slf4j
+public class CrawlIndex implements Closeable {
+
+    public static final String INDEX_FOLDER = ".etsiorg";
+    public static final String INDEX_FILE = "index.log";
+
+    private static final String SEPARATOR = "\t";
+    private static final String UNDEFINED = "-";
+
+    /**
+     * Status of the resource in the last run: the listed resource has been in the listing of the folder,
+     * but it has not been processed (excluded by the filter or not the actual version)
+     */
+    public enum Status {
+        SYNCED, FAILED, LISTED, REMOVED
+    }
+
+    /**
+     * Index record of the resource
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Entry {
+        @Getter(AccessLevel.NONE)
+        private final CompactHREF href;
+        private final Status status;
+        private final String etag;
+        private final String lastModified;
+
+        public @Nullable Long getBytes() {
+            return href.getBytes();
+        }
+
+        public @Nullable LocalDateTime getDateTime() {
+            return href.getDateTime();
+        }
+
+        public long getVersion() {
+            return href.getVersion();
+        }
+    }
+
+    @Getter
+    private final Path path;
+
+    /**
+     * Skip the unchanged synced folders
+     */
+    @Getter
+    private final boolean incremental;
+
+    private final PathTrie trie;
+    private final NavigableSet<String> failures = new ConcurrentSkipListSet<>();
+
+    /**
+     * Subfolders of the replayed listings of the unchanged folders: they are requested in this run
+     */
+    private final Set<String> outdated = ConcurrentHashMap.newKeySet();
+    private final Writer writer;
+
+    private CrawlIndex(@NonNull Path path, boolean incremental, @NonNull PathTrie trie) throws IOException {
+        this.path = path;
+        this.incremental = incremental;
+        this.trie = trie;
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, WRITE, CREATE, APPEND);
+    }
+
+    /**
+     * Open the index of the destination root
+     * @param root destination root
+     * @param incremental true to skip the unchanged synced folders
+     * @return crawl index
+     * @throws IOException in the case of error
+     */
+    public static @NonNull CrawlIndex open(@NonNull Path root, boolean incremental) throws IOException {
+        Path path = Files.createDirectories(Objects.requireNonNull(root, "CrawlIndex::open - root is null").resolve(INDEX_FOLDER)).resolve(INDEX_FILE);
+        PathTrie trie = new PathTrie();
+        long records = 0;
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    records++;
+                    read(line, trie);
+                }
+            }
+            Collection<Entry> entries = new LinkedList<>();
+            subtree(trie.getRoot(), entries);
+            if (records > 2L * entries.size()) {
+                compact(path, entries);
+            }
+            logger.debug("Crawl index: '{}' has been opened with {} entries", path, entries.size());
+        }
+        return new CrawlIndex(path, incremental, trie);
+    }
+
+    /**
+     * Index record of the resource
+     * @param uri resource uri
+     * @return record of the last run
+     */
+    public @NonNull Optional<Entry> get(@NonNull URI uri) {
+        return Optional.ofNullable(trie.find(uri)).map(CrawlIndex::entry);
+    }
+
+    /**
+     * Check that the folder was synced with the same creation time
+     * @param href folder reference
+     * @return true if the folder listing can be replayed instead of the load
+     */
+    public boolean isUnchanged(@NonNull HREF href) {
+        return incremental && !href.isRegularFile() && href.getDateTime() != null
+                && !outdated.contains(href.getUri().toString())
+                && get(href.getUri())
+                        .filter(entry -> entry.getStatus() == Status.SYNCED)
+                        .map(Entry::getDateTime)
+                        .filter(href.getDateTime()::equals)
+                        .isPresent();
+    }
+
+    /**
+     * Rows of the folder listing replayed from the records of its children: the subfolders of the listing replayed
+     * by the unchanged folder time are requested anyway, the rows of the not modified listing are the actual ones
+     * @param folder folder reference
+     * @param current true if the listing has not been modified (the subfolders can be replayed as well)
+     * @return references of the children of the last run
+     */
+    public @NonNull Collection<HREF> replay(@NonNull HREF folder, boolean current) {
+        Collection<HREF> rows = new LinkedList<>();
+        for (PathTrie.Node node : children(folder)) {
+            Optional.ofNullable(entry(node)).map(entry -> entry.href.href()).ifPresent(href -> {
+                if (!current && !href.isRegularFile()) {
+                    outdated.add(href.getUri().toString());
+                }
+                rows.add(href);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Record the rows of the loaded listing: the records of the children which are not in the listing any more
+     * are removed with their subtrees, the rows which are not processed are recorded as listed, so they are replayed
+     * (and filtered again) by the next run
+     * @param folder folder reference
+     * @param rows all the references of the listing
+     * @param processed check of the references passed to the processing (they are recorded by the processing)
+     */
+    public void listed(@NonNull HREF folder, @NonNull Collection<HREF> rows, @NonNull Predicate<HREF> processed) {
+        Set<String> listed = rows.stream().map(HREF::getUri).map(URI::toString).collect(Collectors.toSet());
+        Collection<Entry> removed = new LinkedList<>();
+        for (PathTrie.Node node : children(folder)) {
+            Entry entry = entry(node);
+            if (entry == null || !listed.contains(entry.href.getUri().toString())) {
+                subtree(node, removed);
+            }
+        }
+        removed.forEach(entry -> write(new Entry(entry.href, Status.REMOVED, null, null), false));
+        // The record of the same row is kept: the excluded folder is not loaded, so its subtree records are still actual
+        Collection<HREF> skipped = rows.stream()
+                .filter(Predicate.not(processed))
+                .filter(href -> get(href.getUri())
+                        .filter(entry -> Objects.equals(entry.getDateTime(), href.getDateTime()))
+                        .filter(entry -> Objects.equals(entry.getBytes(), href.getBytes()))
+                        .isEmpty())
+                .collect(Collectors.toList());
+        skipped.forEach(href -> write(new Entry(CompactHREF.of(href, trie), Status.LISTED, null, null), false));
+        if (!removed.isEmpty() || !skipped.isEmpty()) {
+            logger.debug("Records of: '{}' have been removed: {}, listed: {}", folder.getUri(), removed.size(), skipped.size());
+            flush();
+        }
+    }
+
+    /**
+     * Nodes of the direct children of the folder
+     */
+    private @NonNull Collection<PathTrie.Node> children(@NonNull HREF folder) {
+        return Optional.ofNullable(trie.find(folder.getUri())).map(PathTrie.Node::getChildren).orElse(Collections.emptyList());
+    }
+
+    /**
+     * Record attached to the node
+     */
+    private static @Nullable Entry entry(@NonNull PathTrie.Node node) {
+        return (Entry) node.getValue();
+    }
+
+    /**
+     * Collect the records of the node and of its subtree
+     */
+    private static void subtree(@NonNull PathTrie.Node node, @NonNull Collection<Entry> records) {
+        Optional.ofNullable(entry(node)).ifPresent(records::add);
+        node.getChildren().forEach(child -> subtree(child, records));
+    }
+
+    /**
+     * Set the validators of the synced resource to the page request
+     * @param page resource page
+     * @return page with the conditional request validators if the resource was synced
+     */
+    public @NonNull Page conditional(@NonNull Page page) {
+        get(page.getUri())
+                // Not modified folder is skipped as unchanged, so it is allowed for the incremental crawl only
+                .filter(entry -> incremental || page.getHref().isRegularFile())
+                .filter(entry -> entry.getStatus() == Status.SYNCED)
+                .filter(entry -> entry.getEtag() != null || entry.getLastModified() != null)
+                .ifPresent(entry -> page.conditional(entry.getEtag(), entry.getLastModified()));
+        return page;
+    }
+
+    /**
+     * Record the synced resource
+     * @param href resource reference
+     */
+    public void synced(@NonNull HREF href) {
+        update(href, Status.SYNCED, null, null);
+    }
+
+    /**
+     * Record the synced resource with the validators of the page response
+     * @param page resource page
+     */
+    public void synced(@NonNull Page page) {
+        update(page.getHref(), Status.SYNCED, page.etag().orElse(null), page.lastModified().orElse(null));
+    }
+
+    /**
+     * Record the failed resource
+     * @param href resource reference
+     */
+    public void failed(@NonNull HREF href) {
+        failures.add(href.getUri().toString());
+        update(href, Status.FAILED, null, null);
+    }
+
+    /**
+     * Record the folder with the processed subtree: synced if no resource of the subtree has been failed in this run
+     * @param page folder page
+     * @param success true if the subtree has been processed without error
+     */
+    public void completed(@NonNull Page page, boolean success) {
+        String uri = page.getUri().toString();
+        if (success && Optional.ofNullable(failures.ceiling(uri)).filter(failure -> failure.startsWith(uri)).isEmpty()) {
+            synced(page);
+        } else {
+            failed(page.getHref());
+        }
+    }
+
+    /**
+     * Record the resources of the paths and their folders as failed, so the incremental crawl visits them again
+     * @param paths paths of the resources relative to the destination root
+     * @return number of the invalidated records
+     */
+    public int invalidate(@NonNull Collection<Path> paths) {
+        Set<String> invalid = paths.stream()
+                .map(path -> "/" + path.toString().replace('\\', '/'))
+                .collect(Collectors.toSet());
+        Collection<Entry> entries = new LinkedList<>();
+        subtree(trie.getRoot(), entries);
+        int invalidated = 0;
+        for (Entry entry : entries) {
+            String uriPath = entry.getStatus() == Status.SYNCED ? Optional.ofNullable(entry.href.getUri().getPath()).orElse("") : "";
+            if (!uriPath.isEmpty()
+                    && invalid.stream().anyMatch(path -> path.equals(uriPath) || uriPath.endsWith("/") && path.startsWith(uriPath))) {
+                write(new Entry(entry.href, Status.FAILED, null, null), true);
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    private void update(@NonNull HREF href, @NonNull Status status, @Nullable String etag, @Nullable String lastModified) {
+        CompactHREF compact = CompactHREF.of(href, trie);
+        // The validators of the unchanged resource are kept while it is not loaded again
+        Optional<Entry> previous = Optional.ofNullable(entry(compact.getNode()))
+                .filter(entry -> status == Status.SYNCED && etag == null && lastModified == null)
+                .filter(entry -> Objects.equals(entry.getDateTime(), href.getDateTime()));
+        Entry entry = new Entry(compact, status,
+                previous.map(Entry::getEtag).orElse(etag),
+                previous.map(Entry::getLastModified).orElse(lastModified));
+        write(entry, !href.isRegularFile());
+    }
+
+    private void write(@NonNull Entry entry, boolean flush) {
+        entry.href.getNode().setValue(entry.getStatus() == Status.REMOVED ? null : entry);
+        synchronized (writer) {
+            try {
+                writer.write(line(entry));
+                if (flush) {
+                    writer.flush();
+                }
+            } catch (IOException ioex) {
+                logger.warn("Unable to write crawl index: '{}'. Cause: {}", path, ioex.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        synchronized (writer) {
+            try {
+                writer.flush();
+            } catch (IOException ioex) {
+                logger.warn("Unable to write crawl index: '{}'. Cause: {}", path, ioex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    private static @NonNull String line(@NonNull Entry entry) {
+        return entry.getStatus().name() + SEPARATOR +
+                Optional.ofNullable(entry.getBytes()).map(String::valueOf).orElse(UNDEFINED) + SEPARATOR +
+                Optional.ofNullable(entry.getDateTime()).map(LocalDateTime::toString).orElse(UNDEFINED) + SEPARATOR +
+                entry.getVersion() + SEPARATOR +
+                Optional.ofNullable(entry.getEtag()).orElse(UNDEFINED) + SEPARATOR +
+                Optional.ofNullable(entry.getLastModified()).orElse(UNDEFINED) + SEPARATOR +
+                entry.href.getUri() + System.lineSeparator();
+    }
+
+    private static void read(@NonNull String line, @NonNull PathTrie trie) {
+        String[] fields = line.split(SEPARATOR, 7);
+        try {
+            // The records without validators have 5 fields
+            if (fields.length == 7 || fields.length == 5) {
+                boolean validators = fields.length == 7;
+                String uri = fields[fields.length - 1];
+                if (Status.valueOf(fields[0]) == Status.REMOVED) {
+                    Optional.ofNullable(trie.find(URI.create(uri))).ifPresent(node -> node.setValue(null));
+                    return;
+                }
+                // The kind of the resource is not recorded: the folders are the uris with the trailing slash
+                HREF.Builder href = HREF.builder()
+                        .uri(URI.create(uri))
+                        .version(Long.parseLong(fields[3]))
+                        .bytes(value(fields[1]) == null ? null : Long.parseLong(fields[1]))
+                        .regularFile(!uri.endsWith("/"));
+                Optional.ofNullable(value(fields[2])).map(LocalDateTime::parse).ifPresent(href::dateTime);
+                CompactHREF compact = CompactHREF.of(href.build(), trie);
+                compact.getNode().setValue(new Entry(compact,
+                        Status.valueOf(fields[0]),
+                        validators ? value(fields[4]) : null,
+                        validators ? value(fields[5]) : null));
+                return;
+            }
+        } catch (RuntimeException ignore) {
+        }
+        // The last record can be broken by the crash
+        logger.warn("Crawl index record is skipped: '{}'", line);
+    }
+
+    private static @Nullable String value(@NonNull String field) {
+        return UNDEFINED.equals(field) ? null : field;
+    }
+
+    private static void compact(@NonNull Path path, @NonNull Collection<Entry> entries) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(line(entry));
+            }
+        }
+        Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        logger.debug("Crawl index: '{}' has been compacted to {} entries", path, entries.size());
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawl metrics on the Micrometer registry: listings, downloads, deduplicated bytes, HTTP responses, retries, opened circuits, resumes, expired paths and reclaimed bytes
+ * with the gauges of the scheduler queue and the connections in flight
+ */
+@Getter
+public class CrawlMetrics {
+
+    /**
+     * Metrics which are not recorded
+     */
+    public static final CrawlMetrics NONE = new CrawlMetrics(new CompositeMeterRegistry());
+
+    private static final String PREFIX = "etsiorg.";
+
+    private final MeterRegistry registry;
+    private final Counter listings;
+    private final Counter notModifiedListings;
+    private final Timer listingTime;
+    private final DistributionSummary listingRows;
+    private final Counter downloads;
+    private final Counter downloadedBytes;
+    private final DistributionSummary downloadRate;
+    private final Counter resumes;
+    private final Counter deduplicatedBytes;
+    private final Counter retries;
+    private final Counter circuitOpenings;
+    private final Counter expired;
+    private final Counter reclaimedBytes;
+    private final Map<Integer, Counter> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the crawl metrics
+     * @param registry registry of the meters
+     */
+    public CrawlMetrics(@NonNull MeterRegistry registry) {
+        this.registry = Objects.requireNonNull(registry, "CrawlMetrics::new - registry is null");
+        this.listings = Counter.builder(PREFIX + "listings").description("Loaded folder listings").register(registry);
+        this.notModifiedListings = Counter.builder(PREFIX + "listings.not.modified").description("Folder listings not modified since the last sync").register(registry);
+        this.listingTime = Timer.builder(PREFIX + "listing.time").description("Load and parse time of the folder listing").register(registry);
+        this.listingRows = DistributionSummary.builder(PREFIX + "listing.rows").description("References of the folder listing").register(registry);
+        this.downloads = Counter.builder(PREFIX + "downloads").description("Saved files").register(registry);
+        this.downloadedBytes = Counter.builder(PREFIX + "downloaded").baseUnit("bytes").description("Loaded bytes of the files").register(registry);
+        this.downloadRate = DistributionSummary.builder(PREFIX + "download.rate").baseUnit("bytes/s").description("Download rate of the file").register(registry);
+        this.resumes = Counter.builder(PREFIX + "resumes").description("Resumed downloads").register(registry);
+        this.deduplicatedBytes = Counter.builder(PREFIX + "deduplicated").baseUnit("bytes").description("Bytes of the files linked to the stored content").register(registry);
+        this.retries = Counter.builder(PREFIX + "retries").description("Repeated requests of the resources").register(registry);
+        this.circuitOpenings = Counter.builder(PREFIX + "circuit.opened").description("Opened circuits of the hosts").register(registry);
+        this.expired = Counter.builder(PREFIX + "expired").description("Expired paths").register(registry);
+        this.reclaimedBytes = Counter.builder(PREFIX + "reclaimed").baseUnit("bytes").description("Deleted bytes of the expired paths").register(registry);
+    }
+
+    /**
+     * Register the gauges of the scheduler queue
+     * @param scheduler crawl scheduler
+     * @return this metrics
+     */
+    public @NonNull CrawlMetrics scheduler(@NonNull CrawlScheduler scheduler) {
+        Gauge.builder(PREFIX + "scheduler.queued", scheduler, CrawlScheduler::queued).description("Tasks waiting for the slot").register(registry);
+        Gauge.builder(PREFIX + "scheduler.active", scheduler, CrawlScheduler::active).description("Tasks in flight").register(registry);
+        return this;
+    }
+
+    /**
+     * Register the gauge of the connections in flight
+     * @param transport transport of the requests
+     * @return this metrics
+     */
+    public @NonNull CrawlMetrics transport(@NonNull HttpClientTransport transport) {
+        Gauge.builder(PREFIX + "http.in.flight", transport, HttpClientTransport::inFlight).description("HTTP requests in flight").register(registry);
+        return this;
+    }
+
+    /**
+     * Record the folder listing
+     * @param nanos load and parse time
+     * @param rows references of the listing
+     * @param notModified the listing has not been modified since the last sync
+     */
+    public void listing(long nanos, int rows, boolean notModified) {
+        (notModified ? notModifiedListings : listings).increment();
+        listingTime.record(nanos, TimeUnit.NANOSECONDS);
+        if (!notModified) {
+            listingRows.record(rows);
+        }
+    }
+
+    /**
+     * Record the saved file
+     * @param bytes loaded bytes
+     * @param nanos load time
+     */
+    public void download(long bytes, long nanos) {
+        downloads.increment();
+        downloadedBytes.increment(bytes);
+        if (nanos > 0 && bytes > 0) {
+            downloadRate.record(bytes * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * Record the HTTP response
+     * @param status response status code
+     */
+    public void response(int status) {
+        responses.computeIfAbsent(status, code -> Counter.builder(PREFIX + "http.responses")
+                        .tag("status", String.valueOf(code))
+                        .description("HTTP responses by the status")
+                        .register(registry))
+                .increment();
+    }
+
+    /**
+     * Record the resumed download
+     */
+    public void resumed() {
+        resumes.increment();
+    }
+
+    /**
+     * Record the file linked to the stored content
+     * @param bytes size of the file
+     */
+    public void deduplicated(long bytes) {
+        deduplicatedBytes.increment(bytes);
+    }
+
+    /**
+     * Record the repeated request
+     */
+    public void retried() {
+        retries.increment();
+    }
+
+    /**
+     * Record the opened circuit of the host
+     */
+    public void circuitOpened() {
+        circuitOpenings.increment();
+    }
+
+    /**
+     * Record the expired path
+     */
+    public void expired() {
+        expired.increment();
+    }
+
+    /**
+     * Record the deleted files of the expired path
+     * @param bytes size of the deleted files
+     */
+    public void reclaimed(long bytes) {
+        reclaimedBytes.increment(bytes);
+    }
+
+}
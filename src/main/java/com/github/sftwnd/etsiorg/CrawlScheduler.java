@@ -0,0 +1,372 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Crawl task scheduler with separate limits for the directory listings and the file downloads
+ *
+ * Pending tasks wait in the priority queues and are started only when a slot of their kind is free.
+ * The directory listings are the only producers of new tasks, so a new listing is not started while
+ * the number of pending tasks is over the queue limit. The limit is soft: a listing in flight schedules all
+ * its rows, so the pending tasks are bounded by the queue limit plus the rows of the active listings
+ * (a folder of the site has at most a few thousand rows), not by the queue limit alone.
+ * A queue is paused while its first task has to wait (e.g. the circuit of its host is open), so the pending
+ * tasks are not started only to wait or fail. The task failed by the deferred request releases its slot
+ * and is queued again after the delay of the request, so no thread waits for the backoff of the retry.
+ */
+@Slf4j
+@Getter
+public class CrawlScheduler {
+
+    public static final int DEFAULT_LISTINGS = 4;
+    public static final int DEFAULT_DOWNLOADS = 8;
+    public static final int DEFAULT_QUEUE = 1024;
+
+    /**
+     * The deepest folder first: the leaves of the tree are reached as soon as possible
+     */
+    public static final Comparator<HREF> DEPTH_FIRST = new DepthOrder(true);
+
+    /**
+     * The folders level by level from the root
+     */
+    public static final Comparator<HREF> BREADTH_FIRST = new DepthOrder(false);
+
+    /**
+     * The smallest file first
+     */
+    public static final Comparator<HREF> SMALLEST_FIRST = Comparator.comparingLong(href -> Optional.ofNullable(href.getBytes()).orElse(0L));
+
+    private final Executor executor;
+    private final int maxListings;
+    private final int maxDownloads;
+    private final int maxQueued;
+    private final ToLongFunction<HREF> pause;
+
+    @Getter(AccessLevel.NONE)
+    private final Queue<Task<?>> listings;
+    @Getter(AccessLevel.NONE)
+    private final Queue<Task<?>> downloads;
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Number of active listings (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private int activeListings;
+
+    /**
+     * Number of active downloads (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private int activeDownloads;
+
+    /**
+     * The dispatch after the pause has been scheduled (guarded by this)
+     */
+    @Getter(AccessLevel.NONE)
+    private boolean resumeScheduled;
+
+    /**
+     * Constructor of the scheduler with the default limits and priorities
+     * @param executor executor for the tasks (ForkJoinPool.commonPool() if null)
+     */
+    public CrawlScheduler(@Nullable Executor executor) {
+        this(executor, DEFAULT_LISTINGS, DEFAULT_DOWNLOADS, DEFAULT_QUEUE, DEPTH_FIRST, SMALLEST_FIRST);
+    }
+
+    /**
+     * Constructor of the scheduler
+     * @param executor executor for the tasks (ForkJoinPool.commonPool() if null)
+     * @param maxListings maximum number of the directory listings in flight
+     * @param maxDownloads maximum number of the file downloads in flight
+     * @param maxQueued number of the pending tasks over which new listings are not started (the listings in flight may exceed it)
+     * @param listingOrder priority of the directory listings
+     * @param downloadOrder priority of the file downloads
+     */
+    public CrawlScheduler(@Nullable Executor executor, int maxListings, int maxDownloads, int maxQueued,
+                          @NonNull Comparator<HREF> listingOrder, @NonNull Comparator<HREF> downloadOrder) {
+        this(executor, maxListings, maxDownloads, maxQueued, listingOrder, downloadOrder, null);
+    }
+
+    /**
+     * Constructor of the scheduler with the pause of the tasks
+     * @param executor executor for the tasks (ForkJoinPool.commonPool() if null)
+     * @param maxListings maximum number of the directory listings in flight
+     * @param maxDownloads maximum number of the file downloads in flight
+     * @param maxQueued number of the pending tasks over which new listings are not started (the listings in flight may exceed it)
+     * @param listingOrder priority of the directory listings
+     * @param downloadOrder priority of the file downloads
+     * @param pause nanoseconds to wait before the task of the resource can be started (no pause if null)
+     */
+    public CrawlScheduler(@Nullable Executor executor, int maxListings, int maxDownloads, int maxQueued,
+                          @NonNull Comparator<HREF> listingOrder, @NonNull Comparator<HREF> downloadOrder,
+                          @Nullable ToLongFunction<HREF> pause) {
+        if (maxListings <= 0 || maxDownloads <= 0 || maxQueued <= 0) {
+            throw new IllegalArgumentException("CrawlScheduler::new - limits have to be positive, listings: " + maxListings + ", downloads: " + maxDownloads + ", queue: " + maxQueued);
+        }
+        this.executor = Optional.ofNullable(executor).orElseGet(ForkJoinPool::commonPool);
+        this.maxListings = maxListings;
+        this.maxDownloads = maxDownloads;
+        this.maxQueued = maxQueued;
+        this.pause = pause;
+        this.listings = new PriorityQueue<>(Task.comparator(Objects.requireNonNull(listingOrder, "CrawlScheduler::new - listingOrder is null")));
+        this.downloads = new PriorityQueue<>(Task.comparator(Objects.requireNonNull(downloadOrder, "CrawlScheduler::new - downloadOrder is null")));
+    }
+
+    /**
+     * Schedule the task for the resource reference
+     * @param href resource reference (regular file is a download, otherwise a listing)
+     * @param task task to execute when the slot is free
+     * @return future of the task result
+     * @param <T> type of the task result
+     */
+    public @NonNull <T> CompletableFuture<T> schedule(@NonNull HREF href, @NonNull Supplier<T> task) {
+        Task<T> scheduled = new Task<>(
+                Objects.requireNonNull(href, "CrawlScheduler::schedule - href is null"),
+                Objects.requireNonNull(task, "CrawlScheduler::schedule - task is null"),
+                sequence.getAndIncrement());
+        synchronized (this) {
+            (scheduled.isDownload() ? downloads : listings).add(scheduled);
+        }
+        dispatch();
+        return scheduled.future;
+    }
+
+    /**
+     * Start the helper of the download in flight on a free download slot, so the helper streams of the segmented
+     * download are counted by the download limit. The helper does not wait in the queue: the download is continued
+     * by its own task if all the slots are busy.
+     * @param helper helper of the download
+     * @return true if the helper has been started
+     */
+    public boolean startHelper(@NonNull Runnable helper) {
+        Objects.requireNonNull(helper, "CrawlScheduler::startHelper - helper is null");
+        synchronized (this) {
+            if (activeDownloads >= maxDownloads) {
+                return false;
+            }
+            activeDownloads++;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    helper.run();
+                } finally {
+                    release(true);
+                }
+            });
+            return true;
+        } catch (RuntimeException rex) {
+            logger.debug("Unable to start the helper of the download. Cause: {}", rex.getMessage());
+            release(true);
+            return false;
+        }
+    }
+
+    /**
+     * Number of the pending tasks
+     * @return number of the tasks waiting for the slot
+     */
+    public synchronized int queued() {
+        return listings.size() + downloads.size();
+    }
+
+    /**
+     * Number of the active tasks
+     * @return number of the tasks in flight
+     */
+    public synchronized int active() {
+        return activeListings + activeDownloads;
+    }
+
+    /**
+     * Start the pending tasks while there are free slots
+     */
+    private void dispatch() {
+        Queue<Task<?>> ready = new LinkedList<>();
+        synchronized (this) {
+            while (activeDownloads < maxDownloads && !downloads.isEmpty() && !isPaused(downloads.peek())) {
+                ready.add(downloads.poll());
+                activeDownloads++;
+            }
+            while (activeListings < maxListings && !listings.isEmpty() && (queued() < maxQueued || active() == 0) && !isPaused(listings.peek())) {
+                ready.add(listings.poll());
+                activeListings++;
+            }
+        }
+        ready.forEach(this::start);
+    }
+
+    /**
+     * Check the task has to wait and schedule the dispatch after the pause (called under the lock)
+     */
+    private boolean isPaused(@NonNull Task<?> task) {
+        long wait = this.pause == null ? 0L : this.pause.applyAsLong(task.href);
+        if (wait > 0 && !resumeScheduled) {
+            resumeScheduled = true;
+            logger.debug("Tasks are paused for {} ms by: '{}'", TimeUnit.NANOSECONDS.toMillis(wait), task.href.path());
+            CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+                synchronized (this) {
+                    resumeScheduled = false;
+                }
+                dispatch();
+            });
+        }
+        return wait > 0;
+    }
+
+    private void start(@NonNull Task<?> task) {
+        try {
+            executor.execute(() -> run(task));
+        } catch (RuntimeException rex) {
+            logger.error("Unable to start task for: '{}'. Cause: {}", task.href.path(), rex.getMessage());
+            release(task);
+            task.future.completeExceptionally(rex);
+        }
+    }
+
+    private <T> void run(@NonNull Task<T> task) {
+        T result;
+        try {
+            result = task.supplier.get();
+        } catch (Throwable throwable) {
+            release(task);
+            Optional<RetryDeferredException> deferred = deferred(throwable);
+            if (deferred.isPresent()) {
+                defer(task, deferred.get().getDelay());
+            } else {
+                task.future.completeExceptionally(throwable);
+            }
+            return;
+        }
+        // The slot is released before the dependent stages of the future are started in this thread
+        release(task);
+        task.future.complete(result);
+    }
+
+    /**
+     * Queue the task again after the delay of its deferred request
+     */
+    private void defer(@NonNull Task<?> task, long delay) {
+        logger.debug("Task of: '{}' is deferred for {} ms", task.href.path(), TimeUnit.NANOSECONDS.toMillis(delay));
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (this) {
+                (task.isDownload() ? downloads : listings).add(task);
+            }
+            dispatch();
+        });
+    }
+
+    private static @NonNull Optional<RetryDeferredException> deferred(@Nullable Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetryDeferredException) {
+                return Optional.of((RetryDeferredException) cause);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void release(@NonNull Task<?> task) {
+        release(task.isDownload());
+    }
+
+    private void release(boolean download) {
+        synchronized (this) {
+            if (download) {
+                activeDownloads--;
+            } else {
+                activeListings--;
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Number of the path segments of the resource counted by the slashes of the uri without the path allocation
+     * @param href resource reference
+     * @return depth of the resource from the root of the site
+     */
+    static int depth(@NonNull HREF href) {
+        String path = href.getUri().getRawPath();
+        int depth = 0;
+        for (int i = 0; path != null && i < path.length() - 1; i++) {
+            if (path.charAt(i) == '/' && path.charAt(i + 1) != '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Order by the depth of the resource: the queue compares the depth computed once for the task
+     */
+    private static final class DepthOrder implements Comparator<HREF> {
+
+        private final boolean deepest;
+
+        private DepthOrder(boolean deepest) {
+            this.deepest = deepest;
+        }
+
+        @Override
+        public int compare(@NonNull HREF first, @NonNull HREF second) {
+            return compare(depth(first), depth(second));
+        }
+
+        private int compare(int first, int second) {
+            return deepest ? Integer.compare(second, first) : Integer.compare(first, second);
+        }
+
+    }
+
+    private static class Task<T> {
+
+        private final HREF href;
+        private final Supplier<T> supplier;
+        private final long sequence;
+        private final boolean download;
+        private final int depth;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(@NonNull HREF href, @NonNull Supplier<T> supplier, long sequence) {
+            this.href = href;
+            this.supplier = supplier;
+            this.sequence = sequence;
+            this.download = href.isRegularFile();
+            this.depth = depth(href);
+        }
+
+        private boolean isDownload() {
+            return download;
+        }
+
+        private static Comparator<Task<?>> comparator(@NonNull Comparator<HREF> order) {
+            Comparator<Task<?>> comparator = order instanceof DepthOrder
+                    ? (first, second) -> ((DepthOrder) order).compare(first.depth, second.depth)
+                    : Comparator.comparing(task -> task.href, order);
+            return comparator.thenComparingLong(task -> task.sequence);
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.nio.file.Path;
+
+/**
+ * Receiver of the crawl results: the saved files are pushed as soon as they are saved, so the results
+ * are not collected along the crawl tree
+ */
+@FunctionalInterface
+public interface CrawlSink {
+
+    /**
+     * The file has been saved or is up-to-date
+     * @param path path to the file
+     */
+    void saved(@NonNull Path path);
+
+}
@@ -0,0 +1,31 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crawl sink which keeps the number of the saved files only
+ */
+@Slf4j
+public class CrawlSummary implements CrawlSink {
+
+    private final LongAdder saved = new LongAdder();
+
+    @Override
+    public void saved(@NonNull Path path) {
+        saved.increment();
+        logger.trace("File: '{}' is in place", path);
+    }
+
+    /**
+     * Number of the saved files
+     * @return number of the files
+     */
+    public long getSaved() {
+        return saved.sum();
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Journal of the unfinished download: the file is loaded to {@code <file>.part} and moved to the file when it is
+ * complete. The journal records the expected size and creation time, the confirmed (forced to the disk) bytes of the
+ * single stream and the loaded segments of the segmented download.
+ *
+ * The journals are kept in {@code <root>/.etsiorg/partial/}, so the unfinished downloads are found without walk
+ * through the destination tree.
+ */
+@Getter
+@Slf4j
+public class DownloadJournal {
+
+    public static final String PARTIAL_FOLDER = "partial";
+    public static final String PART_SUFFIX = ".part";
+
+    /**
+     * The single stream is confirmed after each checkpoint bytes
+     */
+    static final long CHECKPOINT = 8L << 20;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String SEPARATOR = "\t";
+    private static final String UNDEFINED = "-";
+
+    private final Path path;
+    private final String file;
+    private final long length;
+    private final LocalDateTime dateTime;
+    private int segments;
+    private long confirmed;
+    private BitSet loaded;
+
+    private DownloadJournal(@NonNull Path path, @NonNull String file, long length, @Nullable LocalDateTime dateTime,
+                            int segments, long confirmed, @NonNull BitSet loaded) {
+        this.path = path;
+        this.file = file;
+        this.length = length;
+        this.dateTime = dateTime;
+        this.segments = segments;
+        this.confirmed = confirmed;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Create the journal of the new download
+     * @param root destination root
+     * @param file path of the file in the destination root
+     * @param length expected size of the file
+     * @param dateTime expected creation time of the file
+     * @param segments number of the segments (1 for the single stream)
+     * @return saved journal
+     * @throws IOException in the case of error
+     */
+    public static @NonNull DownloadJournal create(@NonNull Path root, @NonNull String file, long length,
+                                                  @Nullable LocalDateTime dateTime, int segments) throws IOException {
+        Path path = Files.createDirectories(folder(root)).resolve(name(file));
+        DownloadJournal journal = new DownloadJournal(path, file, length, dateTime, Math.max(1, segments), 0L, new BitSet());
+        journal.save();
+        return journal;
+    }
+
+    /**
+     * Journal of the unfinished download of the file
+     * @param root destination root
+     * @param file path of the file in the destination root
+     * @return journal if exists and is not broken
+     */
+    public static @NonNull Optional<DownloadJournal> find(@NonNull Path root, @NonNull String file) {
+        return read(folder(Objects.requireNonNull(root, "DownloadJournal::find - root is null"))
+                .resolve(name(Objects.requireNonNull(file, "DownloadJournal::find - file is null"))))
+                .filter(journal -> journal.getFile().equals(file));
+    }
+
+    /**
+     * Journals of all unfinished downloads of the destination root
+     * @param root destination root
+     * @return journals of the unfinished downloads
+     * @throws IOException in the case of error
+     */
+    public static @NonNull Collection<DownloadJournal> list(@NonNull Path root) throws IOException {
+        Path folder = folder(Objects.requireNonNull(root, "DownloadJournal::list - root is null"));
+        Collection<DownloadJournal> journals = new LinkedList<>();
+        if (Files.isDirectory(folder)) {
+            try (Stream<Path> paths = Files.list(folder)) {
+                paths.filter(path -> path.getFileName().toString().endsWith(JOURNAL_SUFFIX))
+                        .map(DownloadJournal::read)
+                        .flatMap(Optional::stream)
+                        .forEach(journals::add);
+            }
+        }
+        return journals;
+    }
+
+    /**
+     * Check the journal is the download of the same site resource
+     * @param length size of the resource
+     * @param dateTime creation time of the resource
+     * @return true if the download can be resumed
+     */
+    public boolean matches(long length, @Nullable LocalDateTime dateTime) {
+        return this.length == length && Objects.equals(this.dateTime, dateTime);
+    }
+
+    /**
+     * Path to the partial file
+     * @param filePath path to the file
+     * @return path to the partial file
+     */
+    public static @NonNull Path part(@NonNull Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + PART_SUFFIX);
+    }
+
+    /**
+     * Start position of the segment
+     * @param segment segment number
+     * @return position of the first byte of the segment
+     */
+    public long from(int segment) {
+        return length * segment / segments;
+    }
+
+    /**
+     * End position of the segment
+     * @param segment segment number
+     * @return position after the last byte of the segment
+     */
+    public long to(int segment) {
+        return length * (segment + 1) / segments;
+    }
+
+    /**
+     * Segments to load
+     * @return queue of the segment numbers
+     */
+    public synchronized @NonNull Queue<Integer> missing() {
+        Queue<Integer> missing = new ConcurrentLinkedQueue<>();
+        for (int segment = loaded.nextClearBit(0); segment < segments; segment = loaded.nextClearBit(segment + 1)) {
+            missing.add(segment);
+        }
+        return missing;
+    }
+
+    /**
+     * Bytes to load
+     * @return size of the missing segments without the confirmed bytes of the single stream
+     */
+    public synchronized long remaining() {
+        if (segments == 1) {
+            return loaded.get(0) ? 0L : length - confirmed;
+        }
+        long remaining = 0L;
+        for (int segment = loaded.nextClearBit(0); segment < segments; segment = loaded.nextClearBit(segment + 1)) {
+            remaining += to(segment) - from(segment);
+        }
+        return remaining;
+    }
+
+    /**
+     * Record the loaded segment: the segment has to be forced to the disk before
+     * @param segment segment number
+     * @throws IOException in the case of error
+     */
+    public synchronized void completed(int segment) throws IOException {
+        loaded.set(segment);
+        save();
+    }
+
+    /**
+     * Record the confirmed bytes of the single stream: the bytes have to be forced to the disk before
+     * @param position end of the confirmed bytes
+     * @throws IOException in the case of error
+     */
+    public synchronized void confirm(long position) throws IOException {
+        this.confirmed = position;
+        save();
+    }
+
+    /**
+     * Listener of the single stream transfer which confirms the bytes after each checkpoint
+     * @param fileChannel channel of the partial file
+     * @return transfer listener
+     */
+    public @NonNull Page.TransferListener checkpoint(@NonNull FileChannel fileChannel) {
+        return position -> {
+            if (position - this.getConfirmed() >= CHECKPOINT || position == this.getLength()) {
+                fileChannel.force(false);
+                confirm(position);
+            }
+        };
+    }
+
+    /**
+     * Restart the download with the other number of segments
+     * @param segments number of the segments
+     * @throws IOException in the case of error
+     */
+    public synchronized void reset(int segments) throws IOException {
+        this.segments = Math.max(1, segments);
+        this.confirmed = 0L;
+        this.loaded = new BitSet();
+        save();
+    }
+
+    /**
+     * Delete the journal of the finished or discarded download
+     * @throws IOException in the case of error
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private synchronized void save() throws IOException {
+        StringBuilder bitmap = new StringBuilder(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            bitmap.append(loaded.get(segment) ? '1' : '0');
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, length + SEPARATOR +
+                Optional.ofNullable(dateTime).map(LocalDateTime::toString).orElse(UNDEFINED) + SEPARATOR +
+                segments + SEPARATOR + confirmed + SEPARATOR + bitmap + SEPARATOR + file, StandardCharsets.UTF_8);
+        Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static @NonNull Optional<DownloadJournal> read(@NonNull Path path) {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            String[] fields = Files.readString(path, StandardCharsets.UTF_8).trim().split(SEPARATOR, 6);
+            int segments = Integer.parseInt(fields[2]);
+            if (fields.length == 6 && segments > 0 && fields[4].length() == segments) {
+                BitSet loaded = new BitSet(segments);
+                for (int segment = 0; segment < segments; segment++) {
+                    loaded.set(segment, fields[4].charAt(segment) == '1');
+                }
+                return Optional.of(new DownloadJournal(path, fields[5], Long.parseLong(fields[0]),
+                        UNDEFINED.equals(fields[1]) ? null : LocalDateTime.parse(fields[1]),
+                        segments, Long.parseLong(fields[3]), loaded));
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Download journal: '{}' is broken. Cause: {}", path, ex.getMessage());
+            return Optional.empty();
+        }
+        logger.warn("Download journal: '{}' is broken", path);
+        return Optional.empty();
+    }
+
+    private static @NonNull Path folder(@NonNull Path root) {
+        return root.resolve(CrawlIndex.INDEX_FOLDER).resolve(PARTIAL_FOLDER);
+    }
+
+    private static @NonNull String name(@NonNull String file) {
+        return UUID.nameUUIDFromBytes(file.getBytes(StandardCharsets.UTF_8)) + JOURNAL_SUFFIX;
+    }
+
+}
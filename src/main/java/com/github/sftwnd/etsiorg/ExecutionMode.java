@@ -0,0 +1,124 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread model of the crawl tasks
+ */
+@Slf4j
+@Getter
+public enum ExecutionMode {
+
+    /**
+     * Platform threads of the fixed pool: one blocked thread per download in flight
+     */
+    FIXED(CrawlScheduler.DEFAULT_DOWNLOADS),
+
+    /**
+     * Virtual thread per task (Java 21+): the scheduler limits are the only cap of the blocking downloads.
+     * The older runtime has no virtual threads, so the mode is {@link #supported() replaced} by the fixed pool.
+     */
+    VIRTUAL(256);
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() or null if the runtime does not support one
+     */
+    private static final MethodHandle VIRTUAL_EXECUTOR = virtualExecutorHandle();
+
+    /**
+     * Default number of the downloads in flight for the mode
+     */
+    private final int defaultDownloads;
+
+    ExecutionMode(int defaultDownloads) {
+        this.defaultDownloads = defaultDownloads;
+    }
+
+    /**
+     * Executor for the crawl tasks
+     * @param threads number of the tasks in flight
+     * @return executor of the mode
+     */
+    public @NonNull ExecutorService executor(int threads) {
+        if (this == VIRTUAL) {
+            Optional<ExecutorService> executor = virtualThreadPerTaskExecutor();
+            if (executor.isPresent()) {
+                return executor.get();
+            }
+        }
+        // The platform threads are never unbounded: the virtual mode of the older runtime gets the fixed pool as well
+        return Executors.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors(), threads));
+    }
+
+    /**
+     * Mode supported by the runtime
+     * @return the fixed pool mode (with its default limits) instead of the virtual threads on the runtime without them
+     */
+    public @NonNull ExecutionMode supported() {
+        if (this == VIRTUAL && !isVirtualSupported()) {
+            logger.warn("Virtual threads are not supported by Java {}. Mode: {} is used.", Runtime.version().feature(), FIXED);
+            return FIXED;
+        }
+        return this;
+    }
+
+    /**
+     * Check the virtual threads of the runtime
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isVirtualSupported() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Mode by name
+     * @param name name of the mode (case insensitive)
+     * @return execution mode
+     */
+    public static @NonNull ExecutionMode of(@NonNull String name) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.name().equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("ExecutionMode::of - unknown mode: " + name));
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() if the runtime supports one
+     * @return virtual thread executor or empty
+     */
+    private static Optional<ExecutorService> virtualThreadPerTaskExecutor() {
+        if (VIRTUAL_EXECUTOR == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of((ExecutorService) VIRTUAL_EXECUTOR.invoke());
+        } catch (Throwable throwable) {
+            logger.warn("Unable to create virtual thread executor. Cause: {} {}", throwable.getClass().getSimpleName(), throwable.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Handle of Executors.newVirtualThreadPerTaskExecutor()
+     * @return method handle or null on the runtime without virtual threads
+     */
+    private static MethodHandle virtualExecutorHandle() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException ignore) {
+            return null;
+        }
+    }
+
+}
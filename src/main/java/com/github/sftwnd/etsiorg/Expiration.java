@@ -0,0 +1,194 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * Deletion of the expired versions out of the crawl: the expired paths are renamed to {@code <root>/.etsiorg/trash/}
+ * in the caller thread and the trash is deleted by the low priority threads, so the listing does not wait for the deletion.
+ * The trash left by the interrupted run is deleted on start.
+ */
+@Slf4j
+@Getter
+public class Expiration implements Consumer<Collection<Path>>, Closeable {
+
+    public static final String TRASH_FOLDER = "trash";
+    public static final int DEFAULT_THREADS = 1;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final Path root;
+    private final Path trash;
+    private final CrawlMetrics metrics;
+    private final ExecutorService executor;
+    @Getter(AccessLevel.NONE)
+    private final LongAdder expired = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder reclaimed = new LongAdder();
+
+    /**
+     * Constructor of the expiration with the single deletion thread
+     * @param root destination root
+     * @throws IOException in the case of error
+     */
+    public Expiration(@NonNull Path root) throws IOException {
+        this(root, DEFAULT_THREADS, null);
+    }
+
+    /**
+     * Constructor of the expiration
+     * @param root destination root
+     * @param threads number of the deletion threads
+     * @param metrics crawl metrics or null
+     * @throws IOException in the case of error
+     */
+    public Expiration(@NonNull Path root, int threads, @Nullable CrawlMetrics metrics) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expiration::new - threads must be positive: " + threads);
+        }
+        this.root = Objects.requireNonNull(root, "Expiration::new - root is null");
+        this.trash = Files.createDirectories(root.resolve(CrawlIndex.INDEX_FOLDER).resolve(TRASH_FOLDER));
+        this.metrics = Optional.ofNullable(metrics).orElse(CrawlMetrics.NONE);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "etsiorg-expiration-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        try (Stream<Path> left = Files.list(trash)) {
+            List<Path> paths = left.collect(Collectors.toList());
+            if (!paths.isEmpty()) {
+                logger.info("Trash of the previous run: {} paths will be deleted", paths.size());
+                paths.forEach(path -> executor.execute(() -> delete(path)));
+            }
+        }
+    }
+
+    /**
+     * Move the expired paths to the trash and submit their deletion
+     * @param paths paths relative to the destination root
+     */
+    @Override
+    public void accept(@NonNull Collection<Path> paths) {
+        for (Path path : paths) {
+            Path expiredPath = Path.of(root.toString(), path.toString());
+            if (Files.exists(expiredPath)) {
+                expired.increment();
+                metrics.expired();
+                Path discarded = discard(expiredPath);
+                executor.execute(() -> delete(discarded));
+            }
+        }
+    }
+
+    /**
+     * Number of the expired paths
+     * @return expired paths
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * Size of the deleted files
+     * @return reclaimed bytes
+     */
+    public long getReclaimed() {
+        return reclaimed.sum();
+    }
+
+    /**
+     * Wait for the submitted deletions
+     * @throws IOException if the wait has been interrupted
+     */
+    @Override
+    public void close() throws IOException {
+        if (executor.isTerminated()) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for the deletion of the expired paths");
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new IOException("Deletion of the expired paths has been interrupted", iex);
+        }
+        logger.info("Expired paths: {}, reclaimed bytes: {}", expired.sum(), reclaimed.sum());
+    }
+
+    /**
+     * Rename the expired path to the trash: the path which can not be renamed (e.g. of the other file system) is deleted in place
+     * @param path expired path
+     * @return path to delete
+     */
+    private @NonNull Path discard(@NonNull Path path) {
+        Path discarded = trash.resolve(UUID.randomUUID().toString());
+        try {
+            Files.move(path, discarded, ATOMIC_MOVE);
+            logger.debug("Expired path: '{}' has been moved to the trash: '{}'", path, discarded);
+            return discarded;
+        } catch (IOException ioex) {
+            logger.debug("Unable to move expired path: '{}' to the trash. Cause: {}", path, ioex.getMessage());
+            return path;
+        }
+    }
+
+    private void delete(@NonNull Path path) {
+        LongAdder bytes = new LongAdder();
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    bytes.add(attrs.size());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            logger.debug("Expired path: '{}' of {} bytes has been deleted", path, bytes.sum());
+        } catch (IOException ioex) {
+            logger.warn("Unable to delete expired path: '{}'. Cause: {} {}", path, ioex.getClass().getSimpleName(), ioex.getMessage());
+        } finally {
+            reclaimed.add(bytes.sum());
+            metrics.reclaimed(bytes.sum());
+        }
+    }
+
+}
@@ -7,22 +7,27 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
-import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
@@ -32,24 +37,70 @@ import static java.nio.file.StandardOpenOption.WRITE;
 @Slf4j
 public class FileSaveProcessor implements Processor<CompletableFuture<Stream<Path>>> {
 
-    private static final int BUFFER_SIZE = 64 << 10;
+    /**
+     * Saves in progress by the destination path: the processor of the path claimed by the other one
+     * is completed with it instead of the second check and download of the same file
+     */
+    private static final Map<Path, CompletableFuture<Path>> CLAIMS = new ConcurrentHashMap<>();
 
     private final String root;
     private final Page page;
+    private final CrawlIndex index;
+    private final SegmentedDownload segmentedDownload;
+    private final CrawlSink sink;
+    private final ContentStore store;
+    private final LocalFolder folder;
 
     FileSaveProcessor(@NonNull Path root, @NonNull Page page) {
+        this(root, page, null, CrawlContext.EMPTY);
+    }
+
+    /**
+     * Constructor of the processor of the listed file
+     * @param root destination root
+     * @param page file page
+     * @param folder local folder of the listing: the file is checked by its entry instead of the file system
+     *               (the file system is requested for the file if null)
+     * @param context services of the crawl: the index, the segmented download, the sink and the content store
+     */
+    FileSaveProcessor(@NonNull Path root, @NonNull Page page, @Nullable LocalFolder folder, @NonNull CrawlContext context) {
         this.root = Objects.requireNonNull(root, "FileSaveProcessor::new - path is null").toString();
         this.page = Objects.requireNonNull(page, "FileSaveProcessor::new - page is null");
+        Objects.requireNonNull(context, "FileSaveProcessor::new - context is null");
+        this.index = context.getIndex();
+        this.segmentedDownload = context.getSegmentedDownload();
+        this.sink = context.getSink();
+        this.store = context.getStore();
+        this.folder = folder;
     }
 
     /**
      * Save file and return completion future (in the caller thread)
-     * @return Completed future with list with one path to the loaded file
+     * @return Completed future with list with one path to the loaded file or empty one if the path is pushed to the sink,
+     *         the future of the save of the same path in progress is completed with the empty list after it
      */
     @NonNull
     @Override
     public CompletableFuture<Stream<Path>> process() {
-        return CompletableFuture.completedFuture(Optional.ofNullable(this.saveFile()).stream());
+        Path claimed = Path.of(this.getRoot(), this.getPage().path().toString()).toAbsolutePath().normalize();
+        CompletableFuture<Path> claim = new CompletableFuture<>();
+        CompletableFuture<Path> owner = CLAIMS.putIfAbsent(claimed, claim);
+        if (owner != null) {
+            logger.debug("File: '{}' is being saved by the other processor", claimed);
+            return owner.handle((ignore, throwable) -> Stream.empty());
+        }
+        Optional<Path> saved = Optional.empty();
+        try {
+            saved = Optional.ofNullable(this.saveFile());
+        } finally {
+            CLAIMS.remove(claimed, claim);
+            claim.complete(saved.orElse(null));
+        }
+        if (this.getSink() != null) {
+            saved.ifPresent(this.getSink()::saved);
+            return CompletableFuture.completedFuture(Stream.empty());
+        }
+        return CompletableFuture.completedFuture(saved.stream());
     }
 
     /**
@@ -60,73 +111,202 @@ public class FileSaveProcessor implements Processor<CompletableFuture<Stream<Pat
     private @Nullable Path saveFile() {
         final Page page = this.getPage();
         final Path filePath = Path.of(this.getRoot(), page.path().toString());
+        CrawlEvents.Save event = new CrawlEvents.Save();
+        event.begin();
         try {
             if (checkFolder()) {
-                long readed = checkFile();
-                if (readed != -1) {
-                    try (var outputStream = Files.newOutputStream(filePath, WRITE, CREATE, readed == 0 ? TRUNCATE_EXISTING : APPEND)) {
-                        byte[] buff = new byte[BUFFER_SIZE];
-                        long contentLength = page.contentLength();
-                        while (readed < contentLength) {
-                            try (var inputStream = page.inputStream()) {
-                                int bufferOffset = 0;
-                                while (readed < contentLength) {
-                                    int bytes = inputStream.read(buff, bufferOffset, buff.length - bufferOffset);
-                                    if (bytes < 0) {
-                                        if (bufferOffset > 0) {
-                                            outputStream.write(buff, 0, bufferOffset);
-                                        }
-                                        page.connect(readed);
-                                        break;
-                                    }
-                                    bufferOffset += bytes;
-                                    readed += bytes;
-                                    if (bufferOffset == buff.length || readed == contentLength) {
-                                        outputStream.write(buff, 0, bufferOffset);
-                                        bufferOffset = 0;
-                                    }
-                                }
-                            }
-                        }
-                        outputStream.flush();
+                Optional<DownloadJournal> journal = journal();
+                if (journal.isPresent() || checkFile() != -1L) {
+                    event.resumed = journal.isPresent();
+                    if (event.resumed) {
+                        page.getMetrics().resumed();
+                    }
+                    Optional<String> stored = journal.isPresent() ? Optional.empty() : linkStored(filePath);
+                    if (stored.isPresent()) {
+                        page.getMetrics().deduplicated(page.contentLength());
+                        record(filePath, stored.get());
+                        logger.info("File: '{}' has been linked to the stored content", filePath);
+                    } else {
+                        long start = System.nanoTime();
+                        event.bytes = download(filePath, journal.orElse(null));
+                        page.getMetrics().download(event.bytes, System.nanoTime() - start);
+                        logger.info("File: '{}' has been saved", filePath);
                     }
-                    syncFileTime(filePath, false);
-                    logger.info("File: '{}' has been saved", filePath);
                 }
+                Optional.ofNullable(this.getIndex()).ifPresent(index -> index.synced(page));
+                event.saved = true;
                 return filePath;
             }
+            Optional.ofNullable(this.getIndex()).ifPresent(index -> index.failed(page.getHref()));
+        } catch (RetryDeferredException drex) {
+            // The task is repeated by the scheduler and resumes the partial file by its journal
+            logger.debug("Save of the file: '{}' is deferred. Cause: {}", filePath, drex.getMessage());
+            throw drex;
         } catch (IOException ioex) {
+            // The partial file is kept with its journal for the resume
             logger.error("Unable to write file: '{}' by cause: {}", filePath, ioex.getMessage());
-            if (Files.isRegularFile(filePath)) {
-                try {
-                    Files.delete(filePath);
-                } catch (IOException ignore) {
-                }
+            Optional.ofNullable(this.getIndex()).ifPresent(index -> index.failed(page.getHref()));
+        } finally {
+            // The response left by the conditional request or by the download failed before the transfer
+            // holds the connection permit of the host until it is closed
+            close(page);
+            if (event.shouldCommit()) {
+                event.path = page.path().toString();
+                event.commit();
             }
         }
         return null;
     }
 
+    private static void close(@NonNull Page page) {
+        try {
+            page.close();
+        } catch (IOException ioex) {
+            logger.debug("Unable to close the response of: '{}' by cause: {}", page.path(), ioex.getMessage());
+        }
+    }
+
+    /**
+     * Journal of the unfinished download of the same resource: the journal of the other resource version is discarded
+     * @return journal to resume the download
+     * @throws IOException in the case of error
+     */
+    private @NonNull Optional<DownloadJournal> journal() throws IOException {
+        Page page = this.getPage();
+        // Without the partial file of the listed folder there is nothing to resume
+        if (this.getFolder() != null && !this.getFolder().contains(page.getHref().name() + DownloadJournal.PART_SUFFIX)) {
+            return Optional.empty();
+        }
+        Optional<DownloadJournal> journal = DownloadJournal.find(Path.of(this.getRoot()), page.path().toString());
+        if (journal.isPresent() && !journal.get().matches(page.contentLength(), page.getHref().getDateTime())) {
+            logger.warn("Unfinished download of the other version of the file: '{}' is discarded", page.path());
+            journal.get().delete();
+            return Optional.empty();
+        }
+        return journal;
+    }
+
+    /**
+     * Load the file to the partial file and move it to the file path when it is complete
+     * @param filePath path to the file
+     * @param journal journal of the unfinished download or null to start the new one
+     * @return number of the loaded bytes
+     * @throws IOException in the case of error
+     */
+    private long download(@NonNull Path filePath, @Nullable DownloadJournal journal) throws IOException {
+        Page page = this.getPage();
+        long contentLength = page.contentLength();
+        SegmentedDownload segmentedDownload = this.getSegmentedDownload();
+        if (journal == null) {
+            journal = DownloadJournal.create(Path.of(this.getRoot()), page.path().toString(), contentLength, page.getHref().getDateTime(),
+                    segmentedDownload != null && segmentedDownload.applies(contentLength) ? segmentedDownload.getSegments() : 1);
+        }
+        long remaining = journal.remaining();
+        Path partPath = DownloadJournal.part(filePath);
+        MessageDigest digest = null;
+        try (FileChannel fileChannel = FileChannel.open(partPath, WRITE, CREATE)) {
+            extend(fileChannel, contentLength);
+            if (journal.getSegments() > 1 && segmentedDownload != null) {
+                segmentedDownload.download(page, fileChannel, journal);
+            } else {
+                if (journal.getSegments() > 1) {
+                    journal.reset(1);
+                }
+                long confirmed = journal.getConfirmed();
+                if (confirmed > 0) {
+                    logger.warn("Continue loading from offset {} of the file: '{}'", confirmed, filePath);
+                    page.connect(confirmed);
+                }
+                // The stream from the very beginning is hashed while it is written
+                digest = confirmed == 0 ? ChecksumManifest.digest() : null;
+                page.transferTo(fileChannel, confirmed, contentLength, journal.checkpoint(fileChannel), digest);
+            }
+            if (fileChannel.size() > contentLength) {
+                fileChannel.truncate(contentLength);
+            }
+            fileChannel.force(true);
+        }
+        // The segments and the resumed tail are not hashed in the order of the content: the complete file is hashed once
+        String checksum = digest != null ? ChecksumManifest.hex(digest) : ChecksumManifest.checksum(partPath);
+        Files.move(partPath, filePath, REPLACE_EXISTING, ATOMIC_MOVE);
+        journal.delete();
+        // The stored content is linked with the file times, so they are set before
+        syncFileTime(filePath, Files.readAttributes(filePath, BasicFileAttributes.class), false);
+        record(filePath, checksum);
+        if (this.getStore() != null && this.getStore().put(page.getHref(), filePath, checksum)) {
+            page.getMetrics().deduplicated(contentLength);
+            logger.debug("File: '{}' has been linked to the same stored content", filePath);
+        }
+        return remaining;
+    }
+
+    /**
+     * Link the stored content of the same resource instead of the download
+     * @param filePath path to the file
+     * @return checksum of the linked content or empty if the file has to be loaded
+     */
+    private @NonNull Optional<String> linkStored(@NonNull Path filePath) {
+        if (this.getStore() != null) {
+            try {
+                return this.getStore().link(this.getPage().getHref(), filePath);
+            } catch (IOException ioex) {
+                logger.warn("Unable to link stored content to the file: '{}' by cause: {}", filePath, ioex.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Record the checksum of the saved file to the folder manifest
+     * @param filePath path to the file
+     * @param checksum hex SHA-256 of the file
+     */
+    private static void record(@NonNull Path filePath, @NonNull String checksum) {
+        try {
+            ChecksumManifest.record(filePath, checksum);
+        } catch (IOException ioex) {
+            // The saved file is kept, but it is not verified until it is loaded again
+            logger.warn("Unable to record checksum of the file: '{}' by cause: {}", filePath, ioex.getMessage());
+        }
+    }
+
+    /**
+     * Extend the partial file to the expected size by its last byte, so the segments are written at their positions.
+     * The space is not reserved: the file is sparse on the file systems which support it and the disk can still be
+     * full in the middle of the download (the loaded segments are kept for the resume then).
+     */
+    private static void extend(@NonNull FileChannel fileChannel, long contentLength) throws IOException {
+        if (contentLength > 0 && fileChannel.size() < contentLength) {
+            fileChannel.write(ByteBuffer.allocate(1), contentLength - 1);
+        }
+    }
+
     /**
      * Try to check file for existence
-     * @return 0 if the file needs to be loaded from the very beginning, a positive offset if it is necessary to continue loading and -1 if loading is not required or impossible
+     * @return 0 if the file needs to be loaded from the very beginning and -1 if loading is not required or impossible
      */
-    private synchronized long checkFile() throws IOException {
+    private long checkFile() throws IOException {
         Page page = this.getPage();
         Path filePath = Path.of(this.getRoot(), page.path().toString());
         long contentLength = page.contentLength();
-        if (Files.exists(filePath)) {
-            if (Files.isRegularFile(filePath)) {
-                long fileSize = Files.size(filePath);
+        BasicFileAttributes attr = this.getFolder() == null ? readAttributes(filePath)
+                : this.getFolder().attributes(page.getHref().name().toString());
+        if (attr != null) {
+            if (attr.isRegularFile()) {
+                long fileSize = attr.size();
                 if (fileSize < contentLength) {
-                    logger.warn("Continue loading from offset {} of the file: '{}'", fileSize, filePath);
-                    return fileSize;
+                    // Without the download journal the tail of the file can be broken
+                    logger.warn("Incomplete file: '{}' of {} bytes will be loaded again", filePath, fileSize);
+                    return 0;
                 } else if (fileSize > contentLength) {
                     logger.warn("Actual size: {} is larger than expected: {} for the file: '{}'", fileSize, page.getHref().getBytes(), filePath);
+                } else if (isModified()) {
+                    logger.warn("File: '{}' has been modified on the site and will be loaded again", filePath);
+                    return 0;
                 } else {
                     logger.debug("File: '{}' already exists.", filePath);
                 }
-                syncFileTime(filePath, true);
+                syncFileTime(filePath, attr, true);
             } else {
                 logger.trace("Unable to create file: '{}'. Folder with such name already exists.", filePath);
             }
@@ -135,19 +315,48 @@ public class FileSaveProcessor implements Processor<CompletableFuture<Stream<Pat
         return 0;
     }
 
-    private void syncFileTime(@NonNull Path filePath, boolean checkForChange) throws IOException {
+    /**
+     * Check the file of the same size with the changed creation time by the conditional request
+     * @return true if the site resource has been modified since the last sync
+     * @throws IOException in the case of error
+     */
+    private boolean isModified() throws IOException {
         Page page = this.getPage();
-        LocalDateTime dateTime = page.getHref().getDateTime();
-        if (dateTime != null) {
-            BasicFileAttributes attr = Files.readAttributes(filePath, BasicFileAttributes.class);
+        Optional<CrawlIndex.Entry> changed = Optional.ofNullable(this.getIndex())
+                .flatMap(index -> index.get(page.getUri()))
+                .filter(entry -> entry.getEtag() != null || entry.getLastModified() != null)
+                .filter(entry -> !Objects.equals(entry.getDateTime(), page.getHref().getDateTime()));
+        if (changed.isPresent()) {
+            page.conditional(changed.get().getEtag(), changed.get().getLastModified()).connect(0L);
+            return !page.isNotModified();
+        }
+        return false;
+    }
+
+    /**
+     * Attributes of the file
+     * @return attributes or null if the file does not exist
+     */
+    private static @Nullable BasicFileAttributes readAttributes(@NonNull Path filePath) throws IOException {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (NoSuchFileException ignore) {
+            return null;
+        }
+    }
+
+    private void syncFileTime(@NonNull Path filePath, @NonNull BasicFileAttributes attr, boolean checkForChange) throws IOException {
+        Instant creationDateTime = this.getPage().dateTime();
+        if (creationDateTime != null) {
             Instant creationInstant = attr.creationTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
-            Instant creationDateTime = page.dateTime();
             if (! creationInstant.equals(creationDateTime)) {
+                // The times of the hard link are the times of the stored content and of all its other links
+                ContentStore.detach(filePath);
                 FileTime creationFileTime = FileTime.from(creationDateTime);
                 Files.setAttribute(filePath, "creationTime", creationFileTime);
                 Files.setLastModifiedTime(filePath, creationFileTime);
                 if (checkForChange) {
-                    logger.warn("File: '{}' already exists. Creation time has been reset to: {}", filePath, dateTime);
+                    logger.warn("File: '{}' already exists. Creation time has been reset to: {}", filePath, creationDateTime);
                 }
             }
         }
@@ -157,7 +366,10 @@ public class FileSaveProcessor implements Processor<CompletableFuture<Stream<Pat
      * Try to find the folder and create it if it is not found
      * @return false if unable to create folder
      */
-    private synchronized boolean checkFolder() {
+    private boolean checkFolder() {
+        if (this.getFolder() != null) {
+            return this.getFolder().create();
+        }
         Path folderPath = Path.of(this.getRoot(), this.getPage().path().toString()).getParent();
         if (folderPath != null) {
             if (Files.exists(folderPath)) {
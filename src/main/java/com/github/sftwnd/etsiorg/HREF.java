@@ -10,12 +10,11 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
 
 /**
  * Global resource reference
@@ -46,7 +45,6 @@ public class HREF {
     /**
      * File creation time description
      */
-    @Setter
     private LocalDateTime dateTime;
 
     /**
@@ -55,12 +53,40 @@ public class HREF {
     @Setter
     private boolean regularFile;
 
+    /**
+     * Path and name of the uri created on the first request: they are requested for each log record and comparison
+     */
+    @Getter(AccessLevel.NONE)
+    private Path path;
+    @Getter(AccessLevel.NONE)
+    private Path name;
+
+    /**
+     * Creation instant in the zone converted on the first request: it is requested for each file save and check
+     */
+    @Getter(AccessLevel.NONE)
+    private ZonedInstant instant;
+
+    private static final class ZonedInstant {
+        private final ZoneId zone;
+        private final Instant instant;
+        private ZonedInstant(@NonNull ZoneId zone, @NonNull Instant instant) {
+            this.zone = zone;
+            this.instant = instant;
+        }
+    }
+
     /**
      * File path on the site request
      * @return File path on the site
      */
     public @NonNull Path path() {
-        return Path.of(getUri().getPath());
+        Path result = this.path;
+        if (result == null) {
+            result = Path.of(getUri().getPath());
+            this.path = result;
+        }
+        return result;
     }
 
     /**
@@ -68,7 +94,40 @@ public class HREF {
      * @return file name
      */
     public @NonNull Path name() {
-        return Optional.ofNullable(path().getFileName()).orElseGet(() -> Path.of(""));
+        Path result = this.name;
+        if (result == null) {
+            result = Optional.ofNullable(path().getFileName()).orElseGet(() -> Path.of(""));
+            this.name = result;
+        }
+        return result;
+    }
+
+    /**
+     * Set the file creation time description
+     * @param dateTime creation time
+     */
+    public void setDateTime(LocalDateTime dateTime) {
+        this.dateTime = dateTime;
+        this.instant = null;
+    }
+
+    /**
+     * Creation instant of the resource
+     * @param zone zone of the creation time
+     * @return instant of the creation time in the zone or null if the time is undefined
+     */
+    public @Nullable Instant instant(@NonNull ZoneId zone) {
+        Objects.requireNonNull(zone, "HREF::instant - zone is null");
+        ZonedInstant result = this.instant;
+        if (result == null || !result.zone.equals(zone)) {
+            LocalDateTime localDateTime = this.dateTime;
+            if (localDateTime == null) {
+                return null;
+            }
+            result = new ZonedInstant(zone, Instant.ofEpochSecond(ServerTime.epochSecond(localDateTime, zone)));
+            this.instant = result;
+        }
+        return result.instant;
     }
 
     /**
@@ -122,20 +181,37 @@ public class HREF {
     }
 
     /**
-     * Pattern of file/resource description on site text/html page
+     * Number of the elements of the version name {@code major.minor.patch_suffix}
+     */
+    public static final int VERSION_ELEMENTS = 4;
+
+    /**
+     * Bits of the version element in the packed version
      */
-    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)_(\\d+)");
+    public static final int VERSION_BITS = 12;
 
     /**
-     * Version from uri of versioned resource
+     * Maximal value of the version element: the name with the greater element is not a version
+     */
+    public static final long MAX_VERSION_ELEMENT = (1L << VERSION_BITS) - 1;
+
+    /**
+     * Separators after the elements of the version name
+     */
+    private static final char[] VERSION_SEPARATORS = { '.', '.', '_' };
+
+    /**
+     * Version from uri of versioned resource: the version of the last path segment
      * @param uri uri of versioned resource
      * @return version of versioned resource
      */
     private static long versionOfUri(@NonNull URI uri) {
-        return Optional.ofNullable(Path.of(uri.getPath()).getFileName())
-                .map(Path::toString)
-                .map(HREF::versionOfFile)
-                .orElse(NO_VERSION);
+        String path = uri.getPath();
+        if (path == null) {
+            return NO_VERSION;
+        }
+        int to = path.endsWith("/") ? path.length() - 1 : path.length();
+        return versionOf(path, path.lastIndexOf('/', to - 1) + 1, to);
     }
 
     /**
@@ -144,11 +220,81 @@ public class HREF {
      * @return version of versioned resource
      */
     public static long versionOfFile(@NonNull String fileName) {
-        Matcher matcher = VERSION_PATTERN.matcher(fileName);
-        if (matcher.matches()) {
-            return IntStream.range(0, 4)
-                    .mapToLong(i -> Long.parseLong(matcher.group(i+1)) << (12 * (3 - i)) )
-                    .sum();
+        return versionOf(fileName, 0, fileName.length());
+    }
+
+    /**
+     * Version of the name {@code major.minor.patch_suffix} in the single pass without the allocations.
+     * The name of the other number of the elements or of the element over {@link #MAX_VERSION_ELEMENT}
+     * does not fit the packed version persisted by the crawl index, so it is not a version and its folder
+     * is crawled as the unversioned one. Such a name of the version shape is logged as a warning.
+     * @param chars characters of the name
+     * @param from index of the first character of the name
+     * @param to index after the last character of the name
+     * @return packed version or 0 if the name is not a version
+     */
+    public static long versionOf(@NonNull CharSequence chars, int from, int to) {
+        long version = NO_VERSION;
+        long element = 0L;
+        int digits = 0;
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            char ch = chars.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                element = element * 10 + (ch - '0');
+                // The leading zeros are allowed
+                if (element > MAX_VERSION_ELEMENT) {
+                    return unsupportedVersion(chars, from, to);
+                }
+                digits++;
+            } else if (digits > 0 && position < VERSION_SEPARATORS.length && ch == VERSION_SEPARATORS[position]) {
+                version |= element << (VERSION_BITS * (VERSION_ELEMENTS - 1 - position));
+                position++;
+                element = 0L;
+                digits = 0;
+            } else {
+                return digits > 0 ? unsupportedVersion(chars, from, to) : NO_VERSION;
+            }
+        }
+        return digits > 0 && position == VERSION_ELEMENTS - 1 ? version | element : NO_VERSION;
+    }
+
+    /**
+     * Check the name has the shape of the version {@code major.minor...patch_suffix} which can not be packed:
+     * the more elements than {@link #VERSION_ELEMENTS} or the element over {@link #MAX_VERSION_ELEMENT}
+     * @param chars characters of the name
+     * @param from index of the first character of the name
+     * @param to index after the last character of the name
+     * @return true for the version name out of the packed version
+     */
+    static boolean isUnsupportedVersion(@NonNull CharSequence chars, int from, int to) {
+        int elements = 1;
+        int digits = 0;
+        boolean suffix = false;
+        boolean overflow = false;
+        long element = 0L;
+        for (int i = from; i < to; i++) {
+            char ch = chars.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                element = Math.min(element * 10 + (ch - '0'), MAX_VERSION_ELEMENT + 1);
+                overflow |= element > MAX_VERSION_ELEMENT;
+                digits++;
+            } else if (digits > 0 && !suffix && (ch == '.' || ch == '_')) {
+                suffix = ch == '_';
+                elements++;
+                element = 0L;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && suffix && (elements > VERSION_ELEMENTS || elements == VERSION_ELEMENTS && overflow);
+    }
+
+    private static long unsupportedVersion(@NonNull CharSequence chars, int from, int to) {
+        if (isUnsupportedVersion(chars, from, to)) {
+            logger.warn("Name: '{}' is out of the supported versions ({} elements up to {}), it is crawled as unversioned",
+                    chars.subSequence(from, to), VERSION_ELEMENTS, MAX_VERSION_ELEMENT);
         }
         return NO_VERSION;
     }
@@ -160,24 +306,32 @@ public class HREF {
      */
     public static @Nullable String versionName(long version) {
         if (version > NO_VERSION) {
-            return versionNum(version, 1) + '.' +
-                   versionNum(version, 2) + '.' +
-                   versionNum(version, 3) + '_' +
-                   versionNum(version, 4);
-
+            return appendVersionName(new StringBuilder(VERSION_ELEMENTS * 3), version).toString();
         }
         return null;
     }
 
     /**
-     * Version mask of n-th element of the version
-     * @param version number of n-th element of the version
-     * @param position version element position
-     * @return version mask
+     * Append the name of the version without the intermediate strings, e.g. to the reused builder
+     * @param builder builder of the name
+     * @param version positive version of resource
+     * @return the builder
      */
-    private static String  versionNum(long version, int position) {
-        long num = (version >> (12 * (4 - position))) & 0xFFFL;
-        return (num < 10 ? "0" : "") + num;
+    public static @NonNull StringBuilder appendVersionName(@NonNull StringBuilder builder, long version) {
+        if (version <= NO_VERSION) {
+            throw new IllegalArgumentException("HREF::appendVersionName - no version: " + version);
+        }
+        for (int position = 0; position < VERSION_ELEMENTS; position++) {
+            if (position > 0) {
+                builder.append(VERSION_SEPARATORS[position - 1]);
+            }
+            long element = (version >> (VERSION_BITS * (VERSION_ELEMENTS - 1 - position))) & MAX_VERSION_ELEMENT;
+            if (element < 10) {
+                builder.append('0');
+            }
+            builder.append(element);
+        }
+        return builder;
     }
 
     /**
@@ -0,0 +1,285 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transport on the java.net.http.HttpClient: keep-alive connection pool (HTTP/2 where available),
+ * asynchronous requests, the limit of the connections and the request rate per host and the bandwidth
+ * shared by all the response bodies
+ */
+@Slf4j
+@Getter
+public class HttpClientTransport implements Transport {
+
+    public static final int DEFAULT_CONNECTIONS_PER_HOST = 16;
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final String USER_AGENT = "Mozilla/5.0";
+
+    private static volatile Transport defaultTransport;
+
+    private final HttpClient client;
+    private final int connectionsPerHost;
+    private final RateLimiter bandwidth;
+    private final double requestsPerHost;
+    private final Map<String, HostPermits> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the transport with default parameters
+     */
+    public HttpClientTransport() {
+        this(null, DEFAULT_CONNECTIONS_PER_HOST, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Constructor of the transport
+     * @param executor executor of the client asynchronous tasks (client default if null)
+     * @param connectionsPerHost maximum number of the requests in flight for the host
+     * @param connectTimeout connection timeout
+     */
+    public HttpClientTransport(@Nullable Executor executor, int connectionsPerHost, @NonNull Duration connectTimeout) {
+        this(executor, connectionsPerHost, connectTimeout, null, 0);
+    }
+
+    /**
+     * Constructor of the throttled transport
+     * @param executor executor of the client asynchronous tasks (client default if null)
+     * @param connectionsPerHost maximum number of the requests in flight for the host
+     * @param connectTimeout connection timeout
+     * @param bandwidth limiter of the bytes per second read from the response bodies (unlimited if null)
+     * @param requestsPerHost maximum number of the requests per second to the host (unlimited if not positive)
+     */
+    public HttpClientTransport(@Nullable Executor executor, int connectionsPerHost, @NonNull Duration connectTimeout,
+                               @Nullable RateLimiter bandwidth, double requestsPerHost) {
+        if (connectionsPerHost <= 0) {
+            throw new IllegalArgumentException("HttpClientTransport::new - connectionsPerHost has to be positive: " + connectionsPerHost);
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Objects.requireNonNull(connectTimeout, "HttpClientTransport::new - connectTimeout is null"));
+        Optional.ofNullable(executor).ifPresent(builder::executor);
+        this.client = builder.build();
+        this.connectionsPerHost = connectionsPerHost;
+        this.bandwidth = bandwidth;
+        this.requestsPerHost = requestsPerHost;
+    }
+
+    /**
+     * Shared transport for the pages without the own one
+     * @return default transport
+     */
+    public static @NonNull Transport getDefault() {
+        if (defaultTransport == null) {
+            synchronized (HttpClientTransport.class) {
+                if (defaultTransport == null) {
+                    defaultTransport = new HttpClientTransport();
+                }
+            }
+        }
+        return defaultTransport;
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Response> get(@NonNull URI uri, @NonNull Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(Objects.requireNonNull(uri, "HttpClientTransport::get - uri is null"))
+                .GET()
+                .header("User-Agent", USER_AGENT);
+        Objects.requireNonNull(headers, "HttpClientTransport::get - headers is null").forEach(builder::header);
+        HttpRequest request = builder.build();
+        HostPermits permits = hosts.computeIfAbsent(String.valueOf(uri.getAuthority()), ignore -> new HostPermits(connectionsPerHost,
+                requestsPerHost > 0 ? new RateLimiter(requestsPerHost) : null));
+        CompletableFuture<HttpResponse<InputStream>> sent = permits.acquire()
+                .thenCompose(ignore -> permits.delay())
+                .thenCompose(ignore -> client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+        sent.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                permits.release();
+            }
+        });
+        return sent.thenApply(response -> new HttpClientResponse(response, new PermitInputStream(
+                this.bandwidth == null ? response.body() : new ThrottledInputStream(response.body(), this.bandwidth), permits)));
+    }
+
+    /**
+     * Number of the requests in flight
+     * @return requests holding the host permits
+     */
+    public int inFlight() {
+        return hosts.values().stream().mapToInt(HostPermits::inFlight).sum();
+    }
+
+    /**
+     * Response of the HttpClient
+     */
+    private static class HttpClientResponse implements Response {
+
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+
+        private HttpClientResponse(@NonNull HttpResponse<InputStream> response, @NonNull InputStream body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public @NonNull Optional<String> header(@NonNull String name) {
+            return response.headers().firstValue(name);
+        }
+
+        @Override
+        public @NonNull InputStream body() {
+            return body;
+        }
+
+    }
+
+    /**
+     * Body stream which returns the host permit on close
+     */
+    private static class PermitInputStream extends FilterInputStream {
+
+        private final HostPermits permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitInputStream(@NonNull InputStream inputStream, @NonNull HostPermits permits) {
+            super(inputStream);
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Body stream which draws the read bytes from the bandwidth limiter
+     */
+    private static class ThrottledInputStream extends FilterInputStream {
+
+        private final RateLimiter bandwidth;
+
+        private ThrottledInputStream(@NonNull InputStream inputStream, @NonNull RateLimiter bandwidth) {
+            super(inputStream);
+            this.bandwidth = bandwidth;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                bandwidth.acquire(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                bandwidth.acquire(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                bandwidth.acquire(skipped);
+            }
+            return skipped;
+        }
+
+    }
+
+    /**
+     * Non-blocking semaphore of the requests in flight for the host with the optional request rate
+     */
+    private static class HostPermits {
+
+        private final Queue<CompletableFuture<Void>> waiters = new LinkedList<>();
+        private final int permits;
+        private final RateLimiter requests;
+        private int available;
+
+        private HostPermits(int permits, @Nullable RateLimiter requests) {
+            this.permits = permits;
+            this.requests = requests;
+            this.available = permits;
+        }
+
+        /**
+         * Delay of the request by the request rate of the host
+         * @return future completed when the request can be sent
+         */
+        private CompletableFuture<Void> delay() {
+            long wait = requests == null ? 0L : requests.reserve(1);
+            return wait <= 0 ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+        }
+
+        private synchronized int inFlight() {
+            return permits - available;
+        }
+
+        private synchronized CompletableFuture<Void> acquire() {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        private void release() {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    available++;
+                }
+            }
+            if (waiter != null) {
+                waiter.complete(null);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,363 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Shared work queue of the distributed crawl: the subtree references are leased by the workers of the several JVMs.
+ * The queue file is rewritten under the lock of the sibling lock file, so the workers only need the shared file system.
+ * The lease of the crashed worker expires and the subtree is leased again by the other one.
+ * The queue file has one tab separated record per subtree: state, lease expiration millis, owner, attempts, bytes, creation time and uri.
+ */
+@Slf4j
+public class LeaseQueue {
+
+    public static final Duration DEFAULT_LEASE = Duration.ofMinutes(10);
+    public static final int DEFAULT_ATTEMPTS = 3;
+
+    private static final String SEPARATOR = "\t";
+    private static final String UNDEFINED = "-";
+
+    /**
+     * The file lock is held by the JVM, so the threads of the same JVM are serialized by the monitor of the file
+     */
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    /**
+     * State of the subtree
+     */
+    public enum State {
+        /** Waits for the worker */
+        PENDING,
+        /** Processed by the worker till the lease expiration */
+        LEASED,
+        /** Processed */
+        DONE,
+        /** All the attempts have been failed */
+        FAILED
+    }
+
+    /**
+     * Seed of the queue called by the first worker only
+     */
+    @FunctionalInterface
+    public interface Seed {
+        /**
+         * Subtrees of the crawl
+         * @return references to the subtrees
+         * @throws IOException in the case of error
+         */
+        @NonNull Collection<HREF> shards() throws IOException;
+    }
+
+    /**
+     * Subtree leased by the worker
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Lease {
+
+        private final HREF href;
+        private final String owner;
+
+        /**
+         * Lease expiration time in millis
+         */
+        private final long until;
+
+    }
+
+    @Getter
+    private final Path file;
+    private final Path lockFile;
+    private final LongSupplier clock;
+    private final int attempts;
+
+    /**
+     * Constructor of the queue with the system clock
+     * @param file path to the shared queue file
+     */
+    public LeaseQueue(@NonNull Path file) {
+        this(file, System::currentTimeMillis, DEFAULT_ATTEMPTS);
+    }
+
+    /**
+     * Constructor of the queue
+     * @param file path to the shared queue file
+     * @param clock clock in millis shared by the workers
+     * @param attempts number of the leases of the subtree before it is failed
+     */
+    public LeaseQueue(@NonNull Path file, @NonNull LongSupplier clock, int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("LeaseQueue::new - attempts must be positive: " + attempts);
+        }
+        this.file = Objects.requireNonNull(file, "LeaseQueue::new - file is null").toAbsolutePath().normalize();
+        this.lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+        this.clock = Objects.requireNonNull(clock, "LeaseQueue::new - clock is null");
+        this.attempts = attempts;
+    }
+
+    /**
+     * Seed the queue if it has not been seeded yet: the other workers wait for the seed under the lock
+     * @param seed seed of the subtrees
+     * @return true if the queue has been seeded by this call
+     * @throws IOException in the case of error
+     */
+    public boolean initialize(@NonNull Seed seed) throws IOException {
+        Objects.requireNonNull(seed, "LeaseQueue::initialize - seed is null");
+        return locked(() -> {
+            if (Files.exists(file)) {
+                return false;
+            }
+            Map<String, Record> records = new LinkedHashMap<>();
+            for (HREF href : seed.shards()) {
+                records.putIfAbsent(href.getUri().toString(), new Record(State.PENDING, 0L, UNDEFINED, 0, href));
+            }
+            write(records);
+            logger.info("Work queue: '{}' has been seeded with {} subtrees", file, records.size());
+            return true;
+        });
+    }
+
+    /**
+     * Lease the pending subtree or the one of the expired lease
+     * @param owner name of the worker
+     * @param duration duration of the lease
+     * @return leased subtree or empty if there is nothing to lease now
+     * @throws IOException in the case of error
+     */
+    public @NonNull Optional<Lease> lease(@NonNull String owner, @NonNull Duration duration) throws IOException {
+        Objects.requireNonNull(owner, "LeaseQueue::lease - owner is null");
+        Objects.requireNonNull(duration, "LeaseQueue::lease - duration is null");
+        return locked(() -> {
+            Map<String, Record> records = read();
+            long now = clock.getAsLong();
+            Lease lease = null;
+            boolean changed = false;
+            for (Record record : records.values()) {
+                if (record.state == State.PENDING || record.state == State.LEASED && record.until <= now) {
+                    changed = true;
+                    if (record.state == State.LEASED) {
+                        logger.warn("Lease of: '{}' by {} has been expired", record.href.getUri(), record.owner);
+                    }
+                    if (record.attempts >= attempts) {
+                        record.state = State.FAILED;
+                        logger.error("Subtree: '{}' has been failed after {} attempts", record.href.getUri(), record.attempts);
+                        continue;
+                    }
+                    record.state = State.LEASED;
+                    record.owner = owner;
+                    record.until = now + duration.toMillis();
+                    record.attempts++;
+                    lease = new Lease(record.href, owner, record.until);
+                    break;
+                }
+            }
+            if (changed) {
+                write(records);
+            }
+            return Optional.ofNullable(lease);
+        });
+    }
+
+    /**
+     * Extend the lease
+     * @param lease lease of the worker
+     * @param duration duration of the lease from now
+     * @return extended lease or empty if the subtree is not leased by the worker anymore
+     * @throws IOException in the case of error
+     */
+    public @NonNull Optional<Lease> renew(@NonNull Lease lease, @NonNull Duration duration) throws IOException {
+        return update(lease, record -> {
+            record.until = clock.getAsLong() + duration.toMillis();
+            return new Lease(record.href, record.owner, record.until);
+        });
+    }
+
+    /**
+     * Mark the leased subtree as processed
+     * @param lease lease of the worker
+     * @return false if the subtree is not leased by the worker anymore
+     * @throws IOException in the case of error
+     */
+    public boolean complete(@NonNull Lease lease) throws IOException {
+        return update(lease, record -> {
+            record.state = State.DONE;
+            return lease;
+        }).isPresent();
+    }
+
+    /**
+     * Return the subtree of the failed processing to the queue
+     * @param lease lease of the worker
+     * @return false if the subtree is not leased by the worker anymore
+     * @throws IOException in the case of error
+     */
+    public boolean release(@NonNull Lease lease) throws IOException {
+        return update(lease, record -> {
+            record.state = record.attempts >= attempts ? State.FAILED : State.PENDING;
+            record.until = 0L;
+            return lease;
+        }).isPresent();
+    }
+
+    /**
+     * Number of the subtrees by the state
+     * @return map of the subtree numbers
+     * @throws IOException in the case of error
+     */
+    public @NonNull Map<State, Integer> states() throws IOException {
+        return locked(() -> {
+            Map<State, Integer> result = new EnumMap<>(State.class);
+            for (State state : State.values()) {
+                result.put(state, 0);
+            }
+            read().values().forEach(record -> result.merge(record.state, 1, Integer::sum));
+            return result;
+        });
+    }
+
+    /**
+     * Check that there is nothing to process: all the subtrees are done or failed
+     * @return true if the queue is seeded and has no pending or leased subtrees
+     * @throws IOException in the case of error
+     */
+    public boolean isFinished() throws IOException {
+        Map<State, Integer> states = states();
+        return Files.exists(file) && states.get(State.PENDING) == 0 && states.get(State.LEASED) == 0;
+    }
+
+    private @NonNull Optional<Lease> update(@NonNull Lease lease, @NonNull Action<Lease> action) throws IOException {
+        Objects.requireNonNull(lease, "LeaseQueue::update - lease is null");
+        return locked(() -> {
+            Map<String, Record> records = read();
+            Record record = records.get(lease.getHref().getUri().toString());
+            // The expired lease could be taken by the other worker
+            if (record == null || record.state != State.LEASED || !record.owner.equals(lease.getOwner())) {
+                logger.warn("Subtree: '{}' is not leased by {}", lease.getHref().getUri(), lease.getOwner());
+                return Optional.empty();
+            }
+            Lease result = action.apply(record);
+            write(records);
+            return Optional.of(result);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Action<T> {
+        T apply(@NonNull Record record) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Locked<T> {
+        T call() throws IOException;
+    }
+
+    private <T> T locked(@NonNull Locked<T> action) throws IOException {
+        synchronized (MONITORS.computeIfAbsent(file, ignore -> new Object())) {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(lockFile, CREATE, WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return action.call();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private @NonNull Map<String, Record> read() throws IOException {
+        Map<String, Record> records = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    Record record = Record.parse(line);
+                    if (record == null) {
+                        logger.warn("Work queue record is skipped: '{}'", line);
+                    } else {
+                        records.put(record.href.getUri().toString(), record);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    private void write(@NonNull Map<String, Record> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Record record : records.values()) {
+                writer.write(record.line());
+            }
+        }
+        Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class Record {
+
+        private State state;
+        private long until;
+        private String owner;
+        private int attempts;
+        private final HREF href;
+
+        private @NonNull String line() {
+            return state.name() + SEPARATOR + until + SEPARATOR + owner + SEPARATOR + attempts + SEPARATOR +
+                    Optional.ofNullable(href.getBytes()).map(String::valueOf).orElse(UNDEFINED) + SEPARATOR +
+                    Optional.ofNullable(href.getDateTime()).map(LocalDateTime::toString).orElse(UNDEFINED) + SEPARATOR +
+                    href.getUri() + System.lineSeparator();
+        }
+
+        private static @Nullable Record parse(@NonNull String line) {
+            String[] fields = line.split(SEPARATOR, 7);
+            if (fields.length != 7) {
+                return null;
+            }
+            try {
+                // The subtree of the file has the size
+                HREF href = HREF.builder()
+                        .uri(URI.create(fields[6]))
+                        .bytes(UNDEFINED.equals(fields[4]) ? null : Long.parseLong(fields[4]))
+                        .dateTime(UNDEFINED.equals(fields[5]) ? null : LocalDateTime.parse(fields[5]))
+                        .regularFile(!UNDEFINED.equals(fields[4]))
+                        .build();
+                return new Record(State.valueOf(fields[0]), Long.parseLong(fields[1]), fields[2], Integer.parseInt(fields[3]), href);
+            } catch (RuntimeException rex) {
+                return null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser of the IIS-style folder listing:
+ * <pre>{@code <br> 4/21/2022  8:39 AM       932564 <A HREF="/deliver/.../ts_129078v170000p.pdf">ts_129078v170000p.pdf</A>}</pre>
+ * The listing is read from the channel to one buffer and split to the rows by {@code <br>}. The reference of each
+ * row is passed to the consumer as soon as the row is read, so neither the length of the body nor the whole body
+ * is required. The rows without reference (header, footer, parent directory) are skipped.
+ */
+@Slf4j
+public final class ListingParser {
+
+    public static final int DEFAULT_BUFFER_SIZE = 16 << 10;
+
+    private static final byte[] ROW_SEPARATOR = "<br>".getBytes(StandardCharsets.US_ASCII);
+
+    private ListingParser() {
+    }
+
+    /**
+     * Parse listing from the channel
+     * @param channel channel of the listing body (is not closed)
+     * @param base uri to resolve the references
+     * @param consumer consumer of the found references
+     * @throws IOException in the case of the read error
+     */
+    public static void parse(@NonNull ReadableByteChannel channel, @NonNull URI base, @NonNull Consumer<HREF> consumer) throws IOException {
+        parse(channel, base, consumer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Parse listing from the channel with the initial buffer size (the buffer grows for the longer rows only)
+     * @param channel channel of the listing body (is not closed)
+     * @param base uri to resolve the references
+     * @param consumer consumer of the found references
+     * @param bufferSize initial buffer size
+     * @throws IOException in the case of the read error
+     */
+    static void parse(@NonNull ReadableByteChannel channel, @NonNull URI base, @NonNull Consumer<HREF> consumer, int bufferSize) throws IOException {
+        Objects.requireNonNull(channel, "ListingParser::parse - channel is null");
+        Objects.requireNonNull(base, "ListingParser::parse - base is null");
+        Objects.requireNonNull(consumer, "ListingParser::parse - consumer is null");
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(bufferSize, ROW_SEPARATOR.length));
+        boolean row = false;
+        for (boolean eof = false; !eof; ) {
+            eof = channel.read(buffer) < 0;
+            byte[] bytes = buffer.array();
+            int limit = buffer.position();
+            int start = 0;
+            for (int separator = indexOf(bytes, start, limit); separator >= 0; separator = indexOf(bytes, start, limit)) {
+                if (row) {
+                    parseRow(bytes, start, separator, base, consumer);
+                }
+                row = true;
+                start = separator + ROW_SEPARATOR.length;
+            }
+            if (eof) {
+                if (row) {
+                    parseRow(bytes, start, limit, base, consumer);
+                }
+            } else {
+                // Only the tail of the separator is kept before the first row
+                if (!row) {
+                    start = Math.max(start, limit - ROW_SEPARATOR.length + 1);
+                }
+                buffer.flip().position(start);
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() << 1).put(buffer.flip());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the row: {@code M/D/YYYY h:mm AM (size|<dir>) <A HREF="reference">name</A>}
+     */
+    private static void parseRow(@NonNull byte[] bytes, int from, int to, @NonNull URI base, @NonNull Consumer<HREF> consumer) {
+        Row row = new Row(bytes, from, to);
+        int month = (int) row.skipWhitespace().number();
+        int day = (int) row.expect('/').number();
+        int year = (int) row.expect('/').number();
+        int hour = (int) row.skipWhitespace().number();
+        int minute = (int) row.expect(':').number();
+        int meridiem = row.skipWhitespace().next() | 0x20;
+        row.expect('M');
+        long size = row.skipWhitespace().number();
+        boolean folder = size < 0 && row.token("dir");
+        int reference = row.skipWhitespace().expect('<').expect('A').find("HREF");
+        String uri = row.skipWhitespace().expect('=').skipWhitespace().expect('"').until('"');
+        if (row.valid() && (meridiem == 'a' || meridiem == 'p') && (folder || size >= 0) && reference >= 0) {
+            try {
+                HREF href = HREF.builder()
+                        .uri(base.resolve(uri))
+                        .bytes(folder ? null : size)
+                        .dateTime(LocalDateTime.of(year, month, day, hour % 12 + (meridiem == 'p' ? 12 : 0), minute))
+                        .regularFile(!folder)
+                        .build();
+                logger.trace("Found {}: {}", href.isRegularFile() ? "file" : "path", href);
+                consumer.accept(href);
+            } catch (DateTimeException | IllegalArgumentException ex) {
+                logger.warn("Listing row is skipped: '{}'. Cause: {}", new String(bytes, from, to - from, StandardCharsets.UTF_8).trim(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Position of the case-insensitive row separator
+     */
+    private static int indexOf(@NonNull byte[] bytes, int from, int to) {
+        for (int i = from; i <= to - ROW_SEPARATOR.length; i++) {
+            if (regionMatches(bytes, i, ROW_SEPARATOR)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(@NonNull byte[] bytes, int offset, @NonNull byte[] lowerCase) {
+        for (int i = 0; i < lowerCase.length; i++) {
+            if ((bytes[offset + i] | 0x20) != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cursor of the row: the first mismatch invalidates the row, the following calls do nothing
+     */
+    private static class Row {
+
+        private final byte[] bytes;
+        private final int to;
+        private int position;
+
+        private Row(@NonNull byte[] bytes, int from, int to) {
+            this.bytes = bytes;
+            this.position = from;
+            this.to = to;
+        }
+
+        private boolean valid() {
+            return position >= 0;
+        }
+
+        private @NonNull Row skipWhitespace() {
+            while (valid() && position < to && (bytes[position] & 0xFF) <= ' ') {
+                position++;
+            }
+            return this;
+        }
+
+        private int next() {
+            if (valid() && position < to) {
+                return bytes[position++];
+            }
+            position = -1;
+            return -1;
+        }
+
+        private @NonNull Row expect(char ch) {
+            if (valid() && position < to && (bytes[position] | 0x20) == (ch | 0x20)) {
+                position++;
+            } else {
+                position = -1;
+            }
+            return this;
+        }
+
+        /**
+         * Decimal number or -1 without the row invalidation if there is no digit
+         */
+        private long number() {
+            long number = -1;
+            while (valid() && position < to && bytes[position] >= '0' && bytes[position] <= '9' && number < Long.MAX_VALUE / 10) {
+                number = Math.max(number, 0) * 10 + bytes[position++] - '0';
+            }
+            return number;
+        }
+
+        /**
+         * Check the non-whitespace token contains the word (&lt;dir&gt;)
+         */
+        private boolean token(@NonNull String word) {
+            int from = position;
+            while (valid() && position < to && (bytes[position] & 0xFF) > ' ') {
+                position++;
+            }
+            byte[] lowerCase = word.getBytes(StandardCharsets.US_ASCII);
+            for (int i = from; valid() && i <= position - lowerCase.length; i++) {
+                if (regionMatches(bytes, i, lowerCase)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Find the case-insensitive word and move after it
+         * @return position of the word or -1
+         */
+        private int find(@NonNull String word) {
+            byte[] lowerCase = word.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+            for (int i = position; valid() && i <= to - lowerCase.length; i++) {
+                if (regionMatches(bytes, i, lowerCase)) {
+                    position = i + lowerCase.length;
+                    return i;
+                }
+            }
+            position = -1;
+            return -1;
+        }
+
+        /**
+         * Text till the character (exclusive), the cursor is moved after the character
+         */
+        private String until(char ch) {
+            for (int i = position; valid() && i < to; i++) {
+                if (bytes[i] == ch) {
+                    String text = new String(bytes, position, i - position, StandardCharsets.UTF_8);
+                    position = i + 1;
+                    return text;
+                }
+            }
+            position = -1;
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Local folder of the listing: the folder is listed once with the attributes of its entries on the first request,
+ * so the files of the listing are checked in the memory instead of the file system calls per file.
+ * The missing folder is created once for all of its files.
+ */
+@Slf4j
+public final class LocalFolder {
+
+    private final Path path;
+    private Map<String, BasicFileAttributes> entries;
+    private boolean directory;
+    private boolean file;
+
+    private LocalFolder(@NonNull Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Local folder read on the first request
+     * @param path path to the folder
+     * @return local folder
+     */
+    public static @NonNull LocalFolder of(@NonNull Path path) {
+        return new LocalFolder(Objects.requireNonNull(path, "LocalFolder::of - path is null"));
+    }
+
+    /**
+     * Path to the folder
+     * @return folder path
+     */
+    public @NonNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * Attributes of the folder entry as it was listed
+     * @param name name of the entry
+     * @return attributes or null if there was no such entry
+     * @throws IOException in the case of error
+     */
+    public synchronized @Nullable BasicFileAttributes attributes(@NonNull String name) throws IOException {
+        Objects.requireNonNull(name, "LocalFolder::attributes - name is null");
+        return entries().get(name);
+    }
+
+    /**
+     * Check the folder entry
+     * @param name name of the entry
+     * @return true if there was such entry
+     * @throws IOException in the case of error
+     */
+    public boolean contains(@NonNull String name) throws IOException {
+        return attributes(name) != null;
+    }
+
+    /**
+     * Create the missing folder: the file system is requested once for all the files of the folder
+     * @return false if the path is the file or the folder can not be created
+     */
+    public synchronized boolean create() {
+        try {
+            entries();
+        } catch (IOException ioex) {
+            logger.error("Unable to list folder: '{}'. Cause: {}", path, ioex.getMessage());
+            return false;
+        }
+        if (file) {
+            logger.error("Unable to create folder: '{}'. File with such name exists.", path);
+            return false;
+        }
+        if (!directory) {
+            try {
+                Files.createDirectories(path);
+            } catch (FileAlreadyExistsException ignore) {
+            } catch (IOException ioex) {
+                logger.error("Unable to create folder: '{}'. Cause: {}", path, ioex.getMessage());
+                return false;
+            }
+            directory = true;
+        }
+        return true;
+    }
+
+    /**
+     * Entries of the folder listed on the first request
+     */
+    private @NonNull Map<String, BasicFileAttributes> entries() throws IOException {
+        if (entries == null) {
+            Map<String, BasicFileAttributes> listed = new HashMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path entry : stream) {
+                    try {
+                        listed.put(entry.getFileName().toString(), Files.readAttributes(entry, BasicFileAttributes.class));
+                    } catch (NoSuchFileException ignore) {
+                        // The entry has been deleted after the listing
+                    }
+                }
+                directory = true;
+            } catch (NoSuchFileException ignore) {
+                logger.trace("Folder: '{}' does not exist", path);
+            } catch (NotDirectoryException ignore) {
+                file = true;
+            }
+            entries = listed;
+            logger.trace("Folder: '{}' has been listed: {} entries", path, listed.size());
+        }
+        return entries;
+    }
+
+}
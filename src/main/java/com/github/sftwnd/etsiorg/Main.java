@@ -1,19 +1,20 @@
 package com.github.sftwnd.etsiorg;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import lombok.SneakyThrows;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -33,9 +34,64 @@ public class Main {
 
     private static final String URI_PROPERTY = "uri";
     private static final String DEST_PROPERTY = "dest";
+    private static final String LISTINGS_PROPERTY = "listings";
+    private static final String DOWNLOADS_PROPERTY = "downloads";
+    private static final String QUEUE_PROPERTY = "queue";
+    private static final String THREADS_PROPERTY = "threads";
+    private static final String CONNECTIONS_PROPERTY = "connections";
+    private static final String INCREMENTAL_PROPERTY = "incremental";
+    private static final String SEGMENTS_PROPERTY = "segments";
+    private static final String SEGMENT_THRESHOLD_PROPERTY = "segmentThreshold";
+    private static final String METRICS_PROPERTY = "metrics";
+    private static final String BANDWIDTH_PROPERTY = "bandwidth";
+    private static final String REQUEST_RATE_PROPERTY = "requestRate";
+    private static final String RETRIES_PROPERTY = "retries";
+    private static final String VERIFY_PROPERTY = "verify";
+    private static final String VERIFY_REPAIR = "repair";
+    private static final String DEDUP_PROPERTY = "dedup";
+    private static final String EXPIRATION_THREADS_PROPERTY = "expirationThreads";
+    private static final String PLAN_PROPERTY = "plan";
+    private static final String EXECUTE_PROPERTY = "execute";
+    private static final String WORKER_PROPERTY = "worker";
+    private static final String SHARDS_PROPERTY = "shards";
+    private static final String SHARD_DEPTH_PROPERTY = "shardDepth";
+    private static final String LEASE_PROPERTY = "lease";
+    private static final String INCLUDE_PROPERTY = "include";
+    private static final String EXCLUDE_PROPERTY = "exclude";
+    private static final String VERSIONS_PROPERTY = "versions";
+    private static final String BYTES_PROPERTY = "bytes";
+    private static final String DATES_PROPERTY = "dates";
+    private static final String SERVER_ZONE_PROPERTY = "serverZone";
+    private static final int DEFAULT_METRICS_INTERVAL = 60;
 
-    public static void main(String[] args) throws URISyntaxException {
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    public static void main(String[] args) throws URISyntaxException, IOException {
+        ExecutionMode mode = Optional.ofNullable(System.getProperty(THREADS_PROPERTY))
+                .filter(Predicate.not(String::isBlank))
+                .map(ExecutionMode::of)
+                .map(ExecutionMode::supported)
+                .orElse(ExecutionMode.FIXED);
+        int listings = intProperty(LISTINGS_PROPERTY, CrawlScheduler.DEFAULT_LISTINGS);
+        int downloads = intProperty(DOWNLOADS_PROPERTY, mode.getDefaultDownloads());
+        logger.info("Execution mode: {}, listings: {}, downloads: {}", mode, listings, downloads);
+        Optional.ofNullable(System.getProperty(SERVER_ZONE_PROPERTY))
+                .filter(Predicate.not(String::isBlank))
+                .map(String::trim)
+                .map(ZoneId::of)
+                .ifPresent(ServerTime::setZone);
+        ExecutorService executor = mode.executor(listings + downloads);
+        CrawlIndex index = null;
+        ContentStore store = null;
+        int metricsInterval = intProperty(METRICS_PROPERTY, DEFAULT_METRICS_INTERVAL);
+        MeterRegistry registry = metricsInterval <= 0 ? null : new LoggingMeterRegistry(new LoggingRegistryConfig() {
+            @Override
+            public String get(@NonNull String key) {
+                return null;
+            }
+            @Override
+            public @NonNull Duration step() {
+                return Duration.ofSeconds(metricsInterval);
+            }
+        }, Clock.SYSTEM);
         try {
             Path dest = Optional.ofNullable(System.getProperty(DEST_PROPERTY))
                     .filter(Predicate.not(String::isBlank))
@@ -44,57 +100,188 @@ public class Main {
             URI uri = new URI(Optional.ofNullable(System.getProperty(URI_PROPERTY))
                     .filter(Predicate.not(String::isBlank))
                     .orElse(DEFAULT_URI));
-            var processorFactory = new ComplexProcessorFactory(dest, executor, getOnnExpires(dest));
-            processorFactory
-                    .processor(Page.of(HREF.builder().uri(uri).build()))
-                    .process()
-                    .thenApply(Stream::sorted)
-                    .thenApply(stream -> stream.map(Path::toString))
-                    .thenApply(Optional::of)
-                    .join()
-                    .map(stream -> stream.collect(Collectors.toList()))
-                    .filter(Predicate.not(Collection::isEmpty))
-                    .ifPresentOrElse(
-                            paths -> logger.info("There are {} files has been loaded", paths.size()),
-                            () -> logger.info("No files were uploaded")
-                    );
+            long bandwidth = longProperty(BANDWIDTH_PROPERTY, 0L);
+            double requestRate = doubleProperty(REQUEST_RATE_PROPERTY, 0.0);
+            if (bandwidth > 0 || requestRate > 0) {
+                logger.info("Bandwidth: {} bytes/s, request rate: {} per host", bandwidth > 0 ? bandwidth : "unlimited", requestRate > 0 ? requestRate : "unlimited");
+            }
+            // The client has its own executor: the body streams are read by the blocked crawl threads
+            var httpTransport = new HttpClientTransport(null,
+                    intProperty(CONNECTIONS_PROPERTY, HttpClientTransport.DEFAULT_CONNECTIONS_PER_HOST),
+                    HttpClientTransport.DEFAULT_CONNECT_TIMEOUT,
+                    bandwidth > 0 ? new RateLimiter(bandwidth) : null,
+                    requestRate);
+            var metrics = registry == null ? CrawlMetrics.NONE : new CrawlMetrics(registry).transport(httpTransport);
+            var transport = new RetryingTransport(httpTransport,
+                    new RetryPolicy(intProperty(RETRIES_PROPERTY, RetryPolicy.DEFAULT_ATTEMPTS - 1) + 1),
+                    CircuitBreaker.DEFAULT_FAILURES, CircuitBreaker.DEFAULT_OPEN, metrics);
+            // The tasks of the host are not started while its circuit is open
+            var scheduler = new CrawlScheduler(executor, listings, downloads,
+                    intProperty(QUEUE_PROPERTY, CrawlScheduler.DEFAULT_QUEUE),
+                    CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST, transport::pause);
+            if (registry != null) {
+                metrics.scheduler(scheduler);
+            }
+            Optional<Path> shardsFile = pathProperty(SHARDS_PROPERTY);
+            // The index and the store logs are written by the single process, so the workers of the shared queue go without them
+            if (shardsFile.isEmpty()) {
+                index = CrawlIndex.open(dest, Optional.ofNullable(System.getProperty(INCREMENTAL_PROPERTY))
+                        .filter(Predicate.not(String::isBlank))
+                        .map(Boolean::parseBoolean)
+                        .orElse(true));
+            }
+            Optional<String> verify = Optional.ofNullable(System.getProperty(VERIFY_PROPERTY))
+                    .filter(Predicate.not(String::isBlank))
+                    .map(String::trim);
+            if (verify.isPresent()) {
+                boolean repair = VERIFY_REPAIR.equalsIgnoreCase(verify.get());
+                var report = new ChecksumVerifier(dest, executor, listings + downloads).verify(repair);
+                if (!repair) {
+                    return;
+                }
+                // The folders of the deleted files are listed again by the incremental crawl
+                Optional.ofNullable(index).ifPresent(crawlIndex -> crawlIndex.invalidate(
+                        report.getInvalid().stream().map(dest::relativize).collect(Collectors.toList())));
+            }
+            CrawlFilter filter = filter();
+            Optional<Path> planFile = pathProperty(PLAN_PROPERTY);
+            if (planFile.isPresent()) {
+                // Dry run: the listings only, nothing is saved or deleted
+                try (SyncPlan plan = SyncPlan.create(dest, planFile.get())) {
+                    new PlanningProcessorFactory(executor, scheduler, index, plan, filter)
+                            .processor(Page.of(HREF.builder().uri(uri).build(), transport, metrics))
+                            .process()
+                            .join();
+                }
+                logger.info("Sync plan: '{}' has been written", planFile.get());
+                return;
+            }
+            DownloadJournal.list(dest).forEach(journal ->
+                    logger.info("Unfinished download of: '{}' will be resumed", journal.getFile()));
+            int segments = intProperty(SEGMENTS_PROPERTY, SegmentedDownload.DEFAULT_SEGMENTS);
+            var segmentedDownload = segments < 2 ? null
+                    : new SegmentedDownload(scheduler, longProperty(SEGMENT_THRESHOLD_PROPERTY, SegmentedDownload.DEFAULT_THRESHOLD), segments);
+            // The saved files are counted as they come, the crawl tree does not collect them
+            var summary = new CrawlSummary();
+            if (shardsFile.isEmpty() && Optional.ofNullable(System.getProperty(DEDUP_PROPERTY))
+                    .filter(Predicate.not(String::isBlank))
+                    .map(Boolean::parseBoolean)
+                    .orElse(true)) {
+                store = ContentStore.open(dest);
+            }
+            // The expired versions are deleted by the own low priority threads, they are finished before the prune
+            try (Expiration expiration = new Expiration(dest, intProperty(EXPIRATION_THREADS_PROPERTY, Expiration.DEFAULT_THREADS), metrics)) {
+                var processorFactory = new ComplexProcessorFactory(dest, CrawlContext.builder()
+                        .executor(executor)
+                        .scheduler(scheduler)
+                        .index(index)
+                        .segmentedDownload(segmentedDownload)
+                        .onExpires(expiration)
+                        .sink(summary)
+                        .store(store)
+                        .filter(filter)
+                        .build());
+                Optional<Path> executeFile = pathProperty(EXECUTE_PROPERTY);
+                if (executeFile.isPresent()) {
+                    // The worker property is "<worker>/<workers>" with the worker from 0
+                    String[] worker = Optional.ofNullable(System.getProperty(WORKER_PROPERTY))
+                            .filter(Predicate.not(String::isBlank))
+                            .orElse("0/1")
+                            .trim()
+                            .split("/", 2);
+                    try (Stream<SyncPlan.Entry> entries = SyncPlan.read(executeFile.get())) {
+                        new PlanExecution(processorFactory, transport, metrics,
+                                Integer.parseInt(worker[0]), worker.length < 2 ? 1 : Integer.parseInt(worker[1]),
+                                intProperty(QUEUE_PROPERTY, CrawlScheduler.DEFAULT_QUEUE))
+                                .execute(entries);
+                    }
+                } else if (shardsFile.isPresent()) {
+                    // The first worker seeds the shared queue by the subtrees of the uri
+                    new ShardWorker(new LeaseQueue(shardsFile.get()), processorFactory, transport, metrics,
+                            ShardWorker.defaultOwner(),
+                            Duration.ofSeconds(longProperty(LEASE_PROPERTY, LeaseQueue.DEFAULT_LEASE.toSeconds())),
+                            ShardWorker.DEFAULT_POLL)
+                            .run(HREF.builder().uri(uri).build(), intProperty(SHARD_DEPTH_PROPERTY, ShardWorker.DEFAULT_DEPTH));
+                } else {
+                    processorFactory
+                            .processor(Page.of(HREF.builder().uri(uri).build(), transport, metrics))
+                            .process()
+                            .join();
+                }
+            }
+            if (summary.getSaved() > 0) {
+                logger.info("There are {} files has been loaded", summary.getSaved());
+            } else {
+                logger.info("No files were uploaded");
+            }
+            if (store != null) {
+                // The contents of the expired versions are not linked from the tree anymore
+                logger.info("Unlinked stored contents pruned: {}", store.prune());
+            }
         } finally {
-            executor.shutdown();
+            try {
+                if (index != null) {
+                    index.close();
+                }
+                if (store != null) {
+                    store.close();
+                }
+            } finally {
+                try {
+                    executor.shutdown();
+                } finally {
+                    // The last step is published on close
+                    Optional.ofNullable(registry).ifPresent(MeterRegistry::close);
+                }
+            }
         }
     }
 
-    private static Consumer<Collection<Path>> getOnnExpires(@NonNull Path root) {
-        return expires -> expires.stream()
-                .map(path -> Path.of(root.toString(), path.toString()))
-                .sorted()
-                .forEach(Main::onExpire);
+    /**
+     * Filter of the crawl by the properties: the comma separated include and exclude globs (or {@code regex:} patterns)
+     * and the {@code [min]..[max]} ranges of the versions, the bytes and the dates. The log and temporary files are always excluded.
+     * @return crawl filter
+     */
+    private static CrawlFilter filter() {
+        CrawlFilter.Builder builder = CrawlFilter.defaults();
+        // The commas of the {a,b} alternatives are not the separators
+        Optional.ofNullable(System.getProperty(INCLUDE_PROPERTY)).ifPresent(builder::includes);
+        Optional.ofNullable(System.getProperty(EXCLUDE_PROPERTY)).ifPresent(builder::excludes);
+        Optional.ofNullable(System.getProperty(VERSIONS_PROPERTY)).filter(Predicate.not(String::isBlank)).ifPresent(builder::versions);
+        Optional.ofNullable(System.getProperty(BYTES_PROPERTY)).filter(Predicate.not(String::isBlank)).ifPresent(builder::bytes);
+        Optional.ofNullable(System.getProperty(DATES_PROPERTY)).filter(Predicate.not(String::isBlank)).ifPresent(builder::dates);
+        return builder.build();
     }
 
-    private static void onExpire(@NonNull Path expired) {
-        try {
-            if (Files.exists(expired)) {
-                delete(expired);
-            }
-        } catch (Exception exception) {
-            logger.warn("Unable to delete expired path: '{}'. Cause: {} {}", expired, exception.getClass().getSimpleName(), exception.getMessage());
-        }
+    private static Optional<Path> pathProperty(@NonNull String name) {
+        return Optional.ofNullable(System.getProperty(name))
+                .filter(Predicate.not(String::isBlank))
+                .map(String::trim)
+                .map(Path::of);
     }
 
-    @SneakyThrows
-    private static void delete(@NonNull Path path) {
-        boolean isRegular = Files.isRegularFile(path);
-        if (!isRegular) {
-            try (Stream<Path> files = Files.list(path).sorted()) {
-                files.forEach(Main::delete);
-            }
-        }
-        try {
-            if (Files.deleteIfExists(path)) {
-                logger.debug("{}: '{}' has been deleted", isRegular ? "File" : "Directory", path);
-            }
-        } catch (IOException ioex) {
-            logger.warn("Unable to delete {}: '{}'. Cause: {} {}", isRegular ? "File" : "Directory", path, ioex.getClass().getSimpleName(), ioex.getMessage());
-        }
+    private static int intProperty(@NonNull String name, int defaultValue) {
+        return Optional.ofNullable(System.getProperty(name))
+                .filter(Predicate.not(String::isBlank))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .orElse(defaultValue);
+    }
+
+    private static long longProperty(@NonNull String name, long defaultValue) {
+        return Optional.ofNullable(System.getProperty(name))
+                .filter(Predicate.not(String::isBlank))
+                .map(String::trim)
+                .map(Long::parseLong)
+                .orElse(defaultValue);
+    }
+
+    private static double doubleProperty(@NonNull String name, double defaultValue) {
+        return Optional.ofNullable(System.getProperty(name))
+                .filter(Predicate.not(String::isBlank))
+                .map(String::trim)
+                .map(Double::parseDouble)
+                .orElse(defaultValue);
     }
 
 }
\ No newline at end of file
@@ -1,22 +1,33 @@
 package com.github.sftwnd.etsiorg;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 
 /**
@@ -26,11 +37,25 @@ import java.util.function.Predicate;
 @AllArgsConstructor
 public class Page {
 
-    private static final String USER_AGENT = "Mozilla/5.0";
+    private static final int BUFFER_SIZE = 256 << 10;
+
+    /**
+     * Direct buffers of the finished transfers: the pool grows up to the transfers in flight, so the direct memory
+     * is not allocated per file and per segment and is not waiting for the GC to be freed
+     */
+    private static final Deque<ByteBuffer> BUFFERS = new ConcurrentLinkedDeque<>();
 
     @SneakyThrows
     public static Page of(@NonNull HREF href) {
-        return new Page(Objects.requireNonNull(href, "Page::of - href is null"));
+        return new Page(Objects.requireNonNull(href, "Page::of - href is null"), HttpClientTransport.getDefault(), CrawlMetrics.NONE);
+    }
+
+    public static Page of(@NonNull HREF href, @NonNull Transport transport) {
+        return of(href, transport, CrawlMetrics.NONE);
+    }
+
+    public static Page of(@NonNull HREF href, @NonNull Transport transport, @NonNull CrawlMetrics metrics) {
+        return new Page(Objects.requireNonNull(href, "Page::of - href is null"), transport, metrics);
     }
 
     /**
@@ -40,9 +65,21 @@ public class Page {
     private HREF href;
 
     /**
-     * Page data connection
+     * Transport of the page requests
+     */
+    @Getter
+    private Transport transport;
+
+    /**
+     * Metrics of the crawl
+     */
+    @Getter
+    private CrawlMetrics metrics;
+
+    /**
+     * Page data response
      */
-    private HttpURLConnection connection;
+    private Transport.Response response;
 
     /**
      * Page data stream
@@ -59,16 +96,40 @@ public class Page {
      */
     private boolean acceptRange = true;
 
+    /**
+     * Entity tag of the resource: the conditional request validator or the one of the response
+     */
+    private String etag;
+
+    /**
+     * Last-Modified of the resource: the conditional request validator or the one of the response
+     */
+    private String lastModified;
+
+    /**
+     * Resource has not been modified since the conditional request validators
+     */
+    @Getter
+    private boolean notModified;
+
+    /**
+     * The response is the requested range of the resource
+     */
+    @Getter
+    private boolean partial;
+
+    /**
+     * The request to be repeated is failed with its delay instead of the wait for the backoff
+     */
+    @Getter
+    private boolean deferrable;
+
     /**
      * Request resource creation date
-     * @return date of resource creation
+     * @return date of resource creation in the server zone
      */
     public Instant dateTime() {
-        return Optional.ofNullable(href.getDateTime())
-                .map(dateTime -> dateTime.atZone(ZoneId.systemDefault()))
-                .map(ZonedDateTime::toInstant)
-                .map(instant -> instant.truncatedTo(ChronoUnit.SECONDS))
-                .orElse(null);
+        return href.instant(ServerTime.getZone());
     }
 
     /**
@@ -124,49 +185,305 @@ public class Page {
     }
 
     /**
-     * Make HttpURLConnection with offset if is not connected
+     * Page of the child resource on the same transport and metrics
+     * @param href child resource reference
+     * @return child resource page
+     */
+    public Page child(@NonNull HREF href) {
+        return Page.of(href, this.getTransport(), this.getMetrics());
+    }
+
+    /**
+     * Set validators of the conditional request: the resource is not loaded if it is not modified
+     * @param etag entity tag of the last loaded resource (If-None-Match)
+     * @param lastModified Last-Modified of the last loaded resource (If-Modified-Since)
+     * @return this page
+     */
+    public Page conditional(@Nullable String etag, @Nullable String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        return this;
+    }
+
+    /**
+     * Set the requests of the page to be deferred: the request which has to be repeated fails by
+     * the {@link RetryDeferredException}, so the task of the page can be repeated after the delay.
+     * The pages out of the scheduler tasks (the root page of the crawl and the segment helpers of the download)
+     * are not deferrable: there is no task to repeat, so their thread waits for the backoff of the request.
+     * @param deferrable true if the repeated requests are deferred
+     * @return this page
+     */
+    public Page deferrable(boolean deferrable) {
+        this.deferrable = deferrable;
+        return this;
+    }
+
+    /**
+     * Entity tag of the resource
+     * @return ETag of the loaded or not modified resource
+     */
+    public Optional<String> etag() {
+        return Optional.ofNullable(this.etag);
+    }
+
+    /**
+     * Last-Modified of the resource
+     * @return Last-Modified of the loaded or not modified resource
+     */
+    public Optional<String> lastModified() {
+        return Optional.ofNullable(this.lastModified);
+    }
+
+    /**
+     * Send request to the resource with offset if is not connected
      * @throws IOException if an exception
      */
     public void connect(long offset) throws IOException {
-        if (this.connection != null && offset > 0) {
-            this.inputStream.close();
-            this.connection.disconnect();
-            this.connection = null;
-            this.inputStream = null;
+        connect(offset, offset > 0L ? Optional.ofNullable(this.contentLength).filter(length -> length > 0).orElse(0L) - 1 : -1L);
+    }
+
+    /**
+     * Send request of the range to the resource if is not connected or reconnect to the range
+     * @param offset first byte of the range
+     * @param last last byte of the range (inclusive) or -1 for the rest of the resource
+     * @throws IOException if an exception
+     */
+    public void connect(long offset, long last) throws IOException {
+        boolean ranged = offset > 0L || last >= 0L;
+        if (this.response != null && ranged) {
+            close();
         }
-        if (this.connection == null) {
-            this.connection = (HttpURLConnection) href.getUri().toURL().openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            if (offset > 0L) {
+        if (this.response == null) {
+            Map<String, String> headers = new HashMap<>();
+            if (ranged) {
                 if(! this.acceptRange) {
                     logger.warn("Accept-Ranges was not defined for connection with offset request for: '{}'", href.path());
                 }
-                connection.setRequestProperty("Range", "bytes=" + offset + "-" + (this.contentLength - 1));
+                headers.put("Range", "bytes=" + offset + "-" + (last >= 0L ? String.valueOf(last) : ""));
+            } else {
+                etag().ifPresent(etag -> headers.put("If-None-Match", etag));
+                lastModified().ifPresent(lastModified -> headers.put("If-Modified-Since", lastModified));
+            }
+            CrawlEvents.Connect event = new CrawlEvents.Connect();
+            event.begin();
+            Transport.Response response = receive(this.isDeferrable()
+                    ? this.getTransport().tryGet(href.getUri(), headers)
+                    : this.getTransport().get(href.getUri(), headers));
+            int responseCode = response.statusCode();
+            this.getMetrics().response(responseCode);
+            if (event.shouldCommit()) {
+                event.uri = href.getUri().toString();
+                event.offset = offset;
+                event.status = responseCode;
+                event.commit();
             }
-            this.connection.connect();
-            int responseCode = connection.getResponseCode();
             if (responseCode == HttpURLConnection.HTTP_OK) {
-                this.contentLength = connection.getContentLengthLong();
+                this.contentLength = response.contentLength();
                 Optional.ofNullable(href.getBytes())
                         .filter(Predicate.not(this.contentLength::equals))
                         .ifPresent(bytes -> logger.warn("The length of the file: {} is different from the declared size {} of: '{}'", this.contentLength, bytes, href.path()));
-                this.acceptRange = Optional.ofNullable(connection.getHeaderField("Accept-Ranges")).map("bytes"::equals).orElse(false);
-                this.inputStream = connection.getInputStream();
+                this.acceptRange = response.header("Accept-Ranges").map("bytes"::equals).orElse(false);
+                this.etag = response.header("ETag").orElse(null);
+                this.lastModified = response.header("Last-Modified").orElse(null);
+                this.notModified = false;
+                this.partial = false;
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.debug("Resource: '{}' has not been modified", href.path());
+                response.close();
+                this.contentLength = 0L;
+                this.notModified = true;
+                this.response = response;
+                this.inputStream = InputStream.nullInputStream();
+                return;
             } else if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
-                this.inputStream = connection.getInputStream();
+                this.acceptRange = true;
+                this.partial = true;
             } else {
-                throw new IOException("Unable to open HTTP connection: " + connection.getHeaderField(0));
+                response.close();
+                throw new IOException("Unable to open HTTP connection: " + responseCode + " for: '" + href.getUri() + "'");
+            }
+            this.response = response;
+            this.inputStream = response.body();
+            if (offset > 0L && responseCode == HttpURLConnection.HTTP_OK) {
+                logger.warn("Range has been ignored, {} bytes are skipped for: '{}'", offset, href.path());
+                skip(this.inputStream, offset);
+            }
+        }
+    }
+
+    /**
+     * Write the range of the resource from the connected stream to the file channel positions: the page
+     * is reconnected from the written position if the stream is closed before the end of the range
+     * @param fileChannel file channel
+     * @param from first position of the range
+     * @param to end position of the range (exclusive)
+     * @throws IOException in the case of error
+     */
+    public void transferTo(@NonNull FileChannel fileChannel, long from, long to) throws IOException {
+        transferTo(fileChannel, from, to, null);
+    }
+
+    /**
+     * Write the range of the resource to the file channel positions with the progress listener
+     * @param fileChannel file channel
+     * @param from first position of the range
+     * @param to end position of the range (exclusive)
+     * @param listener listener of the written positions
+     * @throws IOException in the case of error
+     */
+    public void transferTo(@NonNull FileChannel fileChannel, long from, long to, @Nullable TransferListener listener) throws IOException {
+        transferTo(fileChannel, from, to, listener, null);
+    }
+
+    /**
+     * Write the range of the resource to the file channel positions with the progress listener
+     * and update the digest by the written bytes in the same pass
+     * @param fileChannel file channel
+     * @param from first position of the range
+     * @param to end position of the range (exclusive)
+     * @param listener listener of the written positions
+     * @param digest digest of the written bytes
+     * @throws IOException in the case of error
+     */
+    public void transferTo(@NonNull FileChannel fileChannel, long from, long to, @Nullable TransferListener listener,
+                           @Nullable MessageDigest digest) throws IOException {
+        ByteBuffer buffer = buffer();
+        try {
+            for (long position = from; position < to; ) {
+                try (ReadableByteChannel channel = Channels.newChannel(this.inputStream())) {
+                    buffer.limit((int) Math.min(buffer.capacity(), to - position));
+                    for (boolean eof = false; !eof && position < to; ) {
+                        eof = channel.read(buffer) < 0;
+                        if (eof || !buffer.hasRemaining()) {
+                            position += write(fileChannel, buffer, position, digest);
+                            if (listener != null) {
+                                listener.transferred(position);
+                            }
+                            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+                        }
+                    }
+                }
+                if (position < to) {
+                    this.getMetrics().retried();
+                    this.connect(position, to - 1);
+                }
+            }
+        } finally {
+            release(buffer);
+            this.close();
+        }
+    }
+
+    /**
+     * Transfer buffer of the pool
+     * @return cleared direct buffer
+     */
+    static @NonNull ByteBuffer buffer() {
+        return Optional.ofNullable(BUFFERS.pollFirst()).orElseGet(() -> ByteBuffer.allocateDirect(BUFFER_SIZE)).clear();
+    }
+
+    /**
+     * Return the transfer buffer to the pool
+     * @param buffer buffer of the finished transfer
+     */
+    static void release(@NonNull ByteBuffer buffer) {
+        BUFFERS.offerFirst(buffer);
+    }
+
+    /**
+     * Listener of the transfer progress
+     */
+    @FunctionalInterface
+    public interface TransferListener {
+
+        /**
+         * The bytes have been written to the file channel
+         * @param position end position of the written bytes
+         * @throws IOException in the case of error
+         */
+        void transferred(long position) throws IOException;
+
+    }
+
+    private static long write(@NonNull FileChannel fileChannel, @NonNull ByteBuffer buffer, long position,
+                              @Nullable MessageDigest digest) throws IOException {
+        long written = 0;
+        buffer.flip();
+        if (digest != null) {
+            digest.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            written += fileChannel.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * Skip the bytes of the stream
+     * @param inputStream stream
+     * @param bytes number of bytes to skip
+     * @throws IOException in the case of error or if the stream is shorter
+     */
+    private static void skip(@NonNull InputStream inputStream, long bytes) throws IOException {
+        for (long skipped = 0; skipped < bytes; ) {
+            long skip = inputStream.skip(bytes - skipped);
+            if (skip <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("Unexpected end of stream after " + skipped + " bytes");
+                }
+                skip = 1;
+            }
+            skipped += skip;
+        }
+    }
+
+    /**
+     * Release the response of the page
+     * @throws IOException in the case of error
+     */
+    public void close() throws IOException {
+        if (this.response != null) {
+            try {
+                this.response.close();
+            } finally {
+                this.response = null;
+                this.inputStream = null;
+            }
+        }
+    }
+
+    /**
+     * Wait for the response of the transport
+     * @param future response future
+     * @return received response
+     * @throws IOException in the case of the transport error
+     */
+    private static Transport.Response receive(@NonNull CompletableFuture<Transport.Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request has been interrupted");
+        } catch (ExecutionException eex) {
+            Throwable cause = eex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
+            throw new IOException(cause);
         }
     }
 
     /**
      * Connect to URI resource and load resource properties
      * @param href file resource reference
+     * @param transport transport of the resource requests
+     * @param metrics metrics of the crawl
      */
-    private Page(@NonNull HREF href) {
+    private Page(@NonNull HREF href, @NonNull Transport transport, @NonNull CrawlMetrics metrics) {
         this.href = Objects.requireNonNull(href, "Loader::new - URI is null");
+        this.transport = Objects.requireNonNull(transport, "Loader::new - transport is null");
+        this.metrics = Objects.requireNonNull(metrics, "Loader::new - metrics is null");
     }
 
     /**
@@ -0,0 +1,212 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trie of the interned URI path segments: the common prefixes like {@code /deliver/etsi_ts/129000_129099/}
+ * are stored once for all the resources below them. The first level is the scheme and the authority of the URI.
+ * The node of the path is unique in the trie, so it is compared by the identity.
+ */
+public final class PathTrie {
+
+    private static final char SEPARATOR = '/';
+
+    private final Node root = new Node(null, "");
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Node of the trie: the segment of the path
+     */
+    public static final class Node {
+
+        private final Node parent;
+        private final String name;
+        private final int depth;
+        private volatile Map<String, Node> children;
+        private volatile Object value;
+
+        private Node(@Nullable Node parent, @NonNull String name) {
+            this.parent = parent;
+            this.name = name;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        /**
+         * Parent node
+         * @return parent of the segment or null for the root of the trie
+         */
+        public @Nullable Node getParent() {
+            return parent;
+        }
+
+        /**
+         * Raw segment of the path (the scheme and the authority on the first level)
+         * @return segment name
+         */
+        public @NonNull String getName() {
+            return name;
+        }
+
+        /**
+         * Child segments of the node
+         * @return interned children or the empty collection for the leaf
+         */
+        public @NonNull Collection<Node> getChildren() {
+            Map<String, Node> map = children;
+            return map == null ? Collections.emptyList() : Collections.unmodifiableCollection(map.values());
+        }
+
+        /**
+         * Value attached to the node by the owner of the trie
+         * @return attached value or null
+         */
+        public @Nullable Object getValue() {
+            return value;
+        }
+
+        /**
+         * Attach the value to the node: the owner of the trie keeps its records in the nodes without the map of them
+         * @param value attached value or null to detach it
+         */
+        public void setValue(@Nullable Object value) {
+            this.value = value;
+        }
+
+        /**
+         * Raw path of the node from the authority
+         * @param folder true to append the trailing slash
+         * @return path starting with the slash
+         */
+        public @NonNull String path(boolean folder) {
+            return appendPath(new StringBuilder(), folder).toString();
+        }
+
+        /**
+         * URI of the node
+         * @param folder true to append the trailing slash
+         * @return URI of the path
+         */
+        public @NonNull URI uri(boolean folder) {
+            Node authority = this;
+            while (authority.depth > 1) {
+                authority = authority.parent;
+            }
+            return URI.create(appendPath(new StringBuilder(authority.name), folder).toString());
+        }
+
+        private @NonNull StringBuilder appendPath(@NonNull StringBuilder builder, boolean folder) {
+            int segments = Math.max(0, depth - 1);
+            Node[] nodes = new Node[segments];
+            Node node = this;
+            for (int i = segments - 1; i >= 0; i--) {
+                nodes[i] = node;
+                node = node.parent;
+            }
+            for (Node segment : nodes) {
+                builder.append(SEPARATOR).append(segment.name);
+            }
+            if (folder || segments == 0) {
+                builder.append(SEPARATOR);
+            }
+            return builder;
+        }
+
+        private @NonNull Node child(@NonNull String name, @NonNull AtomicInteger size) {
+            Map<String, Node> map = children;
+            if (map == null) {
+                synchronized (this) {
+                    map = children;
+                    if (map == null) {
+                        // The leaves of the files have no map at all
+                        map = new ConcurrentHashMap<>(4);
+                        children = map;
+                    }
+                }
+            }
+            Node node = map.get(name);
+            return node != null ? node : map.computeIfAbsent(name, ignore -> {
+                size.incrementAndGet();
+                return new Node(this, name);
+            });
+        }
+
+        private @Nullable Node next(@NonNull String name, boolean intern, @NonNull AtomicInteger size) {
+            if (intern) {
+                return child(name, size);
+            }
+            Map<String, Node> map = children;
+            return map == null ? null : map.get(name);
+        }
+
+        @Override
+        public String toString() {
+            return path(false);
+        }
+
+    }
+
+    /**
+     * Root of the trie
+     * @return node with the authorities as its children
+     */
+    public @NonNull Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Node of the URI path
+     * @param uri absolute hierarchical URI without the query and the fragment
+     * @return interned node of the path
+     */
+    public @NonNull Node intern(@NonNull URI uri) {
+        Objects.requireNonNull(uri, "PathTrie::intern - uri is null");
+        return Objects.requireNonNull(walk(uri, true));
+    }
+
+    /**
+     * Node of the URI path if it has been interned
+     * @param uri resource URI
+     * @return interned node of the path or null (also for the URI which can not be interned)
+     */
+    public @Nullable Node find(@NonNull URI uri) {
+        Objects.requireNonNull(uri, "PathTrie::find - uri is null");
+        return walk(uri, false);
+    }
+
+    private @Nullable Node walk(@NonNull URI uri, boolean intern) {
+        if (uri.isOpaque() || uri.getScheme() == null || uri.getRawQuery() != null || uri.getRawFragment() != null) {
+            if (!intern) {
+                return null;
+            }
+            throw new IllegalArgumentException("PathTrie::intern - unsupported uri: " + uri);
+        }
+        Node node = root.next(uri.getScheme() + "://" + Objects.toString(uri.getRawAuthority(), ""), intern, size);
+        String path = Objects.toString(uri.getRawPath(), "");
+        for (int from = 0, to; node != null && from < path.length(); from = to + 1) {
+            to = path.indexOf(SEPARATOR, from);
+            to = to < 0 ? path.length() : to;
+            if (to > from) {
+                node = node.next(path.substring(from, to), intern, size);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Number of the nodes
+     * @return number of the interned segments
+     */
+    public int size() {
+        return size.get();
+    }
+
+}
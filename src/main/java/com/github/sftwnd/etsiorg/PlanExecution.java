@@ -0,0 +1,109 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Execution of the sync plan without the listings: the fetch, resume and check entries are processed by the file
+ * processors of the factory, the expire entries by its expiration listener.
+ * The plan is split across the workers by the path hash, so each worker executes the own part of the same plan.
+ */
+@Slf4j
+@Getter
+public class PlanExecution {
+
+    private final ComplexProcessorFactory processorFactory;
+    private final Transport transport;
+    private final CrawlMetrics metrics;
+    private final int worker;
+    private final int workers;
+    private final int maxQueued;
+
+    /**
+     * Constructor of the single worker execution
+     * @param processorFactory factory of the file processors
+     */
+    public PlanExecution(@NonNull ComplexProcessorFactory processorFactory) {
+        this(processorFactory, null, null, 0, 1, CrawlScheduler.DEFAULT_QUEUE);
+    }
+
+    /**
+     * Constructor of the plan execution
+     * @param processorFactory factory of the file processors
+     * @param transport transport of the requests or null for the default one
+     * @param metrics crawl metrics or null
+     * @param worker number of the worker from 0
+     * @param workers number of the workers of the plan
+     * @param maxQueued entries in flight
+     */
+    public PlanExecution(@NonNull ComplexProcessorFactory processorFactory, @Nullable Transport transport, @Nullable CrawlMetrics metrics,
+                         int worker, int workers, int maxQueued) {
+        if (workers < 1 || worker < 0 || worker >= workers) {
+            throw new IllegalArgumentException("PlanExecution::new - illegal worker: " + worker + " of " + workers);
+        }
+        if (maxQueued < 1) {
+            throw new IllegalArgumentException("PlanExecution::new - maxQueued must be positive: " + maxQueued);
+        }
+        this.processorFactory = Objects.requireNonNull(processorFactory, "PlanExecution::new - processorFactory is null");
+        this.transport = Optional.ofNullable(transport).orElseGet(HttpClientTransport::getDefault);
+        this.metrics = Optional.ofNullable(metrics).orElse(CrawlMetrics.NONE);
+        this.worker = worker;
+        this.workers = workers;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Execute the entries of the worker
+     * @param entries entries of the plan
+     * @return number of the executed entries
+     */
+    public long execute(@NonNull Stream<SyncPlan.Entry> entries) {
+        Semaphore slots = new Semaphore(maxQueued);
+        LongAdder executed = new LongAdder();
+        entries.filter(entry -> entry.getAction() != SyncPlan.Action.SKIP)
+                .filter(entry -> entry.isAssigned(worker, workers))
+                .forEach(entry -> {
+                    slots.acquireUninterruptibly();
+                    execute(entry).whenComplete((ignore, throwable) -> {
+                        if (throwable == null) {
+                            executed.increment();
+                        } else {
+                            logger.error("Unable to execute plan entry: '{}'. Cause: {}", entry.getPath(), throwable.getMessage());
+                        }
+                        slots.release();
+                    });
+                });
+        // All the slots are free when the last entry is executed
+        slots.acquireUninterruptibly(maxQueued);
+        logger.info("Executed plan entries of the worker {} of {}: {}", worker, workers, executed.sum());
+        return executed.sum();
+    }
+
+    private @NonNull CompletableFuture<?> execute(@NonNull SyncPlan.Entry entry) {
+        HREF href = entry.href();
+        if (href == null) {
+            Optional.ofNullable(processorFactory.getOnExpires()).ifPresent(onExpires -> onExpires.accept(List.of(Path.of(entry.getPath()))));
+            return CompletableFuture.completedFuture(null);
+        }
+        CrawlScheduler scheduler = processorFactory.getScheduler();
+        // The scheduler repeats the task of the deferred request after its delay
+        Supplier<Page> page = () -> Page.of(href, transport, metrics).deferrable(scheduler != null);
+        return scheduler == null
+                ? CompletableFuture.supplyAsync(() -> processorFactory.processor(page.get()).process()).thenCompose(Function.identity())
+                : scheduler.schedule(href, () -> processorFactory.processor(page.get()).process()).thenCompose(Function.identity());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Add the file to the sync plan by the local state instead of the download
+ */
+@Getter
+@Slf4j
+public class PlanProcessor implements Processor<CompletableFuture<Stream<Path>>> {
+
+    private final Path root;
+    private final Page page;
+    private final SyncPlan plan;
+    private final CrawlIndex index;
+    private final LocalFolder folder;
+
+    PlanProcessor(@NonNull Path root, @NonNull Page page, @NonNull SyncPlan plan, @Nullable CrawlIndex index) {
+        this(root, page, plan, index, null);
+    }
+
+    PlanProcessor(@NonNull Path root, @NonNull Page page, @NonNull SyncPlan plan, @Nullable CrawlIndex index,
+                  @Nullable LocalFolder folder) {
+        this.root = Objects.requireNonNull(root, "PlanProcessor::new - root is null");
+        this.page = Objects.requireNonNull(page, "PlanProcessor::new - page is null");
+        this.plan = Objects.requireNonNull(plan, "PlanProcessor::new - plan is null");
+        this.index = index;
+        this.folder = folder;
+    }
+
+    /**
+     * Add the plan entry of the file
+     * @return completed future with the empty stream: no file is saved
+     */
+    @NonNull
+    @Override
+    public CompletableFuture<Stream<Path>> process() {
+        try {
+            this.getPlan().add(entry());
+        } catch (IOException ioex) {
+            logger.warn("Unable to plan file: '{}' by cause: {}", this.getPage().path(), ioex.getMessage());
+        }
+        return CompletableFuture.completedFuture(Stream.empty());
+    }
+
+    /**
+     * Plan entry by the local state of the file, the same way the file is processed by {@link FileSaveProcessor}
+     * @return plan entry
+     * @throws IOException in the case of error
+     */
+    private @NonNull SyncPlan.Entry entry() throws IOException {
+        HREF href = this.getPage().getHref();
+        long contentLength = Optional.ofNullable(href.getBytes()).orElse(0L);
+        LocalFolder localFolder = this.getFolder();
+        Optional<DownloadJournal> journal = localFolder != null && !localFolder.contains(href.name() + DownloadJournal.PART_SUFFIX)
+                ? Optional.empty()
+                : DownloadJournal.find(this.getRoot(), href.path().toString())
+                        .filter(found -> found.matches(contentLength, href.getDateTime()));
+        if (journal.isPresent()) {
+            return SyncPlan.Entry.of(SyncPlan.Action.RESUME, href, journal.get().remaining());
+        }
+        Path filePath = Path.of(this.getRoot().toString(), href.path().toString());
+        BasicFileAttributes attr;
+        try {
+            attr = localFolder != null ? localFolder.attributes(href.name().toString())
+                    : Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (NoSuchFileException ignore) {
+            attr = null;
+        }
+        if (attr == null) {
+            return SyncPlan.Entry.of(SyncPlan.Action.FETCH, href, contentLength);
+        }
+        if (attr.isRegularFile()) {
+            long fileSize = attr.size();
+            if (fileSize < contentLength) {
+                return SyncPlan.Entry.of(SyncPlan.Action.FETCH, href, contentLength);
+            } else if (fileSize == contentLength && isChanged()) {
+                return SyncPlan.Entry.of(SyncPlan.Action.CHECK, href, contentLength);
+            }
+        }
+        return SyncPlan.Entry.of(SyncPlan.Action.SKIP, href, 0L);
+    }
+
+    /**
+     * The file synced with the validators has the other creation time on the site
+     * @return true if the conditional request is required
+     */
+    private boolean isChanged() {
+        HREF href = this.getPage().getHref();
+        return Optional.ofNullable(this.getIndex())
+                .flatMap(index -> index.get(href.getUri()))
+                .filter(entry -> entry.getEtag() != null || entry.getLastModified() != null)
+                .filter(entry -> !Objects.equals(entry.getDateTime(), href.getDateTime()))
+                .isPresent();
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Dry run of the crawl: the listings are loaded and the files and the expired paths are added to the sync plan.
+ * The crawl index is only read, so the planned folders are not synced.
+ */
+@Getter
+public class PlanningProcessorFactory extends ComplexProcessorFactory {
+
+    private final SyncPlan plan;
+    private final CrawlIndex planIndex;
+
+    /**
+     * Constructor of the planning factory
+     * @param executor executor for the async execution
+     * @param scheduler scheduler of the child resources
+     * @param index crawl state index to check the changed files or null
+     * @param plan sync plan of the crawl
+     */
+    public PlanningProcessorFactory(@Nullable Executor executor, @Nullable CrawlScheduler scheduler,
+                                    @Nullable CrawlIndex index, @NonNull SyncPlan plan) {
+        this(executor, scheduler, index, plan, null);
+    }
+
+    /**
+     * Constructor of the planning factory with the crawl filter
+     * @param executor executor for the async execution
+     * @param scheduler scheduler of the child resources
+     * @param index crawl state index to check the changed files or null
+     * @param plan sync plan of the crawl
+     * @param filter filter of the crawled resources or null for {@link CrawlFilter#DEFAULT}
+     */
+    public PlanningProcessorFactory(@Nullable Executor executor, @Nullable CrawlScheduler scheduler,
+                                    @Nullable CrawlIndex index, @NonNull SyncPlan plan, @Nullable CrawlFilter filter) {
+        super(Objects.requireNonNull(plan, "PlanningProcessorFactory::new - plan is null").getRoot(),
+                CrawlContext.builder().executor(executor).scheduler(scheduler).onExpires(plan).filter(filter).build());
+        this.plan = plan;
+        this.planIndex = index;
+    }
+
+    @Override
+    protected Processor<CompletableFuture<Stream<Path>>> fileSaveProcessor(@NonNull Page page, @Nullable LocalFolder folder) {
+        return new PlanProcessor(getRoot(), page, plan, planIndex, folder);
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.github.sftwnd.etsiorg;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * Factory to get transformer by name
@@ -17,4 +18,14 @@ public interface ProcessorFactory<R> {
     @NonNull
     Processor<R> processor(@NonNull Page page);
 
+    /**
+     * Processor implementation by the page reference of the listing row
+     * @param page resource page reference
+     * @param folder local folder of the listing or null
+     * @return page processor
+     */
+    default @NonNull Processor<R> processor(@NonNull Page page, @Nullable LocalFolder folder) {
+        return processor(page);
+    }
+
 }
\ No newline at end of file
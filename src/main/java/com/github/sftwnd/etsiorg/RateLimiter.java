@@ -0,0 +1,83 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.Getter;
+
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket: the bucket holds the permits of one second (at least one permit) and is refilled
+ * at the constant rate. The permits are reserved by the single CAS of the time when the reserved permits
+ * are paid, so the caller waits outside of any lock and the consumers of different limiters never contend.
+ */
+@Getter
+public class RateLimiter {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double permitsPerSecond;
+    private final double nanosPerPermit;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final AtomicLong paid;
+
+    /**
+     * Constructor of the limiter
+     * @param permitsPerSecond rate of the permits
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    RateLimiter(double permitsPerSecond, @NonNull LongSupplier clock) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("RateLimiter::new - permitsPerSecond has to be positive: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.nanosPerPermit = SECOND / permitsPerSecond;
+        this.burstNanos = Math.max(SECOND, (long) Math.ceil(this.nanosPerPermit));
+        this.clock = Objects.requireNonNull(clock, "RateLimiter::new - clock is null");
+        // The bucket is full at the start
+        this.paid = new AtomicLong(clock.getAsLong() - this.burstNanos);
+    }
+
+    /**
+     * Reserve the permits
+     * @param permits number of the permits
+     * @return nanoseconds to wait before the permits are available
+     */
+    public long reserve(long permits) {
+        long cost = (long) Math.ceil(permits * nanosPerPermit);
+        long now = clock.getAsLong();
+        for (;;) {
+            long paid = this.paid.get();
+            // The unused permits over the burst are lost
+            long reserved = Math.max(paid, now - burstNanos) + cost;
+            if (this.paid.compareAndSet(paid, reserved)) {
+                return Math.max(0L, reserved - now);
+            }
+        }
+    }
+
+    /**
+     * Reserve the permits and wait until they are available
+     * @param permits number of the permits
+     * @throws InterruptedIOException if the wait has been interrupted
+     */
+    public void acquire(long permits) throws InterruptedIOException {
+        long wait = reserve(permits);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Rate limiter wait has been interrupted");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request has to be repeated after the backoff: the caller repeats it later instead of the thread waiting
+ * for the end of the backoff
+ */
+public class RetryDeferredException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long delay;
+
+    /**
+     * Constructor of the deferred request
+     * @param uri uri of the request
+     * @param delay nanoseconds to wait before the request is repeated
+     */
+    public RetryDeferredException(@NonNull URI uri, long delay) {
+        super("Request of: '" + uri + "' is deferred for " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms");
+        this.delay = Math.max(0L, delay);
+    }
+
+    /**
+     * Delay of the repeated request
+     * @return nanoseconds to wait before the request is repeated
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+}
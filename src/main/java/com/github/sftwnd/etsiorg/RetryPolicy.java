@@ -0,0 +1,126 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Retry policy of the requests: the retryable errors, the number of attempts and the exponential backoff with jitter
+ */
+@Getter
+public class RetryPolicy {
+
+    public static final int DEFAULT_ATTEMPTS = 6;
+    public static final Duration DEFAULT_BASE_DELAY = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(1);
+
+    /**
+     * Retry-After of the site is honoured up to this delay
+     */
+    public static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+    /**
+     * The response statuses of the transient errors
+     */
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(
+            HttpURLConnection.HTTP_CLIENT_TIMEOUT, 429,
+            HttpURLConnection.HTTP_INTERNAL_ERROR, HttpURLConnection.HTTP_BAD_GATEWAY,
+            HttpURLConnection.HTTP_UNAVAILABLE, HttpURLConnection.HTTP_GATEWAY_TIMEOUT);
+
+    private final int attempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+
+    /**
+     * Constructor of the policy with the default delays
+     * @param attempts maximum number of the attempts including the first one
+     */
+    public RetryPolicy(int attempts) {
+        this(attempts, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Constructor of the policy
+     * @param attempts maximum number of the attempts including the first one
+     * @param baseDelay delay before the first retry
+     * @param maxDelay maximum delay of the backoff
+     */
+    public RetryPolicy(int attempts, @NonNull Duration baseDelay, @NonNull Duration maxDelay) {
+        if (attempts <= 0) {
+            throw new IllegalArgumentException("RetryPolicy::new - attempts has to be positive: " + attempts);
+        }
+        this.attempts = attempts;
+        this.baseDelay = Objects.requireNonNull(baseDelay, "RetryPolicy::new - baseDelay is null");
+        this.maxDelay = Objects.requireNonNull(maxDelay, "RetryPolicy::new - maxDelay is null");
+    }
+
+    /**
+     * Check the response status is the transient error
+     * @param statusCode response status code
+     * @return true if the request has to be repeated
+     */
+    public boolean isRetryable(int statusCode) {
+        return RETRYABLE_STATUSES.contains(statusCode);
+    }
+
+    /**
+     * Check the request error is transient: the connection and I/O errors except the interruption
+     * @param throwable request error
+     * @return true if the request has to be repeated
+     */
+    public boolean isRetryable(@NonNull Throwable throwable) {
+        return throwable instanceof IOException && !(throwable instanceof InterruptedIOException);
+    }
+
+    /**
+     * Delay before the retry: Retry-After of the response if defined, otherwise the exponential backoff
+     * with the random half of the delay
+     * @param attempt number of the failed attempt starting with 1
+     * @param retryAfter Retry-After header of the response
+     * @return delay in nanoseconds
+     */
+    public long delay(int attempt, @Nullable String retryAfter) {
+        return retryAfter(retryAfter)
+                .map(Duration::toNanos)
+                .orElseGet(() -> {
+                    long delay = Math.min(maxDelay.toNanos(), baseDelay.toNanos() << Math.min(attempt - 1, 30));
+                    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                });
+    }
+
+    /**
+     * Parse Retry-After: delay in seconds or HTTP date
+     * @param retryAfter value of the header
+     * @return delay limited by MAX_RETRY_AFTER
+     */
+    static @NonNull Optional<Duration> retryAfter(@Nullable String retryAfter) {
+        return Optional.ofNullable(retryAfter)
+                .map(String::trim)
+                .filter(Predicate.not(String::isEmpty))
+                .map(value -> {
+                    try {
+                        return value.chars().allMatch(Character::isDigit) ? Duration.ofSeconds(Long.parseLong(value))
+                                : Duration.between(Instant.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                    } catch (DateTimeParseException | ArithmeticException | NumberFormatException ex) {
+                        return null;
+                    }
+                })
+                .map(delay -> delay.isNegative() ? Duration.ZERO : delay)
+                .map(delay -> delay.compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : delay);
+    }
+
+}
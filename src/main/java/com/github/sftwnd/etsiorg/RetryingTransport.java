@@ -0,0 +1,187 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Transport which repeats the requests failed by the transient errors with the backoff of the retry policy
+ * and stops the requests to the host while its circuit breaker is open. The requests wait on the delayed
+ * futures, so no thread is held by the wait. The deferred requests are not repeated by the transport:
+ * they are failed with the delay and the attempt is continued by the next request of the same resource.
+ * The attempt of the deferred request is kept for the delay and the open period of the circuit: the resource
+ * which is not requested again in this time (e.g. its task has been dropped) starts from the first attempt.
+ */
+@Slf4j
+@Getter
+public class RetryingTransport implements Transport {
+
+    private final Transport transport;
+    private final RetryPolicy policy;
+    private final int failureThreshold;
+    private final Duration open;
+    private final CrawlMetrics metrics;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<URI, Deferred> deferred = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the transport with the default circuit breakers
+     * @param transport transport of the requests
+     * @param policy retry policy
+     */
+    public RetryingTransport(@NonNull Transport transport, @NonNull RetryPolicy policy) {
+        this(transport, policy, CircuitBreaker.DEFAULT_FAILURES, CircuitBreaker.DEFAULT_OPEN, null);
+    }
+
+    /**
+     * Constructor of the transport
+     * @param transport transport of the requests
+     * @param policy retry policy
+     * @param failureThreshold consecutive failures which open the circuit of the host
+     * @param open duration of the open circuit
+     * @param metrics metrics of the retries (not recorded if null)
+     */
+    public RetryingTransport(@NonNull Transport transport, @NonNull RetryPolicy policy,
+                             int failureThreshold, @NonNull Duration open, @Nullable CrawlMetrics metrics) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("RetryingTransport::new - failureThreshold has to be positive: " + failureThreshold);
+        }
+        this.transport = Objects.requireNonNull(transport, "RetryingTransport::new - transport is null");
+        this.policy = Objects.requireNonNull(policy, "RetryingTransport::new - policy is null");
+        this.failureThreshold = failureThreshold;
+        this.open = Objects.requireNonNull(open, "RetryingTransport::new - open is null");
+        this.metrics = Optional.ofNullable(metrics).orElse(CrawlMetrics.NONE);
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Response> get(@NonNull URI uri, @NonNull Map<String, String> headers) {
+        Objects.requireNonNull(uri, "RetryingTransport::get - uri is null");
+        Objects.requireNonNull(headers, "RetryingTransport::get - headers is null");
+        return attempt(uri, headers, breaker(uri), 1, false);
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Response> tryGet(@NonNull URI uri, @NonNull Map<String, String> headers) {
+        Objects.requireNonNull(uri, "RetryingTransport::tryGet - uri is null");
+        Objects.requireNonNull(headers, "RetryingTransport::tryGet - headers is null");
+        return attempt(uri, headers, breaker(uri), Optional.ofNullable(deferred.remove(uri)).map(Deferred::getAttempt).orElse(1), true);
+    }
+
+    /**
+     * Time to wait before the request to the host of the resource
+     * @param href resource reference
+     * @return nanoseconds while the circuit of the host is open or 0
+     */
+    public long pause(@NonNull HREF href) {
+        return Optional.ofNullable(breakers.get(host(href.getUri()))).map(CircuitBreaker::pause).orElse(0L);
+    }
+
+    private @NonNull CompletableFuture<Response> attempt(@NonNull URI uri, @NonNull Map<String, String> headers,
+                                                         @NonNull CircuitBreaker breaker, int attempt, boolean defer) {
+        long wait = breaker.acquire();
+        if (wait > 0) {
+            return defer ? defer(uri, attempt, wait)
+                    : delay(wait).thenCompose(ignore -> attempt(uri, headers, breaker, attempt, false));
+        }
+        CompletableFuture<Response> sent;
+        try {
+            sent = this.transport.get(uri, headers);
+        } catch (RuntimeException rex) {
+            sent = CompletableFuture.failedFuture(rex);
+        }
+        return sent.handle((response, throwable) -> {
+            Throwable cause = unwrap(throwable);
+            if (response != null && !policy.isRetryable(response.statusCode())) {
+                breaker.success();
+                return CompletableFuture.completedFuture(response);
+            } else if (cause != null && !policy.isRetryable(cause)) {
+                breaker.release();
+                return CompletableFuture.<Response>failedFuture(cause);
+            }
+            if (breaker.failure()) {
+                logger.warn("Circuit of the host: '{}' has been opened for {} s", host(uri), open.toSeconds());
+                metrics.circuitOpened();
+            }
+            if (attempt >= policy.getAttempts()) {
+                return response != null ? CompletableFuture.completedFuture(response) : CompletableFuture.<Response>failedFuture(cause);
+            }
+            long delay = policy.delay(attempt, response == null ? null : response.header("Retry-After").orElse(null));
+            logger.warn("Attempt {} of: '{}' has been failed, the request is repeated in {} ms. Cause: {}", attempt, uri,
+                    TimeUnit.NANOSECONDS.toMillis(delay), response != null ? "HTTP " + response.statusCode() : cause.toString());
+            close(response);
+            metrics.retried();
+            return defer ? defer(uri, attempt + 1, delay)
+                    : delay(delay).thenCompose(ignore -> attempt(uri, headers, breaker, attempt + 1, false));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Fail the request with the delay and keep its attempt for the repeated request of the resource
+     */
+    private @NonNull CompletableFuture<Response> defer(@NonNull URI uri, int attempt, long delay) {
+        Deferred entry = new Deferred(attempt);
+        deferred.put(uri, entry);
+        CompletableFuture.delayedExecutor(delay + open.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(() -> deferred.remove(uri, entry));
+        return CompletableFuture.failedFuture(new RetryDeferredException(uri, delay));
+    }
+
+    /**
+     * Attempt of the deferred request: the entry is removed by its expiration only if it has not been replaced
+     */
+    @Getter
+    static final class Deferred {
+
+        private final int attempt;
+
+        private Deferred(int attempt) {
+            this.attempt = attempt;
+        }
+
+    }
+
+    private @NonNull CircuitBreaker breaker(@NonNull URI uri) {
+        return breakers.computeIfAbsent(host(uri), ignore -> new CircuitBreaker(failureThreshold, open));
+    }
+
+    private static @NonNull String host(@NonNull URI uri) {
+        return String.valueOf(uri.getAuthority());
+    }
+
+    private static @NonNull CompletableFuture<Void> delay(long nanos) {
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    private static @Nullable Throwable unwrap(@Nullable Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static void close(@Nullable Response response) {
+        if (response != null) {
+            try {
+                response.close();
+            } catch (IOException ioex) {
+                logger.debug("Unable to close the response. Cause: {}", ioex.getMessage());
+            }
+        }
+    }
+
+}
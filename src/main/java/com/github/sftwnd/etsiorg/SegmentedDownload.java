@@ -0,0 +1,148 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Segmented download of the large files: the file is split to the ranges loaded concurrently to the positions of one
+ * file extended to its size. The loaded segments are recorded in the download journal, so each of them is resumed independently.
+ * The file is loaded by a single stream if the site does not accept ranges. The helper streams take the free download
+ * slots of the scheduler, so the connections of the crawl stay within its download limit.
+ */
+@Getter
+@Slf4j
+public class SegmentedDownload {
+
+    public static final long DEFAULT_THRESHOLD = 64L << 20;
+    public static final int DEFAULT_SEGMENTS = 4;
+
+    private final CrawlScheduler scheduler;
+    private final long threshold;
+    private final int segments;
+
+    /**
+     * Constructor of the segmented download
+     * @param scheduler scheduler of the additional segment streams (all segments are loaded by the caller if null)
+     * @param threshold minimal size of the segmented file
+     * @param segments number of the segments
+     */
+    public SegmentedDownload(@Nullable CrawlScheduler scheduler, long threshold, int segments) {
+        if (segments < 2) {
+            throw new IllegalArgumentException("SegmentedDownload::new - segments has to be greater than 1: " + segments);
+        }
+        this.scheduler = scheduler;
+        this.threshold = threshold;
+        this.segments = segments;
+    }
+
+    /**
+     * Check the file has to be loaded by segments
+     * @param contentLength size of the file
+     * @return true if the file is large enough
+     */
+    public boolean applies(long contentLength) {
+        return contentLength >= this.threshold && contentLength >= this.segments;
+    }
+
+    /**
+     * Load the missing segments of the file
+     * @param page file page
+     * @param fileChannel channel of the partial file
+     * @param journal journal of the download
+     * @throws IOException in the case of error: the loaded segments are kept for the resume
+     */
+    public void download(@NonNull Page page, @NonNull FileChannel fileChannel, @NonNull DownloadJournal journal) throws IOException {
+        Objects.requireNonNull(page, "SegmentedDownload::download - page is null").close();
+        Objects.requireNonNull(fileChannel, "SegmentedDownload::download - fileChannel is null");
+        Queue<Integer> missing = Objects.requireNonNull(journal, "SegmentedDownload::download - journal is null").missing();
+        Integer first = missing.poll();
+        if (first != null) {
+            Page firstPage = page.child(page.getHref());
+            firstPage.connect(journal.from(first), journal.to(first) - 1);
+            if (!firstPage.isPartial()) {
+                logger.warn("Ranges are not accepted, file: '{}' is loaded by a single stream", page.path());
+                journal.reset(1);
+                firstPage.transferTo(fileChannel, 0L, journal.getLength(), journal.checkpoint(fileChannel));
+            } else {
+                load(page, fileChannel, journal, first, firstPage, missing);
+            }
+        }
+    }
+
+    /**
+     * Load the segments: the caller and the helpers take the segments from the queue. The helpers are started on the
+     * free download slots only. The caller waits for the segments in progress only, so the helpers which were not
+     * started in time do not block the download.
+     */
+    private void load(@NonNull Page page, @NonNull FileChannel fileChannel, @NonNull DownloadJournal journal,
+                      int first, @NonNull Page firstPage, @NonNull Queue<Integer> missing) throws IOException {
+        CountDownLatch done = new CountDownLatch(missing.size() + 1);
+        AtomicReference<IOException> error = new AtomicReference<>();
+        Runnable worker = () -> {
+            for (Integer segment = missing.poll(); segment != null; segment = missing.poll()) {
+                try {
+                    if (error.get() == null) {
+                        segment(page.child(page.getHref()), fileChannel, journal, segment, false);
+                    }
+                } catch (IOException ioex) {
+                    error.compareAndSet(null, ioex);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        for (int helper = Math.min(missing.size(), segments - 1); helper > 0 && this.scheduler != null; helper--) {
+            if (!this.scheduler.startHelper(worker)) {
+                break;
+            }
+        }
+        try {
+            segment(firstPage, fileChannel, journal, first, true);
+        } catch (IOException ioex) {
+            error.compareAndSet(null, ioex);
+        } finally {
+            done.countDown();
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Segmented download has been interrupted");
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    private static void segment(@NonNull Page page, @NonNull FileChannel fileChannel, @NonNull DownloadJournal journal,
+                                int segment, boolean connected) throws IOException {
+        long from = journal.from(segment);
+        long to = journal.to(segment);
+        try {
+            if (!connected) {
+                page.connect(from, to - 1);
+            }
+            if (!page.isPartial()) {
+                throw new IOException("Range " + from + "-" + (to - 1) + " has not been accepted for: '" + page.getUri() + "'");
+            }
+            page.transferTo(fileChannel, from, to);
+        } finally {
+            page.close();
+        }
+        fileChannel.force(false);
+        journal.completed(segment);
+        logger.debug("Segment {} [{}-{}) of: '{}' has been loaded", segment, from, to, page.path());
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Objects;
+
+/**
+ * Time zone of the listings: the creation times of the folder listing are the local times of the server,
+ * not of the JVM running the crawl
+ */
+public final class ServerTime {
+
+    /**
+     * Zone of the ETSI server
+     */
+    public static final ZoneId ETSI_ZONE = ZoneId.of("Europe/Paris");
+
+    private static volatile ZoneId zone = ETSI_ZONE;
+
+    private ServerTime() {
+    }
+
+    /**
+     * Zone of the listing times
+     * @return server zone
+     */
+    public static @NonNull ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Set the zone of the listing times
+     * @param zone server zone
+     */
+    public static void setZone(@NonNull ZoneId zone) {
+        ServerTime.zone = Objects.requireNonNull(zone, "ServerTime::setZone - zone is null");
+    }
+
+    /**
+     * Epoch seconds of the local time of the zone: the same as {@code dateTime.atZone(zone).toEpochSecond()}
+     * (the gap is passed by its length, the overlap takes the earlier offset), but without the zoned date time
+     * @param dateTime local time
+     * @param zone zone of the local time
+     * @return epoch seconds
+     */
+    public static long epochSecond(@NonNull LocalDateTime dateTime, @NonNull ZoneId zone) {
+        Objects.requireNonNull(dateTime, "ServerTime::epochSecond - dateTime is null");
+        ZoneRules rules = Objects.requireNonNull(zone, "ServerTime::epochSecond - zone is null").getRules();
+        // The offset before the transition is the earlier one of the overlap and shifts the gap time by the gap length
+        return dateTime.toEpochSecond(rules.getOffset(dateTime));
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Worker of the distributed crawl: leases the subtrees of the shared queue, processes them with the processor factory
+ * and reports the completions. The lease is renewed while the subtree is processed, so only the lease of the crashed
+ * worker expires.
+ */
+@Slf4j
+@Getter
+public class ShardWorker {
+
+    public static final int DEFAULT_DEPTH = 2;
+    public static final Duration DEFAULT_POLL = Duration.ofSeconds(1);
+
+    private final LeaseQueue queue;
+    private final ComplexProcessorFactory processorFactory;
+    private final Transport transport;
+    private final CrawlMetrics metrics;
+    private final String owner;
+    private final Duration lease;
+    private final Duration poll;
+
+    /**
+     * Constructor of the worker with the default lease named by the process
+     * @param queue shared work queue
+     * @param processorFactory factory of the subtree processors
+     */
+    public ShardWorker(@NonNull LeaseQueue queue, @NonNull ComplexProcessorFactory processorFactory) {
+        this(queue, processorFactory, null, null, defaultOwner(), LeaseQueue.DEFAULT_LEASE, DEFAULT_POLL);
+    }
+
+    /**
+     * Constructor of the worker
+     * @param queue shared work queue
+     * @param processorFactory factory of the subtree processors
+     * @param transport transport of the requests or null for the default one
+     * @param metrics crawl metrics or null
+     * @param owner name of the worker
+     * @param lease duration of the lease: renewed each third of it
+     * @param poll interval of the lease attempts while the other workers process the last subtrees
+     */
+    public ShardWorker(@NonNull LeaseQueue queue, @NonNull ComplexProcessorFactory processorFactory,
+                       @Nullable Transport transport, @Nullable CrawlMetrics metrics,
+                       @NonNull String owner, @NonNull Duration lease, @NonNull Duration poll) {
+        if (lease.isNegative() || lease.isZero() || poll.isNegative() || poll.isZero()) {
+            throw new IllegalArgumentException("ShardWorker::new - lease and poll must be positive: " + lease + ", " + poll);
+        }
+        this.queue = Objects.requireNonNull(queue, "ShardWorker::new - queue is null");
+        this.processorFactory = Objects.requireNonNull(processorFactory, "ShardWorker::new - processorFactory is null");
+        this.transport = Optional.ofNullable(transport).orElseGet(HttpClientTransport::getDefault);
+        this.metrics = Optional.ofNullable(metrics).orElse(CrawlMetrics.NONE);
+        this.owner = Objects.requireNonNull(owner, "ShardWorker::new - owner is null");
+        this.lease = lease;
+        this.poll = poll;
+    }
+
+    /**
+     * Seed the queue by the subtrees of the root if it has not been seeded yet and process the subtrees till the queue is finished
+     * @param root root of the crawl
+     * @param depth depth of the subtrees from the root
+     * @return number of the subtrees processed by the worker
+     * @throws IOException in the case of the queue error
+     */
+    public int run(@NonNull HREF root, int depth) throws IOException {
+        Objects.requireNonNull(root, "ShardWorker::run - root is null");
+        if (queue.initialize(() -> shards(Page.of(root, transport, metrics), depth, processorFactory.getFilter()))) {
+            logger.info("Worker {} has seeded the work queue: '{}'", owner, queue.getFile());
+        }
+        return run();
+    }
+
+    /**
+     * Process the subtrees of the seeded queue till it is finished
+     * @return number of the subtrees processed by the worker
+     * @throws IOException in the case of the queue error
+     */
+    public int run() throws IOException {
+        int processed = 0;
+        ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                Optional<LeaseQueue.Lease> leased = queue.lease(owner, lease);
+                if (leased.isPresent()) {
+                    if (process(leased.get(), renewal)) {
+                        processed++;
+                    }
+                } else if (queue.isFinished()) {
+                    break;
+                } else {
+                    // The rest of the subtrees are leased by the other workers: wait for the completion or the expiration
+                    sleep();
+                }
+            }
+        } finally {
+            renewal.shutdownNow();
+        }
+        logger.info("Worker {} has processed {} subtrees, queue: {}", owner, processed, queue.states());
+        return processed;
+    }
+
+    private boolean process(@NonNull LeaseQueue.Lease leased, @NonNull ScheduledExecutorService renewal) throws IOException {
+        HREF href = leased.getHref();
+        logger.info("Worker {} has leased: '{}'", owner, href.getUri());
+        AtomicReference<LeaseQueue.Lease> current = new AtomicReference<>(leased);
+        long period = Math.max(1L, lease.toMillis() / 3);
+        var renew = renewal.scheduleAtFixedRate(() -> {
+            try {
+                queue.renew(current.get(), lease).ifPresent(current::set);
+            } catch (IOException ioex) {
+                logger.warn("Unable to renew lease of: '{}'. Cause: {}", href.getUri(), ioex.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        try {
+            processorFactory.processor(Page.of(href, transport, metrics)).process().join();
+        } catch (RuntimeException rex) {
+            logger.error("Unable to process subtree: '{}'. Cause: {}", href.getUri(), rex.getMessage());
+            renew.cancel(false);
+            queue.release(current.get());
+            return false;
+        }
+        renew.cancel(false);
+        return queue.complete(current.get());
+    }
+
+    private void sleep() throws IOException {
+        try {
+            Thread.sleep(poll.toMillis());
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ShardWorker::run - interrupted", iex);
+        }
+    }
+
+    /**
+     * Subtrees of the page: the folders of the depth and the files above it.
+     * The folder of the versions is not split, because the actual version is chosen by the whole listing.
+     * @param page page of the folder
+     * @param depth depth of the subtrees from the page
+     * @param filter filter of the subtrees
+     * @return references to the subtrees
+     * @throws IOException in the case of error
+     */
+    static @NonNull Collection<HREF> shards(@NonNull Page page, int depth, @NonNull Predicate<HREF> filter) throws IOException {
+        if (depth <= 0 || page.getHref().isRegularFile()) {
+            return List.of(page.getHref());
+        }
+        List<HREF> children = new ArrayList<>();
+        try (ReadableByteChannel channel = Channels.newChannel(page.inputStream())) {
+            ListingParser.parse(channel, page.getUri().resolve("/"), children::add);
+        } finally {
+            page.close();
+        }
+        if (children.stream().anyMatch(HREF::isVersioned)) {
+            return List.of(page.getHref());
+        }
+        List<HREF> result = new ArrayList<>();
+        for (HREF child : children) {
+            if (filter.test(child)) {
+                result.addAll(shards(page.child(child), depth - 1, filter));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Name of the worker process
+     * @return pid@host
+     */
+    static @NonNull String defaultOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException ioex) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+}
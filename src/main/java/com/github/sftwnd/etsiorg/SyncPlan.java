@@ -0,0 +1,325 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Sync plan of the crawl in JSON lines: one object per file to fetch, resume, check, skip or per path to expire,
+ * e.g. {@code {"action":"FETCH","path":"/deliver/ts.pdf","uri":"https://www.etsi.org/deliver/ts.pdf","bytes":1024,"transfer":1024,"dateTime":"2022-04-21T08:39"}}
+ */
+@Slf4j
+public class SyncPlan implements Consumer<Collection<Path>>, Closeable {
+
+    private static final Pattern FIELD_PATTERN = Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|(-?\\d+)|null)");
+
+    /**
+     * Action of the plan entry
+     */
+    public enum Action {
+        /** The file is loaded from the very beginning */
+        FETCH,
+        /** The unfinished download is continued */
+        RESUME,
+        /** The file of the same size has been changed on the site: it is checked by the conditional request */
+        CHECK,
+        /** The file is in place */
+        SKIP,
+        /** The path of the old version is deleted */
+        EXPIRE
+    }
+
+    /**
+     * Entry of the plan
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Entry {
+
+        private final Action action;
+
+        /**
+         * Path of the resource on the site
+         */
+        private final String path;
+
+        /**
+         * URI of the resource or null for the expired path
+         */
+        private final URI uri;
+
+        /**
+         * Size of the resource (of the local tree for the expired path)
+         */
+        private final long bytes;
+
+        /**
+         * Bytes to be loaded
+         */
+        private final long transfer;
+
+        private final LocalDateTime dateTime;
+
+        /**
+         * Entry of the site resource
+         * @param action action of the entry
+         * @param href resource reference
+         * @param transfer bytes to be loaded
+         * @return plan entry
+         */
+        public static @NonNull Entry of(@NonNull Action action, @NonNull HREF href, long transfer) {
+            return new Entry(Objects.requireNonNull(action, "SyncPlan.Entry::of - action is null"),
+                    href.path().toString(), href.getUri(), Optional.ofNullable(href.getBytes()).orElse(0L), transfer, href.getDateTime());
+        }
+
+        /**
+         * Entry of the expired path
+         * @param path path of the site
+         * @param bytes size of the local tree
+         * @return plan entry
+         */
+        public static @NonNull Entry expired(@NonNull Path path, long bytes) {
+            return new Entry(Action.EXPIRE, path.toString(), null, bytes, 0L, null);
+        }
+
+        /**
+         * Reference to the site resource of the entry
+         * @return resource reference or null for the expired path
+         */
+        public @Nullable HREF href() {
+            return uri == null ? null : HREF.builder().uri(uri).bytes(bytes).dateTime(dateTime).build();
+        }
+
+        /**
+         * Check the entry belongs to the worker: the entries are split by the path hash
+         * @param worker number of the worker from 0
+         * @param workers number of the workers
+         * @return true if the entry is executed by the worker
+         */
+        public boolean isAssigned(int worker, int workers) {
+            return Math.floorMod(path.hashCode(), workers) == worker;
+        }
+
+        /**
+         * JSON representation of the entry
+         * @return JSON object in the single line
+         */
+        public @NonNull String json() {
+            StringBuilder json = new StringBuilder("{\"action\":\"").append(action.name()).append('"');
+            string(json.append(",\"path\":"), path);
+            if (uri != null) {
+                string(json.append(",\"uri\":"), uri.toString());
+            }
+            json.append(",\"bytes\":").append(bytes).append(",\"transfer\":").append(transfer);
+            if (dateTime != null) {
+                string(json.append(",\"dateTime\":"), dateTime.toString());
+            }
+            return json.append('}').toString();
+        }
+
+        /**
+         * Parse the entry of the plan line
+         * @param json JSON object of the entry
+         * @return plan entry
+         * @throws IllegalArgumentException if the line is not the plan entry
+         */
+        public static @NonNull Entry parse(@NonNull String json) {
+            Map<String, String> fields = new HashMap<>();
+            for (Matcher matcher = FIELD_PATTERN.matcher(json); matcher.find(); ) {
+                fields.put(matcher.group(1), matcher.group(2) != null ? unescape(matcher.group(2)) : matcher.group(3));
+            }
+            if (!fields.containsKey("action") || !fields.containsKey("path")) {
+                throw new IllegalArgumentException("SyncPlan.Entry::parse - no action or path: " + json);
+            }
+            return new Entry(Action.valueOf(fields.get("action")), fields.get("path"),
+                    Optional.ofNullable(fields.get("uri")).map(URI::create).orElse(null),
+                    Optional.ofNullable(fields.get("bytes")).map(Long::parseLong).orElse(0L),
+                    Optional.ofNullable(fields.get("transfer")).map(Long::parseLong).orElse(0L),
+                    Optional.ofNullable(fields.get("dateTime")).map(LocalDateTime::parse).orElse(null));
+        }
+
+        private static void string(@NonNull StringBuilder json, @NonNull String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"' || ch == '\\') {
+                    json.append('\\').append(ch);
+                } else if (ch < ' ') {
+                    json.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    json.append(ch);
+                }
+            }
+            json.append('"');
+        }
+
+        private static @NonNull String unescape(@NonNull String value) {
+            if (value.indexOf('\\') < 0) {
+                return value;
+            }
+            StringBuilder result = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '\\' && i + 1 < value.length()) {
+                    char escaped = value.charAt(++i);
+                    if (escaped == 'u' && i + 4 < value.length()) {
+                        result.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    } else {
+                        result.append(escaped);
+                    }
+                } else {
+                    result.append(ch);
+                }
+            }
+            return result.toString();
+        }
+
+    }
+
+    @Getter
+    private final Path root;
+
+    private final Writer writer;
+    private final Map<Action, LongAdder> files = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> bytes = new EnumMap<>(Action.class);
+
+    /**
+     * Constructor of the plan
+     * @param root destination root of the planned crawl
+     * @param writer writer of the plan lines
+     */
+    public SyncPlan(@NonNull Path root, @NonNull Writer writer) {
+        this.root = Objects.requireNonNull(root, "SyncPlan::new - root is null");
+        this.writer = Objects.requireNonNull(writer, "SyncPlan::new - writer is null");
+        for (Action action : Action.values()) {
+            files.put(action, new LongAdder());
+            bytes.put(action, new LongAdder());
+        }
+    }
+
+    /**
+     * Create the plan file
+     * @param root destination root of the planned crawl
+     * @param file path to the plan file
+     * @return sync plan
+     * @throws IOException in the case of error
+     */
+    public static @NonNull SyncPlan create(@NonNull Path root, @NonNull Path file) throws IOException {
+        return new SyncPlan(root, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Entries of the plan file
+     * @param file path to the plan file
+     * @return lazy stream of the entries to be closed
+     * @throws IOException in the case of error
+     */
+    public static @NonNull Stream<Entry> read(@NonNull Path file) throws IOException {
+        return Files.lines(file, StandardCharsets.UTF_8)
+                .filter(line -> !line.isBlank())
+                .flatMap(line -> {
+                    try {
+                        return Stream.of(Entry.parse(line));
+                    } catch (RuntimeException rex) {
+                        logger.warn("Sync plan record is skipped: '{}'", line);
+                        return Stream.empty();
+                    }
+                });
+    }
+
+    /**
+     * Add the entry to the plan
+     * @param entry plan entry
+     */
+    public void add(@NonNull Entry entry) {
+        files.get(entry.getAction()).increment();
+        bytes.get(entry.getAction()).add(entry.getAction() == Action.EXPIRE || entry.getAction() == Action.SKIP ? entry.getBytes() : entry.getTransfer());
+        synchronized (writer) {
+            try {
+                writer.write(entry.json());
+                writer.write(System.lineSeparator());
+            } catch (IOException ioex) {
+                logger.warn("Unable to write sync plan entry: '{}'. Cause: {}", entry.getPath(), ioex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Add the expired paths to the plan
+     * @param paths paths of the site
+     */
+    @Override
+    public void accept(@NonNull Collection<Path> paths) {
+        for (Path path : paths) {
+            Path expired = Path.of(root.toString(), path.toString());
+            if (Files.exists(expired)) {
+                try (Stream<Path> files = Files.walk(expired)) {
+                    add(Entry.expired(path, files.filter(Files::isRegularFile).mapToLong(SyncPlan::size).sum()));
+                } catch (IOException ioex) {
+                    logger.warn("Unable to walk expired path: '{}'. Cause: {}", expired, ioex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of the entries of the action
+     * @param action plan action
+     * @return number of the entries
+     */
+    public long getFiles(@NonNull Action action) {
+        return files.get(action).sum();
+    }
+
+    /**
+     * Bytes of the action: loaded by the fetch, resume and check, in place for the skip and deleted by the expiration
+     * @param action plan action
+     * @return number of the bytes
+     */
+    public long getBytes(@NonNull Action action) {
+        return bytes.get(action).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+        for (Action action : Action.values()) {
+            logger.info("Sync plan {}: {} entries, {} bytes", action, getFiles(action), getBytes(action));
+        }
+    }
+
+    private static long size(@NonNull Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ioex) {
+            return 0L;
+        }
+    }
+
+}
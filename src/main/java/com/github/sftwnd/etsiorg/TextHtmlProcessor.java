@@ -6,27 +6,30 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static java.util.regex.Pattern.CASE_INSENSITIVE;
-
 /**
  * Save file if one doesn't exist
  */
@@ -37,7 +40,12 @@ public class TextHtmlProcessor implements Processor<CompletableFuture<Stream<Pat
     private final Page page;
     private final ProcessorFactory<CompletableFuture<Stream<Path>>> processorFactory;
     private final Executor executor;
+    private final CrawlScheduler scheduler;
+    private final CrawlIndex index;
     private final Consumer<Collection<Path>> onExpires;
+    private final CrawlSink sink;
+    private final CrawlFilter filter;
+    private final LocalFolder folder;
 
     /**
      * Constructor of Text Html Processor
@@ -50,11 +58,35 @@ public class TextHtmlProcessor implements Processor<CompletableFuture<Stream<Pat
                       @NonNull ProcessorFactory<CompletableFuture<Stream<Path>>> processorFactory,
                       @Nullable Executor executor,
                       @Nullable Consumer<Collection<Path>> onExpires) {
+        this(page, null, processorFactory, CrawlContext.builder().executor(executor).onExpires(onExpires).build());
+    }
+
+    /**
+     * Constructor of Text Html Processor with the services of the crawl
+     * @param page text/html reference
+     * @param folder local folder of the listing passed to the child processors: the folder is listed once
+     *               for all the files instead of the file system calls per file (no folder if null)
+     * @param processorFactory factory for processor resource
+     * @param context services of the crawl: without the scheduler the children are executed unbounded, without
+     *                the index there is no incremental crawl, with the sink the children are awaited by the counter
+     *                instead of the result collection, the filter of the listing rows is {@link CrawlFilter#ALL} if not defined
+     */
+    TextHtmlProcessor(@NonNull Page page,
+                      @Nullable LocalFolder folder,
+                      @NonNull ProcessorFactory<CompletableFuture<Stream<Path>>> processorFactory,
+                      @NonNull CrawlContext context) {
         this.page = Objects.requireNonNull(page, "TextHtmlProcessor::new - page is null");
         this.processorFactory = Objects.requireNonNull(processorFactory, "TextHtmlProcessor::new - processorFactory is null");
-        this.executor = executor;
-        this.onExpires = onExpires;
+        Objects.requireNonNull(context, "TextHtmlProcessor::new - context is null");
+        this.executor = context.getExecutor();
+        this.scheduler = context.getScheduler();
+        this.index = context.getIndex();
+        this.onExpires = context.getOnExpires();
+        this.sink = context.getSink();
+        this.filter = Optional.ofNullable(context.getFilter()).orElse(CrawlFilter.ALL);
+        this.folder = folder;
     }
+
     /**
      * Process file with content or references recursively to load the tree of files
      * @return Stream of loaded file paths
@@ -63,19 +95,90 @@ public class TextHtmlProcessor implements Processor<CompletableFuture<Stream<Pat
     public @NonNull CompletableFuture<Stream<Path>> process() {
         final Page page = this.getPage();
         logger.debug("Start text/html process: '{}'", page.path());
+        Collection<CompletableFuture<Stream<Path>>> futures = new LinkedList<>();
+        Pending pending = new Pending();
+        Consumer<CompletableFuture<Stream<Path>>> children = this.getSink() == null ? futures::add : pending::add;
         try {
-            var result = swap(
-                    parseFile(page)
-                            .map(href -> CompletableFuture
-                                    .supplyAsync(() -> Page.of(href))
-                                    .thenApply(this.getProcessorFactory()::processor)
-                                    .thenCompose(Processor::process)));
-            logger.trace("Text/html page has been processed: '{}'", page.path());
-            return result;
+            Optional.ofNullable(this.getIndex()).ifPresent(index -> index.conditional(page));
+            Set<HREF> processed = Collections.newSetFromMap(new IdentityHashMap<>());
+            // Children are scheduled while the rest of the listing is loaded
+            Consumer<HREF> consumer = href -> {
+                if (this.getIndex() != null) {
+                    processed.add(href);
+                }
+                children.accept(this.schedule(href));
+            };
+            if (isUnchanged(page.getHref())) {
+                replay(page, false, consumer);
+            } else {
+                Collection<HREF> listed = new LinkedList<>();
+                if (parseFile(page, new Rows(consumer, false), listed)) {
+                    // All the rows are recorded: the filter is applied to the replayed rows again, so the rows
+                    // of the widened filter are found without the change of the folder
+                    Optional.ofNullable(this.getIndex()).ifPresent(index -> index.listed(page.getHref(), listed, processed::contains));
+                } else {
+                    logger.debug("Folder: '{}' has not been modified since the last sync", page.path());
+                    replay(page, true, consumer);
+                }
+            }
+        } catch (RetryDeferredException drex) {
+            // The listing is requested before its rows, so the task is repeated from the very beginning
+            logger.debug("Text/html page: '{}' is deferred. Cause: {}", page.path(), drex.getMessage());
+            throw new UncheckedIOException(drex);
         } catch (IOException ioex) {
             logger.error("Unable to process text/html page: '{}'. Cause[{}]: {}", page.path(), ioex.getClass().getSimpleName(), ioex.getMessage());
-            return CompletableFuture.completedFuture(Stream.empty());
+            Optional.ofNullable(this.getIndex()).ifPresent(index -> index.failed(page.getHref()));
+            // Children scheduled before the error are processed anyway
+            return this.getSink() != null ? pending.complete()
+                    : futures.isEmpty() ? CompletableFuture.completedFuture(Stream.empty()) : swap(futures.stream());
         }
+        var result = this.getSink() == null ? swap(futures.stream()) : pending.complete();
+        logger.trace("Text/html page has been processed: '{}'", page.path());
+        return this.getIndex() == null ? result
+                : result.whenComplete((ignore, throwable) -> this.getIndex().completed(page, throwable == null));
+    }
+
+    /**
+     * Check the folder was synced in the previous run and its creation time has not been changed since
+     * @param href folder reference
+     * @return true if the folder listing can be replayed from the index
+     */
+    private boolean isUnchanged(@NonNull HREF href) {
+        if (this.getIndex() != null && this.getIndex().isUnchanged(href)) {
+            logger.debug("Folder: '{}' has not been changed since the last sync", href.path());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pass the rows of the last sync of the folder to the consumer instead of the listing: the rows are filtered
+     * and the actual version is chosen the same way as for the loaded listing
+     * @param page folder page
+     * @param current true if the listing has not been modified, false if the folder time has not been changed
+     * @param consumer consumer of the references to load
+     */
+    private void replay(@NonNull Page page, boolean current, @NonNull Consumer<HREF> consumer) {
+        Collection<HREF> replayed = this.getIndex().replay(page.getHref(), current);
+        logger.trace("Rows of the folder: '{}' are replayed: {}", page.path(), replayed.size());
+        Rows rows = new Rows(consumer, true);
+        replayed.forEach(rows);
+        rows.complete();
+    }
+
+    /**
+     * Schedule processing of the child resource
+     * @param href child resource reference
+     * @return future of the child resource processing result
+     */
+    private @NonNull CompletableFuture<Stream<Path>> schedule(@NonNull HREF href) {
+        // The scheduler repeats the task of the deferred request after its delay
+        Supplier<Page> child = () -> this.getPage().child(href).deferrable(this.getScheduler() != null);
+        Supplier<CompletableFuture<Stream<Path>>> task = () -> (this.getFolder() == null
+                ? this.getProcessorFactory().processor(child.get())
+                : this.getProcessorFactory().processor(child.get(), this.getFolder())).process();
+        return (this.getScheduler() == null ? CompletableFuture.supplyAsync(task) : this.getScheduler().schedule(href, task))
+                .thenCompose(Function.identity());
     }
 
     /**
@@ -95,6 +198,100 @@ public class TextHtmlProcessor implements Processor<CompletableFuture<Stream<Pat
                 : CompletableFuture.allOf(futures).thenApplyAsync(swapAsync, getExecutor());
     }
 
+    /**
+     * Rows of the listing passed to the processing: the excluded rows are skipped, the unversioned ones are passed
+     * as soon as they come and the actual version of the filtered ones after the whole listing
+     */
+    private class Rows implements Consumer<HREF> {
+
+        private final Consumer<HREF> consumer;
+        private final boolean replayed;
+        private final Collection<HREF> versioned = new LinkedList<>();
+
+        private Rows(@NonNull Consumer<HREF> consumer, boolean replayed) {
+            this.consumer = consumer;
+            this.replayed = replayed;
+        }
+
+        @Override
+        public void accept(@NonNull HREF href) {
+            // The actual version is chosen of the versions passed the filter
+            if (!getFilter().test(href)) {
+                logger.trace("Excluded by the filter: '{}'", href.path());
+            } else if (href.isVersioned()) {
+                versioned.add(href);
+            } else {
+                consumer.accept(href);
+            }
+        }
+
+        /**
+         * All the rows have been passed: pass the actual version and expire the others
+         */
+        private void complete() {
+            versioned.stream()
+                    .max(Comparator.comparingLong(HREF::getVersion))
+                    .ifPresent(actualRef -> {
+                        consumer.accept(actualRef);
+                        if (replayed) {
+                            logger.trace("Actual version is replayed: '{}'", actualRef.path());
+                        } else {
+                            logger.info("Found actual version: '{}'", actualRef.path());
+                        }
+                        if (getOnExpires() != null) {
+                            Optional.of(versioned.stream()
+                                            .filter(Predicate.not(href -> href == actualRef))
+                                            .map(HREF::path)
+                                            .collect(Collectors.toList()))
+                                    .filter(Predicate.not(Collection::isEmpty))
+                                    .ifPresent(getOnExpires());
+                        }
+                    });
+        }
+
+    }
+
+    /**
+     * Counter of the children in progress: the parent is completed after the last child without the references
+     * to the completed ones, the first error of the children is the error of the parent
+     */
+    private static class Pending {
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CompletableFuture<Stream<Path>> result = new CompletableFuture<>();
+
+        private void add(@NonNull CompletableFuture<Stream<Path>> child) {
+            pending.incrementAndGet();
+            child.whenComplete((ignore, throwable) -> {
+                if (throwable != null) {
+                    error.compareAndSet(null, throwable);
+                }
+                release();
+            });
+        }
+
+        /**
+         * All the children have been added
+         * @return future completed after the last child
+         */
+        private @NonNull CompletableFuture<Stream<Path>> complete() {
+            release();
+            return result;
+        }
+
+        private void release() {
+            if (pending.decrementAndGet() == 0) {
+                if (error.get() == null) {
+                    result.complete(Stream.empty());
+                } else {
+                    result.completeExceptionally(error.get());
+                }
+            }
+        }
+
+    }
+
     /*
         Folder example:
 
@@ -138,73 +335,41 @@ public class TextHtmlProcessor implements Processor<CompletableFuture<Stream<Pat
                 <br></pre><hr></body></html>
 
      */
-    private static final Pattern REF_PATTERN = Pattern.compile(
-            "<br>\\s*(\\d+)/(\\d+)/(\\d+)\\s+(\\d+):(\\d+)\\s+(.)M\\s+(?:(\\d+)|\\S+(dir)\\S+)\\s+<a\\s+.*?href\\s*=\\s*\"(.*?)\".*?>(.*?)</a>",
-            CASE_INSENSITIVE);
-
     /**
-     * Parse loader with references to the stream of URI
+     * Parse the listing and pass the references to the rows: unversioned ones as soon as they are parsed,
+     * the actual version after the whole listing
      * @param page Page description to load
-     * @return list of uri to load
-     */
-    private @NonNull Stream<HREF> parseFile(@NonNull Page page) throws IOException {
-        Matcher matcher = REF_PATTERN.matcher(loadFile(page));
-        Collection<HREF> hrefs = new LinkedList<>();
-        Collection<HREF> versionedHrefs = new LinkedList<>();
-        while (matcher.find()) {
-            HREF href = HREF.builder()
-                    .uri(page.getUri().resolve("/").resolve(matcher.group(9)))
-                    .bytes(Optional.ofNullable(matcher.group(7))
-                            .filter(Predicate.not(String::isBlank))
-                            .map(Long::parseLong).orElse(null))
-                    .dateTime(LocalDateTime.of(
-                            Integer.parseInt(matcher.group(3)),
-                            Integer.parseInt(matcher.group(1)),
-                            Integer.parseInt(matcher.group(2)),
-                            Integer.parseInt(matcher.group(4)) % 12 + (matcher.group(6).charAt(0) == 'P' ? 12 : 0),
-                            Integer.parseInt(matcher.group(5))))
-                    .regularFile(! Optional.ofNullable(matcher.group(8))
-                            .map(String::toLowerCase).map(String::trim)
-                            .map("dir"::equals)
-                            .orElse(false))
-                    .build();
-            (href.isVersioned() ? versionedHrefs : hrefs).add(href);
-            logger.trace("Found {}: {}", href.isRegularFile() ? "file" : "path", href);
-        }
-        versionedHrefs
-                .stream()
-                .max(Comparator.comparing(href -> href.name().toString()))
-                .ifPresent(
-                        actualRef -> {
-                            hrefs.add(actualRef);
-                            logger.info("Found actual version: '{}'", actualRef.path());
-                            if (this.getOnExpires() != null) {
-                                Optional.of(versionedHrefs
-                                                .stream()
-                                                .filter(Predicate.not(href -> href == actualRef))
-                                                .map(HREF::path)
-                                                .collect(Collectors.toList()))
-                                        .filter(Predicate.not(Collection::isEmpty))
-                                        .ifPresent(this.getOnExpires());
-                            }
-                        });
-        return hrefs.stream();
-    }
-
-    /**
-     * Load text/html file to String
-     * @param page page to load
-     * @return loaded text file as String
+     * @param consumer rows of the listing to load
+     * @param listed all the parsed rows
+     * @return false if the listing has not been modified since the last sync
      * @throws IOException in the case of error
      */
-    private @NonNull String loadFile(@NonNull Page page) throws IOException {
-        byte[] buff = new byte[Long.valueOf(page.contentLength()).intValue()];
-        try (InputStream inputStream = page.inputStream()) {
-            for (int readed = 0; readed < buff.length; ) {
-                readed += inputStream.read(buff, readed, buff.length - readed);
+    private boolean parseFile(@NonNull Page page, @NonNull Rows consumer, @NonNull Collection<HREF> listed) throws IOException {
+        AtomicInteger rows = new AtomicInteger();
+        CrawlEvents.Listing event = new CrawlEvents.Listing();
+        event.begin();
+        long start = System.nanoTime();
+        try (ReadableByteChannel channel = Channels.newChannel(page.inputStream())) {
+            if (!page.isNotModified()) {
+                ListingParser.parse(channel, page.getUri().resolve("/"), href -> {
+                    rows.incrementAndGet();
+                    listed.add(href);
+                    consumer.accept(href);
+                });
             }
         }
-        return new String(buff);
+        page.getMetrics().listing(System.nanoTime() - start, rows.get(), page.isNotModified());
+        if (event.shouldCommit()) {
+            event.uri = page.getUri().toString();
+            event.rows = rows.get();
+            event.notModified = page.isNotModified();
+            event.commit();
+        }
+        if (page.isNotModified()) {
+            return false;
+        }
+        consumer.complete();
+        return true;
     }
 
 }
\ No newline at end of file
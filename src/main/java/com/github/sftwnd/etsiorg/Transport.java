@@ -0,0 +1,84 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP transport of the site resources
+ */
+public interface Transport {
+
+    /**
+     * Send GET request to the resource
+     * @param uri resource uri
+     * @param headers additional request headers
+     * @return future of the response: completes when the response headers are received
+     */
+    @NonNull
+    CompletableFuture<Response> get(@NonNull URI uri, @NonNull Map<String, String> headers);
+
+    /**
+     * Send GET request without the wait for the backoff: the request which has to be repeated is failed
+     * by the {@link RetryDeferredException} with the delay and the next request of the resource is the repeated one
+     * @param uri resource uri
+     * @param headers additional request headers
+     * @return future of the response: completes when the response headers are received
+     */
+    @NonNull
+    default CompletableFuture<Response> tryGet(@NonNull URI uri, @NonNull Map<String, String> headers) {
+        return get(uri, headers);
+    }
+
+    /**
+     * Response of the resource request. The body has to be closed to return the connection to the pool.
+     */
+    interface Response extends Closeable {
+
+        /**
+         * HTTP status code
+         * @return status code of the response
+         */
+        int statusCode();
+
+        /**
+         * Response header value
+         * @param name header name (case insensitive)
+         * @return first value of the header
+         */
+        @NonNull
+        Optional<String> header(@NonNull String name);
+
+        /**
+         * Content-Length of the response
+         * @return length of the body or -1 if undefined or malformed
+         */
+        default long contentLength() {
+            try {
+                return header("Content-Length").map(String::trim).map(Long::parseLong).filter(length -> length >= 0).orElse(-1L);
+            } catch (NumberFormatException nfex) {
+                return -1L;
+            }
+        }
+
+        /**
+         * Response body stream
+         * @return body of the response
+         */
+        @NonNull
+        InputStream body();
+
+        @Override
+        default void close() throws IOException {
+            body().close();
+        }
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Test with the temporary folder: target/&lt;testClass&gt;.test is created before each test and deleted after it
+ */
+abstract class AbstractRootTest {
+
+    Path root;
+
+    @BeforeEach
+    void createRoot() throws IOException {
+        String name = getClass().getSimpleName();
+        this.root = Files.createDirectories(Path.of("target", Character.toLowerCase(name.charAt(0)) + name.substring(1) + ".test"));
+    }
+
+    @AfterEach
+    void deleteRoot() throws IOException {
+        try (Stream<Path> stream = Files.walk(this.root)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } finally {
+            this.root = null;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.io.IOException;
+
+/**
+ * Test with the temporary folder and the local stub server: the server is stopped before the folder is deleted
+ */
+abstract class AbstractStubServerTest extends AbstractRootTest {
+
+    StubServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        this.server = new StubServer();
+    }
+
+    @AfterEach
+    void stopServer() {
+        try {
+            this.server.close();
+        } finally {
+            this.server = null;
+        }
+    }
+
+}
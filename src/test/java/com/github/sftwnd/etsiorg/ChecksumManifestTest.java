@@ -0,0 +1,110 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ChecksumManifestTest extends AbstractRootTest {
+
+    private static final String EMPTY = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void checksumTest() throws IOException {
+        Path file = Files.writeString(root.resolve("abc.txt"), "abc");
+        assertEquals(ABC, ChecksumManifest.checksum(file));
+        assertEquals(EMPTY, ChecksumManifest.checksum(Files.createFile(root.resolve("empty.txt"))));
+    }
+
+    @Test
+    void recordTest() throws IOException {
+        Path file = root.resolve("abc.txt");
+        ChecksumManifest.record(file, EMPTY);
+        ChecksumManifest.record(root.resolve("other file.txt"), EMPTY);
+        ChecksumManifest.record(file, ABC);
+        assertEquals(Optional.of(ABC), ChecksumManifest.get(file));
+        // The format of sha256sum
+        assertEquals(List.of(ABC + "  abc.txt", EMPTY + "  other file.txt"),
+                Files.readAllLines(root.resolve(ChecksumManifest.MANIFEST_FILE), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bufferedChecksumTest() throws IOException {
+        byte[] content = new byte[(1 << 20) + 17];
+        new Random(1).nextBytes(content);
+        MessageDigest digest = ChecksumManifest.digest();
+        digest.update(content);
+        assertEquals(ChecksumManifest.hex(digest), ChecksumManifest.checksum(Files.write(root.resolve("file.bin"), content)));
+    }
+
+    @Test
+    void appendTest() throws IOException {
+        ChecksumManifest.record(root.resolve("b.txt"), ABC);
+        ChecksumManifest.record(root.resolve("a.txt"), EMPTY);
+        ChecksumManifest.record(root.resolve("b.txt"), ABC);
+        // The new files are appended
+        assertEquals(List.of(ABC + "  b.txt", EMPTY + "  a.txt"),
+                Files.readAllLines(root.resolve(ChecksumManifest.MANIFEST_FILE), StandardCharsets.UTF_8));
+        // The manifest changed outside is read again
+        Files.delete(root.resolve(ChecksumManifest.MANIFEST_FILE));
+        ChecksumManifest.record(root.resolve("b.txt"), ABC);
+        assertEquals(List.of(ABC + "  b.txt"), Files.readAllLines(root.resolve(ChecksumManifest.MANIFEST_FILE), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void concurrentRecordTest() throws Exception {
+        int folders = 4;
+        int files = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int f = 0; f < folders; f++) {
+                Path folder = Files.createDirectories(root.resolve("folder" + f));
+                for (int i = 0; i < files; i++) {
+                    Path file = folder.resolve("file" + i + ".txt");
+                    futures.add(executor.submit(() -> {
+                        ChecksumManifest.record(file, ABC);
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int f = 0; f < folders; f++) {
+            Path manifest = root.resolve("folder" + f).resolve(ChecksumManifest.MANIFEST_FILE);
+            assertEquals(files, Files.readAllLines(manifest, StandardCharsets.UTF_8).size());
+            assertEquals(files, ChecksumManifest.read(manifest).size());
+        }
+    }
+
+    @Test
+    void removeTest() throws IOException {
+        Path file = root.resolve("abc.txt");
+        ChecksumManifest.record(file, ABC);
+        ChecksumManifest.remove(root.resolve("other.txt"));
+        assertEquals(Map.of("abc.txt", ABC), ChecksumManifest.read(root.resolve(ChecksumManifest.MANIFEST_FILE)));
+        ChecksumManifest.remove(file);
+        assertEquals(Optional.empty(), ChecksumManifest.get(file));
+        assertFalse(Files.exists(root.resolve(ChecksumManifest.MANIFEST_FILE)));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChecksumVerifierTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    @Test
+    void illegalParallelismTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ChecksumVerifier(root, null, 0));
+    }
+
+    @Test
+    void verifyTest() throws IOException {
+        assertEquals(8, crawl());
+        ChecksumVerifier.Report report = new ChecksumVerifier(root).verify(false);
+        assertTrue(report.isValid());
+        assertEquals(8, report.getVerified());
+    }
+
+    @Test
+    void reportTest() throws IOException {
+        assertEquals(8, crawl());
+        Files.writeString(file(1), "broken");
+        Files.delete(file(2));
+        ChecksumVerifier.Report report = new ChecksumVerifier(root, null, 2).verify(false);
+        assertFalse(report.isValid());
+        assertEquals(6, report.getVerified());
+        assertEquals(List.of(file(1)), report.getCorrupted());
+        assertEquals(List.of(file(2)), report.getMissing());
+        // The report does not change the tree
+        assertEquals("broken", Files.readString(file(1)));
+    }
+
+    @Test
+    void repairTest() throws IOException {
+        assertEquals(8, crawl());
+        Files.writeString(file(1), "broken");
+        ChecksumVerifier.Report report = new ChecksumVerifier(root).verify(true);
+        assertEquals(List.of(file(1)), report.getInvalid());
+        assertFalse(Files.exists(file(1)));
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.invalidate(report.getInvalid().stream().map(root::relativize).collect(Collectors.toList()));
+        }
+        // The incremental crawl lists the folder of the deleted file again: ts_1 is loaded and the rest is kept
+        assertEquals(8, crawl());
+        assertEquals("file1", Files.readString(file(1)));
+        assertTrue(new ChecksumVerifier(root).verify(false).isValid());
+    }
+
+    private long crawl() throws IOException {
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            var factory = new ComplexProcessorFactory(root, CrawlContext.builder().scheduler(new CrawlScheduler(null)).index(index).build());
+            return factory.processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                    .process()
+                    .join()
+                    .count();
+        }
+    }
+
+    private Path file(int i) {
+        return root.resolve("deliver/etsi_ts/1290" + (i % 4) + "/ts_" + i + ".pdf");
+    }
+
+    @BeforeEach
+    void startUp() {
+        IntStream.range(0, 8).forEach(i -> server.file(
+                "/deliver/etsi_ts/1290" + (i % 4) + "/ts_" + i + ".pdf", ("file" + i).getBytes(StandardCharsets.UTF_8), DATE_TIME));
+    }
+
+}
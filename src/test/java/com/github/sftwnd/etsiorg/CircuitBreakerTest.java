@@ -0,0 +1,101 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN = TimeUnit.SECONDS.toNanos(30);
+
+    @Test
+    void illegalThresholdTest() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void openTest() {
+        assertFalse(breaker.failure());
+        assertFalse(breaker.failure());
+        assertEquals(0, breaker.acquire());
+        assertTrue(breaker.failure());
+        assertEquals(OPEN, breaker.pause());
+        clock.addAndGet(OPEN / 2);
+        assertEquals(OPEN / 2, breaker.acquire());
+        // The requests sent before the opening do not prolong it
+        assertFalse(breaker.failure());
+        assertEquals(OPEN / 2, breaker.pause());
+    }
+
+    @Test
+    void successTest() {
+        breaker.failure();
+        breaker.failure();
+        breaker.success();
+        assertFalse(breaker.failure());
+        assertEquals(0, breaker.pause());
+    }
+
+    @Test
+    void trialTest() {
+        open();
+        clock.addAndGet(OPEN);
+        assertEquals(0, breaker.pause());
+        assertEquals(0, breaker.acquire());
+        // Other requests wait for the result of the trial one
+        assertTrue(breaker.pause() > 0);
+        assertTrue(breaker.acquire() > 0);
+        breaker.success();
+        assertEquals(0, breaker.acquire());
+        assertEquals(0, breaker.acquire());
+    }
+
+    @Test
+    void failedTrialTest() {
+        open();
+        clock.addAndGet(OPEN);
+        assertEquals(0, breaker.acquire());
+        assertTrue(breaker.failure());
+        assertEquals(OPEN, breaker.pause());
+    }
+
+    @Test
+    void releasedTrialTest() {
+        open();
+        clock.addAndGet(OPEN);
+        assertEquals(0, breaker.acquire());
+        breaker.release();
+        assertEquals(0, breaker.acquire());
+    }
+
+    private void open() {
+        breaker.failure();
+        breaker.failure();
+        assertTrue(breaker.failure());
+    }
+
+    private AtomicLong clock;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void startUp() {
+        this.clock = new AtomicLong(100 * OPEN);
+        this.breaker = new CircuitBreaker(3, Duration.ofNanos(OPEN), clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.clock = null;
+        this.breaker = null;
+    }
+
+}
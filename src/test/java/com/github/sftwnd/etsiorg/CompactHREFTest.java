@@ -0,0 +1,60 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CompactHREFTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    @Test
+    void viewTest() {
+        List<HREF> hrefs = List.of(
+                HREF.builder().uri(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/17.00.00_60/ts_129078v170000p.pdf"))
+                        .bytes(932564L).dateTime(DATE_TIME).regularFile(true).build(),
+                HREF.builder().uri(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/17.00.00_60/"))
+                        .dateTime(DATE_TIME).regularFile(false).build(),
+                HREF.builder().uri(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078")).build());
+        for (HREF href : hrefs) {
+            HREF view = CompactHREF.of(href, trie).href();
+            assertEquals(href.getUri(), view.getUri());
+            assertEquals(href.getBytes(), view.getBytes());
+            assertEquals(href.getDateTime(), view.getDateTime());
+            assertEquals(href.getVersion(), view.getVersion());
+            assertEquals(href.isRegularFile(), view.isRegularFile());
+            assertEquals(href.toString(), view.toString());
+        }
+    }
+
+    @Test
+    void sharedPathTest() {
+        CompactHREF file = CompactHREF.of(HREF.builder().uri(URI.create("http://localhost/deliver/ts/ts.pdf")).bytes(1L).dateTime(DATE_TIME).build(), trie);
+        CompactHREF folder = CompactHREF.of(HREF.builder().uri(URI.create("http://localhost/deliver/ts/")).build(), trie);
+        assertSame(folder.getNode(), file.getNode().getParent());
+        assertNull(folder.getBytes());
+        assertNull(folder.getDateTime());
+        assertEquals(4, trie.size());
+    }
+
+    private PathTrie trie;
+
+    @BeforeEach
+    void startUp() {
+        this.trie = new PathTrie();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.trie = null;
+    }
+
+}
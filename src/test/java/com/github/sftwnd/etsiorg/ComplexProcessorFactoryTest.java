@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.net.URI;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.concurrent.Executor;
@@ -28,7 +29,7 @@ class ComplexProcessorFactoryTest {
         when(href.isRegularFile()).thenReturn(true);
         Stream.of("log", "tmp", "temp")
                 .map(ext -> "file."+ext)
-                .peek(when(page.fileName())::thenReturn)
+                .peek(name -> when(href.getUri()).thenReturn(URI.create("http://localhost/deliver/" + name)))
                 .map(unused -> factory.processor(page))
                 .peek(Assertions::assertNotNull)
                 .forEach(processor -> assertEquals(EmptyProcessor.class, processor.getClass()));
@@ -51,6 +52,7 @@ class ComplexProcessorFactoryTest {
     void processorOfHtmlFile() {
         when(href.isRegularFile()).thenReturn(false);
         when(page.fileName()).thenReturn("file.html");
+        when(page.path()).thenReturn(Path.of("/deliver/"));
         assertDoesNotThrow(() -> this.factory.processor(this.page));
         var processor = this.factory.processor(this.page);
         assertNotNull(processor);
@@ -59,7 +61,9 @@ class ComplexProcessorFactoryTest {
         assertEquals(this.page, textHtmlProcessor.getPage());
         assertEquals(this.factory, textHtmlProcessor.getProcessorFactory());
         assertEquals(this.executor, textHtmlProcessor.getExecutor());
+        assertEquals(this.factory.getScheduler(), textHtmlProcessor.getScheduler());
         assertEquals(this.onExpires, textHtmlProcessor.getOnExpires());
+        assertEquals(Path.of(this.root.toString(), "/deliver/"), textHtmlProcessor.getFolder().getPath());
     }
 
     @Test
@@ -77,6 +81,12 @@ class ComplexProcessorFactoryTest {
         assertSame(this.executor, this.factory.getExecutor());
     }
 
+    @Test
+    void getSchedulerTest() {
+        assertNotNull(this.factory.getScheduler());
+        assertSame(this.executor, this.factory.getScheduler().getExecutor());
+    }
+
     @Test
     void getOnExpiresTest() {
         assertSame(this.onExpires, this.factory.getOnExpires());
@@ -88,6 +98,7 @@ class ComplexProcessorFactoryTest {
         this.href = mock(HREF.class);
         this.page = mock(Page.class);
         when(this.page.getHref()).thenReturn(this.href);
+        when(this.href.getUri()).thenReturn(URI.create("http://localhost/deliver/file.pdf"));
         this.root = mock(Path.class);
         this.executor = mock(Executor.class);
         this.onExpires = (Consumer<Collection<Path>>)Mockito.mock(Consumer.class);
@@ -0,0 +1,148 @@
+package com.github.sftwnd.etsiorg;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentStoreTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(64).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void knownContentTest() throws IOException {
+        server.file("/deliver/10.01.01_60/ts.zip", CONTENT, DATE_TIME)
+                .file("/deliver/10.02.01_60/ts.zip", CONTENT, DATE_TIME);
+        Path file = save("/deliver/10.01.01_60/ts.zip");
+        assertEquals(root.resolve("deliver/10.01.01_60/ts.zip"), file);
+        // The same size, time and name of the other resource: the content is loaded and linked by its checksum
+        Path linked = save("/deliver/10.02.01_60/ts.zip");
+        assertEquals(2, server.getRequests().get());
+        assertTrue(Files.isSameFile(file, linked));
+        assertEquals(CONTENT.length, metrics.getDeduplicatedBytes().count());
+        assertEquals(ChecksumManifest.get(file), ChecksumManifest.get(linked));
+        // The known content of the same resource is linked without the request
+        Files.delete(file);
+        assertTrue(Files.isSameFile(linked, save("/deliver/10.01.01_60/ts.zip")));
+        assertEquals(2, server.getRequests().get());
+    }
+
+    @Test
+    void collisionTest() throws IOException {
+        byte[] other = CONTENT.clone();
+        other[0] = 'X';
+        server.file("/deliver/a/ts.zip", CONTENT, DATE_TIME)
+                .file("/deliver/b/ts.zip", other, DATE_TIME);
+        Path file = save("/deliver/a/ts.zip");
+        // The same name, size and time of the other content is not linked
+        Path collision = save("/deliver/b/ts.zip");
+        assertFalse(Files.isSameFile(file, collision));
+        assertArrayEquals(other, Files.readAllBytes(collision));
+        assertArrayEquals(CONTENT, Files.readAllBytes(file));
+    }
+
+    @Test
+    void linkTimeTest() throws IOException {
+        server.file("/deliver/a/ts.zip", CONTENT, DATE_TIME)
+                .file("/deliver/b/other.zip", CONTENT, DATE_TIME);
+        Path file = save("/deliver/a/ts.zip");
+        Path linked = save("/deliver/b/other.zip");
+        assertTrue(Files.isSameFile(file, linked));
+        FileTime fileTime = Files.getLastModifiedTime(file);
+        // The changed time of the resource is set to the own copy of the link
+        save("/deliver/b/other.zip", DATE_TIME.plusDays(1));
+        assertFalse(Files.isSameFile(file, linked));
+        assertEquals(fileTime, Files.getLastModifiedTime(file));
+        assertEquals(fileTime.toInstant().plus(1, ChronoUnit.DAYS), Files.getLastModifiedTime(linked).toInstant());
+        assertArrayEquals(CONTENT, Files.readAllBytes(linked));
+    }
+
+    @Test
+    void sameContentTest() throws IOException {
+        server.file("/deliver/a/ts.zip", CONTENT, DATE_TIME)
+                .file("/deliver/b/other.zip", CONTENT, DATE_TIME)
+                .file("/deliver/c/ts.zip", CONTENT, DATE_TIME.plusDays(1));
+        Path file = save("/deliver/a/ts.zip");
+        // The other name is loaded and linked to the same content
+        assertTrue(Files.isSameFile(file, save("/deliver/b/other.zip")));
+        // The other creation time is kept by the own file
+        assertFalse(Files.isSameFile(file, save("/deliver/c/ts.zip", DATE_TIME.plusDays(1))));
+        assertEquals(3, server.getRequests().get());
+        assertEquals(CONTENT.length, metrics.getDeduplicatedBytes().count());
+    }
+
+    @Test
+    void persistenceTest() throws IOException {
+        server.file("/deliver/a/ts.zip", CONTENT, DATE_TIME)
+                .file("/deliver/b/ts.zip", CONTENT, DATE_TIME);
+        Path file = save("/deliver/a/ts.zip");
+        Path linked = save("/deliver/b/ts.zip");
+        store.close();
+        this.store = ContentStore.open(root);
+        Files.delete(file);
+        assertTrue(Files.isSameFile(linked, save("/deliver/a/ts.zip")));
+        assertEquals(2, server.getRequests().get());
+    }
+
+    @Test
+    void pruneTest() throws IOException {
+        server.file("/deliver/a/ts.zip", CONTENT, DATE_TIME);
+        Path file = save("/deliver/a/ts.zip");
+        assertEquals(0, store.prune());
+        Files.delete(file);
+        assertEquals(1, store.prune());
+        // The pruned content is loaded again
+        save("/deliver/a/ts.zip");
+        assertEquals(2, server.getRequests().get());
+    }
+
+    private Path save(String path) {
+        return save(path, DATE_TIME);
+    }
+
+    private Path save(String path, LocalDateTime dateTime) {
+        HREF href = HREF.builder().uri(server.uri(path)).bytes((long) CONTENT.length).dateTime(dateTime).build();
+        List<Path> saved = new FileSaveProcessor(root, Page.of(href, new HttpClientTransport(), metrics), null, CrawlContext.builder().store(store).build())
+                .process()
+                .join()
+                .collect(Collectors.toList());
+        assertEquals(1, saved.size());
+        return saved.get(0);
+    }
+
+    private ContentStore store;
+    private CrawlMetrics metrics;
+
+    @BeforeEach
+    void startUp() throws IOException {
+        this.store = ContentStore.open(root);
+        this.metrics = new CrawlMetrics(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try {
+            this.store.close();
+        } finally {
+            this.store = null;
+            this.metrics = null;
+        }
+    }
+
+}
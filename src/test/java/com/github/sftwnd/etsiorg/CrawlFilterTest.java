@@ -0,0 +1,177 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlFilterTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(64).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void defaultTest() {
+        for (String name : List.of("file.log", "file.tmp", "file.temp")) {
+            assertFalse(CrawlFilter.DEFAULT.test(file("/deliver/" + name, 10L, DATE_TIME)), name);
+        }
+        assertTrue(CrawlFilter.DEFAULT.test(file("/deliver/file.pdf", 10L, DATE_TIME)));
+        assertTrue(CrawlFilter.DEFAULT.test(folder("/deliver/etsi_ts/")));
+    }
+
+    @Test
+    void globTest() {
+        CrawlFilter filter = CrawlFilter.builder()
+                .include("/deliver/etsi_ts/1290??_*/**")
+                .include("/deliver/etsi_en/{300,301}*/**/*.pdf")
+                .exclude("*.zip")
+                .build();
+        assertTrue(filter.test(folder("/deliver/")));
+        assertTrue(filter.test(folder("/deliver/etsi_ts/")));
+        assertTrue(filter.test(folder("/deliver/etsi_ts/129000_129099/")));
+        assertTrue(filter.test(file("/deliver/etsi_ts/129000_129099/129079/ts.pdf", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/etsi_ts/129000_129099/129079/ts.zip", 10L, DATE_TIME)));
+        // The folder out of the includes is not listed
+        assertFalse(filter.test(folder("/deliver/etsi_ts/136500_136599/")));
+        assertFalse(filter.test(folder("/deliver/etsi_tr/")));
+        assertTrue(filter.test(folder("/deliver/etsi_en/300001_300099/10.01.01_60/")));
+        assertTrue(filter.test(file("/deliver/etsi_en/300001_300099/10.01.01_60/en.pdf", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/etsi_en/300001_300099/10.01.01_60/en.doc", 10L, DATE_TIME)));
+        assertFalse(filter.test(folder("/deliver/etsi_en/302001_302099/")));
+        assertFalse(filter.test(file("/deliver/readme.txt", 10L, DATE_TIME)));
+        assertThrows(IllegalArgumentException.class, () -> CrawlFilter.builder().include("{a,b"));
+    }
+
+    @Test
+    void patternsTest() {
+        assertEquals(List.of("*.{pdf,zip}", "/deliver/etsi_{ts,tr}/**", "regex:a{1,2}"),
+                CrawlFilter.patterns(" *.{pdf,zip}, /deliver/etsi_{ts,tr}/** ,,regex:a{1,2}"));
+        CrawlFilter filter = CrawlFilter.builder().includes("*.{pdf,zip}").excludes("ts_1*,*.{log,tmp}").build();
+        assertTrue(filter.test(file("/deliver/ts.pdf", 10L, DATE_TIME)));
+        assertTrue(filter.test(file("/deliver/ts.zip", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts.doc", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts_1.pdf", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts.log", 10L, DATE_TIME)));
+        assertThrows(IllegalArgumentException.class, () -> CrawlFilter.builder().includes("*.{pdf,zip"));
+    }
+
+    @Test
+    void folderGlobTest() {
+        CrawlFilter filter = CrawlFilter.builder().include("/deliver/etsi_ts/129000_129099").build();
+        // The glob of the folder is the folder with its subtree
+        assertTrue(filter.test(folder("/deliver/etsi_ts/")));
+        assertTrue(filter.test(folder("/deliver/etsi_ts/129000_129099/")));
+        assertTrue(filter.test(folder("/deliver/etsi_ts/129000_129099/129079/")));
+        assertTrue(filter.test(file("/deliver/etsi_ts/129000_129099/129079/ts.pdf", 10L, DATE_TIME)));
+        assertFalse(filter.test(folder("/deliver/etsi_ts/129100_129199/")));
+        assertFalse(filter.test(file("/deliver/etsi_ts/readme.txt", 10L, DATE_TIME)));
+    }
+
+    @Test
+    void regexTest() {
+        CrawlFilter filter = CrawlFilter.builder()
+                .include("regex:.*/ts_\\d+v1[5-9]\\d*p\\.pdf")
+                .exclude("regex:/deliver/etsi_tr(/.*)?")
+                .build();
+        assertTrue(filter.test(folder("/deliver/etsi_ts/")));
+        assertFalse(filter.test(folder("/deliver/etsi_tr/")));
+        assertTrue(filter.test(file("/deliver/etsi_ts/ts_129079v150000p.pdf", 10L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/etsi_ts/ts_129079v100000p.pdf", 10L, DATE_TIME)));
+    }
+
+    @Test
+    void versionsTest() {
+        CrawlFilter filter = CrawlFilter.builder().versions("15..16").build();
+        assertFalse(filter.test(folder("/deliver/ts/14.05.00_60/")));
+        assertTrue(filter.test(folder("/deliver/ts/15.00.00_60/")));
+        assertTrue(filter.test(folder("/deliver/ts/16.09.01_60/")));
+        assertFalse(filter.test(folder("/deliver/ts/17.00.00_60/")));
+        // The unversioned resources are not bound
+        assertTrue(filter.test(folder("/deliver/ts/")));
+        assertEquals(HREF.versionOfFile("17.00.00_60"), CrawlFilter.version("17.00.00_60", false));
+        assertEquals(HREF.versionOfFile("15.01.00_00"), CrawlFilter.version("15.1", false));
+        assertThrows(IllegalArgumentException.class, () -> CrawlFilter.version("1.2.3.4.5", false));
+        assertThrows(IllegalArgumentException.class, () -> CrawlFilter.version("4096", false));
+    }
+
+    @Test
+    void boundsTest() {
+        CrawlFilter filter = CrawlFilter.builder().bytes("100..1000").dates("2022-01-01..2022-04-21").build();
+        assertTrue(filter.test(file("/deliver/ts.pdf", 100L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts.pdf", 1001L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts.pdf", 99L, DATE_TIME)));
+        assertFalse(filter.test(file("/deliver/ts.pdf", 100L, LocalDateTime.of(2022, 4, 22, 0, 0))));
+        assertFalse(filter.test(file("/deliver/ts.pdf", 100L, LocalDateTime.of(2021, 12, 31, 23, 59))));
+        // The folders are not bound by the sizes and the dates of the files
+        assertTrue(filter.test(folder("/deliver/ts/")));
+        assertThrows(IllegalArgumentException.class, () -> CrawlFilter.builder().bytes("100"));
+    }
+
+    @Test
+    void crawlTest() throws IOException {
+        for (String file : List.of("ts_1/ts.pdf", "ts_1/ts.zip", "ts_2/ts.pdf",
+                "ts_3/14.00.00_60/ts.pdf", "ts_3/15.00.00_60/ts.pdf", "ts_3/16.00.00_60/ts.pdf")) {
+            server.file("/deliver/" + file, CONTENT, DATE_TIME);
+        }
+        CrawlFilter filter = CrawlFilter.defaults()
+                .include("/deliver/ts_{1,3}/**")
+                .exclude("*.zip")
+                .versions("..15")
+                .build();
+        new ComplexProcessorFactory(root, CrawlContext.builder().filter(filter).build())
+                .processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                .process()
+                .join();
+        assertTrue(Files.exists(root.resolve("deliver/ts_1/ts.pdf")));
+        assertFalse(Files.exists(root.resolve("deliver/ts_1/ts.zip")));
+        assertFalse(Files.exists(root.resolve("deliver/ts_2")));
+        // The actual version is chosen of the versions in the bounds
+        assertTrue(Files.exists(root.resolve("deliver/ts_3/15.00.00_60/ts.pdf")));
+        assertFalse(Files.exists(root.resolve("deliver/ts_3/16.00.00_60")));
+        // Listings of /deliver/, ts_1, ts_3, 15.00.00_60 and two files: ts_2 is never listed
+        assertEquals(6, server.getRequests().get());
+    }
+
+    @Test
+    void widenedFilterTest() throws IOException {
+        for (String file : List.of("ts_1/ts.pdf", "ts_1/ts.zip", "ts_2/ts.pdf",
+                "ts_3/14.00.00_60/ts.pdf", "ts_3/15.00.00_60/ts.pdf", "ts_3/16.00.00_60/ts.pdf")) {
+            server.file("/deliver/" + file, CONTENT, DATE_TIME);
+        }
+        crawl(CrawlFilter.defaults().include("/deliver/ts_{1,3}/**").exclude("*.zip").versions("..15").build());
+        assertFalse(Files.exists(root.resolve("deliver/ts_2")));
+        // The folders are not changed: the excluded rows are replayed from the index and filtered again
+        crawl(CrawlFilter.DEFAULT);
+        assertTrue(Files.exists(root.resolve("deliver/ts_1/ts.zip")));
+        assertTrue(Files.exists(root.resolve("deliver/ts_2/ts.pdf")));
+        assertTrue(Files.exists(root.resolve("deliver/ts_3/16.00.00_60/ts.pdf")));
+        assertTrue(server.getNotModified().get() > 0);
+    }
+
+    private void crawl(CrawlFilter filter) throws IOException {
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            new ComplexProcessorFactory(root, CrawlContext.builder().index(index).filter(filter).build())
+                    .processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                    .process()
+                    .join();
+        }
+    }
+
+    private static HREF folder(String path) {
+        return HREF.builder().uri(URI.create("http://localhost" + path)).regularFile(false).build();
+    }
+
+    private static HREF file(String path, long bytes, LocalDateTime dateTime) {
+        return HREF.builder().uri(URI.create("http://localhost" + path)).bytes(bytes).dateTime(dateTime).build();
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlIndexTest extends AbstractRootTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    @Test
+    void persistenceTest() throws IOException {
+        HREF file = file("http://localhost/a/file.pdf");
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.synced(file);
+        }
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            var entry = index.get(file.getUri()).orElseThrow();
+            assertEquals(CrawlIndex.Status.SYNCED, entry.getStatus());
+            assertEquals(10L, entry.getBytes());
+            assertEquals(DATE_TIME, entry.getDateTime());
+        }
+    }
+
+    @Test
+    void unchangedFolderTest() throws IOException {
+        HREF folder = folder("http://localhost/a/", DATE_TIME);
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            assertFalse(index.isUnchanged(folder));
+            index.completed(Page.of(folder), true);
+            assertTrue(index.isUnchanged(folder));
+            assertFalse(index.isUnchanged(folder("http://localhost/a/", DATE_TIME.plusMinutes(1))));
+        }
+        try (CrawlIndex index = CrawlIndex.open(root, false)) {
+            assertFalse(index.isUnchanged(folder));
+        }
+    }
+
+    @Test
+    void failedSubtreeTest() throws IOException {
+        HREF folder = folder("http://localhost/a/", DATE_TIME);
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.failed(file("http://localhost/a/b/file.pdf"));
+            index.completed(Page.of(folder("http://localhost/b/", DATE_TIME)), true);
+            index.completed(Page.of(folder), true);
+            assertFalse(index.isUnchanged(folder));
+            assertTrue(index.isUnchanged(folder("http://localhost/b/", DATE_TIME)));
+        }
+    }
+
+    @Test
+    void brokenRecordTest() throws IOException {
+        HREF folder = folder("http://localhost/a/", DATE_TIME);
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.synced(folder);
+        }
+        Files.writeString(root.resolve(CrawlIndex.INDEX_FOLDER).resolve(CrawlIndex.INDEX_FILE), "SYNCED\t12", APPEND);
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            assertTrue(index.isUnchanged(folder));
+        }
+    }
+
+    @Test
+    void compactionTest() throws IOException {
+        HREF file = file("http://localhost/a/file.pdf");
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            IntStream.range(0, 10).forEach(i -> index.synced(file));
+        }
+        try (CrawlIndex ignored = CrawlIndex.open(root, true)) {
+            assertEquals(1, Files.readAllLines(ignored.getPath()).size());
+        }
+    }
+
+    @Test
+    void incrementalCrawlTest() throws IOException {
+        try (StubServer server = new StubServer()) {
+            IntStream.range(0, 8).forEach(i -> server.file(
+                    "/deliver/etsi_ts/1290" + (i % 4) + "/ts_" + i + ".pdf", ("file" + i).getBytes(StandardCharsets.UTF_8), DATE_TIME));
+            assertEquals(8, crawl(server));
+            int requests = server.getRequests().getAndSet(0);
+            assertEquals(1 + 1 + 4 + 8, requests);
+            // The root listing is not modified and etsi_ts is replayed by its unchanged time:
+            // its subfolders are requested and not modified, the files are checked locally
+            assertEquals(8, crawl(server));
+            assertEquals(1 + 4, server.getRequests().get());
+            assertEquals(1 + 4, server.getNotModified().get());
+        }
+    }
+
+    @Test
+    void deepNewFolderTest() throws IOException {
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file0".getBytes(StandardCharsets.UTF_8), DATE_TIME);
+            server.file("/deliver/etsi_ts/12901/ts_1.pdf", "file1".getBytes(StandardCharsets.UTF_8), DATE_TIME);
+            assertEquals(2, crawl(server));
+            // The new folders change the time of 12900 only: the times of etsi_ts and the root are unchanged
+            server.file("/deliver/etsi_ts/12900/a/b/ts_2.pdf", "file2".getBytes(StandardCharsets.UTF_8), DATE_TIME.plusDays(1));
+            assertEquals(3, crawl(server));
+            assertEquals("file2", Files.readString(root.resolve("deliver/etsi_ts/12900/a/b/ts_2.pdf")));
+        }
+    }
+
+    @Test
+    void replayTest() throws IOException {
+        HREF folder = folder("http://localhost/a/", DATE_TIME);
+        HREF subfolder = folder("http://localhost/a/b/", DATE_TIME);
+        HREF file = file("http://localhost/a/file.pdf");
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.synced(file);
+            index.synced(file("http://localhost/a/b/file.pdf"));
+            index.synced(file("http://localhost/a/c/file.pdf"));
+            index.completed(Page.of(subfolder), true);
+            index.completed(Page.of(folder("http://localhost/a/c/", DATE_TIME)), true);
+            index.completed(Page.of(folder), true);
+            // The subfolders of the not modified listing can be replayed as well
+            assertEquals(Set.of(file.getUri(), subfolder.getUri(), URI.create("http://localhost/a/c/")), uris(index.replay(folder, true)));
+            assertTrue(index.isUnchanged(subfolder));
+            // c/ is not listed any more and is removed with its subtree
+            index.listed(folder, List.of(file, subfolder), href -> true);
+            assertTrue(index.get(URI.create("http://localhost/a/c/file.pdf")).isEmpty());
+        }
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            assertEquals(Set.of(file.getUri(), subfolder.getUri()), uris(index.replay(folder, false)));
+            // The subfolders of the listing replayed by the unchanged time are requested
+            assertFalse(index.isUnchanged(subfolder));
+            assertEquals(10L, index.replay(folder, false).stream().filter(HREF::isRegularFile).findFirst().orElseThrow().getBytes());
+        }
+    }
+
+    @Test
+    void notModifiedListingTest() throws IOException {
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file0".getBytes(StandardCharsets.UTF_8), DATE_TIME);
+            assertEquals(1, crawl(server));
+            try (CrawlIndex index = CrawlIndex.open(root, true)) {
+                assertNotNull(index.get(server.uri("/deliver/")).orElseThrow().getEtag());
+            }
+            // The listings are not loaded again: the site responds with 304 on their ETags
+            // to the root and to 12900, the subfolder of the replayed etsi_ts
+            assertEquals(1, crawl(server));
+            assertEquals(2, server.getNotModified().get());
+            // Full crawl loads the listings unconditionally
+            assertEquals(1, crawl(server, false));
+            assertEquals(2, server.getNotModified().get());
+        }
+    }
+
+    @Test
+    void notModifiedDescentTest() throws IOException {
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file0".getBytes(StandardCharsets.UTF_8), DATE_TIME);
+            assertEquals(1, crawl(server));
+            server.getRequests().set(0);
+            // The new file changes the listing of etsi_ts, but not the root one
+            server.file("/deliver/etsi_ts/12900/ts_1.pdf", "file1".getBytes(StandardCharsets.UTF_8), DATE_TIME.plusDays(1));
+            assertEquals(2, crawl(server));
+            assertEquals(1, server.getNotModified().get());
+            // The not modified root, 12900 of the replayed etsi_ts and the new file
+            assertEquals(1 + 1 + 1, server.getRequests().get());
+            assertEquals("file1", Files.readString(root.resolve("deliver/etsi_ts/12900/ts_1.pdf")));
+        }
+    }
+
+    @Test
+    void modifiedFileTest() throws IOException {
+        Path file = root.resolve("deliver/etsi_ts/12900/ts_0.pdf");
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file0".getBytes(StandardCharsets.UTF_8), DATE_TIME);
+            assertEquals(1, crawl(server));
+            // The same size and content with the new creation time: 304 on the conditional request
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file0".getBytes(StandardCharsets.UTF_8), DATE_TIME.plusDays(1));
+            assertEquals(1, crawl(server));
+            // The root listing and the file are not modified
+            assertEquals(2, server.getNotModified().get());
+            assertEquals("file0", Files.readString(file));
+            // The same size with the changed content: the file is loaded again
+            server.file("/deliver/etsi_ts/12900/ts_0.pdf", "file1".getBytes(StandardCharsets.UTF_8), DATE_TIME.plusDays(2));
+            assertEquals(1, crawl(server));
+            assertEquals("file1", Files.readString(file));
+        }
+    }
+
+    @Test
+    void invalidateTest() throws IOException {
+        HREF folder = folder("http://localhost/a/", DATE_TIME);
+        HREF other = folder("http://localhost/b/", DATE_TIME);
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            index.synced(file("http://localhost/a/file.pdf"));
+            index.completed(Page.of(folder), true);
+            index.completed(Page.of(other), true);
+            assertEquals(2, index.invalidate(List.of(Path.of("a/file.pdf"))));
+        }
+        try (CrawlIndex index = CrawlIndex.open(root, true)) {
+            assertFalse(index.isUnchanged(folder));
+            assertTrue(index.isUnchanged(other));
+        }
+    }
+
+    private long crawl(@NonNull StubServer server) throws IOException {
+        return crawl(server, true);
+    }
+
+    private long crawl(@NonNull StubServer server, boolean incremental) throws IOException {
+        try (CrawlIndex index = CrawlIndex.open(root, incremental)) {
+            var factory = new ComplexProcessorFactory(root, CrawlContext.builder().scheduler(new CrawlScheduler(null)).index(index).build());
+            return factory.processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                    .process()
+                    .join()
+                    .count();
+        }
+    }
+
+    private static Set<URI> uris(@NonNull Collection<HREF> hrefs) {
+        return hrefs.stream().map(HREF::getUri).collect(Collectors.toSet());
+    }
+
+    private static HREF file(@NonNull String uri) {
+        return HREF.builder().uri(URI.create(uri)).bytes(10L).dateTime(DATE_TIME).build();
+    }
+
+    private static HREF folder(@NonNull String uri, @NonNull LocalDateTime dateTime) {
+        return HREF.builder().uri(URI.create(uri)).dateTime(dateTime).regularFile(false).build();
+    }
+
+}
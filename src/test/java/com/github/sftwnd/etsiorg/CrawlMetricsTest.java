@@ -0,0 +1,130 @@
+package com.github.sftwnd.etsiorg;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlMetricsTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    @Test
+    void crawlTest() {
+        assertEquals(4, crawl());
+        assertEquals(1 + 1 + 2, registry.get("etsiorg.listings").counter().count());
+        assertEquals(4, registry.get("etsiorg.listing.time").timer().count());
+        assertEquals(4, registry.get("etsiorg.downloads").counter().count());
+        assertEquals(4 * 5, registry.get("etsiorg.downloaded").counter().count());
+        assertEquals(4 + 4, registry.get("etsiorg.http.responses").tag("status", "200").counter().count());
+        assertEquals(0, registry.get("etsiorg.resumes").counter().count());
+        assertEquals(0, registry.get("etsiorg.scheduler.queued").gauge().value());
+        assertEquals(0, registry.get("etsiorg.http.in.flight").gauge().value());
+    }
+
+    @Test
+    void resumeTest() throws IOException {
+        Files.createDirectories(root.resolve("deliver/etsi_ts/12900"));
+        Files.writeString(DownloadJournal.part(root.resolve("deliver/etsi_ts/12900/ts_0.pdf")), "fi", StandardCharsets.UTF_8);
+        DownloadJournal.create(root, "/deliver/etsi_ts/12900/ts_0.pdf", 5, DATE_TIME, 1).confirm(2);
+        assertEquals(4, crawl());
+        assertEquals(1, registry.get("etsiorg.resumes").counter().count());
+        assertEquals(4 * 5 - 2, registry.get("etsiorg.downloaded").counter().count());
+        assertEquals(1, registry.get("etsiorg.http.responses").tag("status", "206").counter().count());
+    }
+
+    @Test
+    void eventsTest() throws IOException {
+        Path dump = root.resolve("crawl.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.github.sftwnd.etsiorg.Connect");
+            recording.enable("com.github.sftwnd.etsiorg.Listing");
+            recording.enable("com.github.sftwnd.etsiorg.Save");
+            recording.start();
+            assertEquals(4, crawl());
+            recording.stop();
+            recording.dump(dump);
+        }
+        Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(dump).stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        assertEquals(8, events.get("com.github.sftwnd.etsiorg.Connect").size());
+        assertEquals(4, events.get("com.github.sftwnd.etsiorg.Listing").size());
+        Map<String, RecordedEvent> saved = events.get("com.github.sftwnd.etsiorg.Save").stream()
+                .collect(Collectors.toMap(event -> event.getString("path"), Function.identity()));
+        assertEquals(4, saved.size());
+        assertTrue(saved.values().stream().allMatch(event -> event.getBoolean("saved") && event.getLong("bytes") == 5));
+    }
+
+    @Test
+    void deferredRetryTest() {
+        server.getFailures().set(3);
+        Transport retrying = new RetryingTransport(transport, new RetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(50)),
+                10, Duration.ofSeconds(1), metrics);
+        var factory = new ComplexProcessorFactory(root, CrawlContext.builder().scheduler(scheduler).build());
+        HREF href = HREF.builder().uri(server.uri("/deliver/")).build();
+        // The failed requests of the scheduled pages are repeated by the scheduler after the backoff
+        long count = scheduler.schedule(href, () -> factory.processor(Page.of(href, retrying, metrics).deferrable(true)).process())
+                .thenCompose(Function.identity())
+                .join()
+                .count();
+        assertEquals(4, count);
+        assertEquals(3, registry.get("etsiorg.retries").counter().count());
+        assertEquals(4 * 5, registry.get("etsiorg.downloaded").counter().count());
+        assertEquals(0, scheduler.queued());
+    }
+
+    private long crawl() {
+        var factory = new ComplexProcessorFactory(root, CrawlContext.builder().scheduler(scheduler).build());
+        return factory.processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build(), transport, metrics))
+                .process()
+                .join()
+                .count();
+    }
+
+    private CrawlScheduler scheduler;
+    private HttpClientTransport transport;
+    private MeterRegistry registry;
+    private CrawlMetrics metrics;
+
+    @BeforeEach
+    void startUp() {
+        IntStream.range(0, 4).forEach(i -> this.server.file(
+                "/deliver/etsi_ts/1290" + (i % 2) + "/ts_" + i + ".pdf", ("file" + i).getBytes(StandardCharsets.UTF_8), DATE_TIME));
+        this.scheduler = new CrawlScheduler(null);
+        this.transport = new HttpClientTransport();
+        this.registry = new SimpleMeterRegistry();
+        this.metrics = new CrawlMetrics(this.registry).scheduler(this.scheduler).transport(this.transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.registry.close();
+        } finally {
+            this.scheduler = null;
+            this.transport = null;
+            this.registry = null;
+            this.metrics = null;
+        }
+    }
+
+}
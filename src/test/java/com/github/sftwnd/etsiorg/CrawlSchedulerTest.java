@@ -0,0 +1,241 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlSchedulerTest {
+
+    @Test
+    void illegalLimitsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new CrawlScheduler(executor, 0, 1, 1, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST));
+        assertThrows(IllegalArgumentException.class, () -> new CrawlScheduler(executor, 1, 0, 1, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST));
+        assertThrows(IllegalArgumentException.class, () -> new CrawlScheduler(executor, 1, 1, 0, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST));
+    }
+
+    @Test
+    void downloadLimitTest() {
+        var scheduler = new CrawlScheduler(executor, 1, 3, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CompletableFuture.allOf(IntStream.range(0, 32)
+                        .mapToObj(i -> scheduler.schedule(file("file" + i, i), () -> {
+                            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            sleep();
+                            return active.decrementAndGet();
+                        }))
+                        .toArray(CompletableFuture<?>[]::new))
+                .join();
+        assertEquals(3, maxActive.get());
+        assertEquals(0, scheduler.active());
+        assertEquals(0, scheduler.queued());
+    }
+
+    @Test
+    void listingLimitTest() {
+        var scheduler = new CrawlScheduler(executor, 2, 8, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CompletableFuture.allOf(IntStream.range(0, 16)
+                        .mapToObj(i -> scheduler.schedule(folder("folder" + i), () -> {
+                            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            sleep();
+                            return active.decrementAndGet();
+                        }))
+                        .toArray(CompletableFuture<?>[]::new))
+                .join();
+        assertEquals(2, maxActive.get());
+    }
+
+    @Test
+    void smallestFileFirstTest() {
+        var scheduler = new CrawlScheduler(executor, 1, 1, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Long> order = Collections.synchronizedList(new LinkedList<>());
+        var blocker = scheduler.schedule(file("blocker", 0), () -> await(latch));
+        var futures = IntStream.of(5, 3, 9, 1, 7)
+                .mapToObj(size -> scheduler.schedule(file("file" + size, size), () -> order.add((long) size)))
+                .collect(Collectors.toList());
+        latch.countDown();
+        blocker.join();
+        futures.forEach(CompletableFuture::join);
+        assertEquals(List.of(1L, 3L, 5L, 7L, 9L), order);
+    }
+
+    @Test
+    void depthFirstTest() {
+        var scheduler = new CrawlScheduler(executor, 1, 1, 1024, CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new LinkedList<>());
+        var blocker = scheduler.schedule(folder("blocker"), () -> await(latch));
+        var futures = List.of("a", "a/b/c", "a/b")
+                .stream()
+                .map(name -> scheduler.schedule(folder(name), () -> order.add(name)))
+                .collect(Collectors.toList());
+        latch.countDown();
+        blocker.join();
+        futures.forEach(CompletableFuture::join);
+        assertEquals(List.of("a/b/c", "a/b", "a"), order);
+    }
+
+    @Test
+    void depthTest() {
+        List.of(folder("a"), folder("a/b/c"), file("a/b/c.pdf", 1), HREF.builder().uri(URI.create("http://localhost/")).build())
+                .forEach(href -> assertEquals(href.path().getNameCount(), CrawlScheduler.depth(href), href::toString));
+    }
+
+    @Test
+    void backpressureTest() {
+        var scheduler = new CrawlScheduler(executor, 4, 2, 8, CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        AtomicInteger maxQueued = new AtomicInteger();
+        AtomicInteger files = new AtomicInteger();
+        assertEquals(10 * 10 * 10, crawl(scheduler, "root", 0, maxQueued, files).join());
+        assertEquals(10 * 10 * 10, files.get());
+        // Listing is started only below the queue limit (or when nothing is active), so the queue is bounded by the
+        // limit plus one fan-out for each listing slot, regardless of the 1110 tasks of the tree
+        assertTrue(maxQueued.get() <= 8 + (4 + 1) * 10, "Queue size is out of bound: " + maxQueued.get());
+    }
+
+    private CompletableFuture<Integer> crawl(@NonNull CrawlScheduler scheduler, @NonNull String name, int depth,
+                                             @NonNull AtomicInteger maxQueued, @NonNull AtomicInteger files) {
+        return scheduler.schedule(depth < 3 ? folder(name) : file(name, depth), () -> {
+                    maxQueued.accumulateAndGet(scheduler.queued(), Math::max);
+                    if (depth == 3) {
+                        files.incrementAndGet();
+                        return CompletableFuture.completedFuture(1);
+                    }
+                    var children = IntStream.range(0, 10)
+                            .mapToObj(i -> crawl(scheduler, name + "/" + i, depth + 1, maxQueued, files))
+                            .collect(Collectors.toList());
+                    return CompletableFuture.allOf(children.toArray(CompletableFuture<?>[]::new))
+                            .thenApply(ignore -> children.stream().mapToInt(CompletableFuture::join).sum());
+                })
+                .thenCompose(future -> future);
+    }
+
+    @Test
+    void failedTaskTest() {
+        var scheduler = new CrawlScheduler(executor);
+        var future = scheduler.schedule(file("file", 1), () -> { throw new IllegalStateException("test"); });
+        assertThrows(Exception.class, future::join);
+        assertEquals(0, scheduler.active());
+    }
+
+    @Test
+    void pauseTest() {
+        long resume = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        var scheduler = new CrawlScheduler(executor, 2, 2, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST,
+                href -> Math.max(0L, resume - System.nanoTime()));
+        List<CompletableFuture<Long>> futures = IntStream.range(0, 4)
+                .mapToObj(i -> scheduler.schedule(i % 2 == 0 ? folder("folder" + i) : file("file" + i, i), System::nanoTime))
+                .collect(Collectors.toList());
+        assertEquals(4, scheduler.queued());
+        // No task is started before the end of the pause
+        assertTrue(futures.stream().map(CompletableFuture::join).allMatch(started -> started >= resume));
+        assertEquals(0, scheduler.queued());
+    }
+
+    @Test
+    void helperSlotTest() {
+        var scheduler = new CrawlScheduler(executor, 1, 2, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        CountDownLatch latch = new CountDownLatch(1);
+        var download = scheduler.schedule(file("download", 1), () -> await(latch));
+        CompletableFuture<Boolean> helped = new CompletableFuture<>();
+        assertTrue(scheduler.startHelper(() -> helped.complete(await(latch))));
+        // The download and its helper take both slots: no other helper and no queued download is started
+        assertFalse(scheduler.startHelper(() -> { }));
+        var next = scheduler.schedule(file("next", 2), () -> true);
+        assertEquals(1, scheduler.queued());
+        latch.countDown();
+        assertTrue(download.join() && helped.join() && next.join());
+        // The slot of the helper is released after its runnable has been completed
+        for (int i = 0; i < 50 && scheduler.active() > 0; i++) {
+            sleep();
+        }
+        assertEquals(0, scheduler.active());
+    }
+
+    @Test
+    void deferredTaskTest() {
+        var scheduler = new CrawlScheduler(executor, 1, 1, 1024, CrawlScheduler.BREADTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        long delay = TimeUnit.MILLISECONDS.toNanos(300);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Long> deferred = scheduler.schedule(file("deferred", 1), () -> {
+            if (runs.getAndIncrement() == 0) {
+                throw new UncheckedIOException(new RetryDeferredException(URI.create("http://localhost/deferred"), delay));
+            }
+            return System.nanoTime();
+        });
+        long deferredAt = System.nanoTime();
+        // The slot of the deferred task is free while it waits for the repeat
+        CompletableFuture<Long> next = scheduler.schedule(file("next", 2), System::nanoTime);
+        assertTrue(next.join() < deferred.join());
+        assertTrue(deferred.join() - deferredAt >= delay);
+        assertEquals(2, runs.get());
+        assertEquals(0, scheduler.active());
+        assertEquals(0, scheduler.queued());
+    }
+
+    private static HREF folder(@NonNull String name) {
+        return HREF.builder().uri(URI.create("http://localhost/" + name + "/")).build();
+    }
+
+    private static HREF file(@NonNull String name, long bytes) {
+        return HREF.builder().uri(URI.create("http://localhost/" + name)).bytes(bytes).dateTime(LocalDateTime.now()).build();
+    }
+
+    private static boolean await(@NonNull CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startUp() {
+        this.executor = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.executor.shutdownNow();
+        } finally {
+            this.executor = null;
+        }
+    }
+
+}
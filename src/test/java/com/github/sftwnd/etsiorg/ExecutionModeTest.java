@@ -0,0 +1,111 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Crawl in the fixed pool and the virtual thread modes: the speed of the modes is compared by ExecutionModeBenchmark
+ */
+class ExecutionModeTest extends AbstractStubServerTest {
+
+    private static final int FILES = 32;
+    private static final int DOWNLOADS = 4;
+
+    @Test
+    void ofTest() {
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.of(" Virtual "));
+        assertEquals(ExecutionMode.FIXED, ExecutionMode.of("fixed"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.of("green"));
+    }
+
+    @Test
+    void virtualExecutorTest() throws InterruptedException {
+        ExecutorService executor = ExecutionMode.VIRTUAL.executor(1);
+        try {
+            assertNotNull(executor.submit(() -> Thread.currentThread().getName()));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void supportedTest() {
+        assertEquals(ExecutionMode.FIXED, ExecutionMode.FIXED.supported());
+        assertEquals(ExecutionMode.isVirtualSupported() ? ExecutionMode.VIRTUAL : ExecutionMode.FIXED, ExecutionMode.VIRTUAL.supported());
+    }
+
+    @Test
+    void boundedFallbackTest() throws InterruptedException {
+        assumeFalse(ExecutionMode.isVirtualSupported(), "Virtual threads are supported by the runtime");
+        assertEquals(CrawlScheduler.DEFAULT_DOWNLOADS, ExecutionMode.VIRTUAL.supported().getDefaultDownloads());
+        // No thread per task on the runtime without virtual threads
+        ExecutorService executor = ExecutionMode.VIRTUAL.executor(1);
+        try {
+            assertTrue(executor instanceof ThreadPoolExecutor);
+            assertEquals(Runtime.getRuntime().availableProcessors(), ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void fixedCrawlTest() throws IOException {
+        crawl(ExecutionMode.FIXED, root.resolve("fixed"));
+    }
+
+    @Test
+    void virtualCrawlTest() throws IOException {
+        crawl(ExecutionMode.VIRTUAL, root.resolve("virtual"));
+    }
+
+    private void crawl(@NonNull ExecutionMode mode, @NonNull Path dest) throws IOException {
+        ExecutorService executor = mode.executor(DOWNLOADS + 1);
+        try {
+            var factory = new ComplexProcessorFactory(dest, CrawlContext.builder()
+                    .executor(executor)
+                    .scheduler(new CrawlScheduler(executor, 1, DOWNLOADS, CrawlScheduler.DEFAULT_QUEUE, CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST))
+                    .build());
+            long files = factory.processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                    .process()
+                    .join()
+                    .count();
+            assertEquals(FILES, files);
+            try (Stream<Path> stream = Files.walk(dest)) {
+                assertEquals(FILES, stream.filter(Files::isRegularFile)
+                        .filter(path -> !ChecksumManifest.MANIFEST_FILE.equals(path.getFileName().toString()))
+                        .count());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @BeforeEach
+    void startUp() {
+        LocalDateTime dateTime = LocalDateTime.of(2022, 4, 21, 8, 39);
+        IntStream.range(0, FILES).forEach(i -> server.file(
+                "/deliver/etsi_ts/129000_129099/1290" + (i % 4) + "/ts_" + i + ".pdf",
+                ("file" + i).getBytes(StandardCharsets.UTF_8), dateTime));
+    }
+
+}
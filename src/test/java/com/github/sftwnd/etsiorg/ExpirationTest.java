@@ -0,0 +1,93 @@
+package com.github.sftwnd.etsiorg;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpirationTest extends AbstractRootTest {
+
+    @Test
+    void illegalThreadsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new Expiration(root, 0, null));
+    }
+
+    @Test
+    void expireTest() throws IOException {
+        version("10.01.01_60", 1000);
+        version("10.02.01_60", 2000);
+        Path actual = version("10.03.01_60", 3000);
+        Expiration expiration = new Expiration(root, 2, metrics);
+        expiration.accept(List.of(Path.of("/deliver/ts/10.01.01_60"), Path.of("/deliver/ts/10.02.01_60"), Path.of("/deliver/ts/missing")));
+        // The expired paths are moved out of the tree at once
+        assertFalse(Files.exists(root.resolve("deliver/ts/10.01.01_60")));
+        assertFalse(Files.exists(root.resolve("deliver/ts/10.02.01_60")));
+        // The deletion is awaited by the close
+        expiration.close();
+        assertEquals(2, expiration.getExpired());
+        assertEquals(3 * (1000 + 2000), expiration.getReclaimed());
+        assertTrue(Files.exists(actual));
+        assertEquals(2, metrics.getExpired().count());
+        assertEquals(3 * (1000 + 2000), metrics.getReclaimedBytes().count());
+        assertTrue(isEmpty(root.resolve(CrawlIndex.INDEX_FOLDER).resolve(Expiration.TRASH_FOLDER)));
+    }
+
+    @Test
+    void fileTest() throws IOException {
+        Path file = Files.write(Files.createDirectories(root.resolve("deliver/ts")).resolve("ts.pdf"), new byte[100]);
+        Expiration expiration = new Expiration(root);
+        expiration.accept(List.of(Path.of("/deliver/ts/ts.pdf")));
+        expiration.close();
+        assertEquals(100, expiration.getReclaimed());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void trashTest() throws IOException {
+        // The trash of the interrupted run
+        Path trash = Files.createDirectories(root.resolve(CrawlIndex.INDEX_FOLDER).resolve(Expiration.TRASH_FOLDER).resolve("left"));
+        Files.write(trash.resolve("ts.pdf"), new byte[100]);
+        Expiration expiration = new Expiration(root);
+        expiration.close();
+        assertEquals(0, expiration.getExpired());
+        assertEquals(100, expiration.getReclaimed());
+        assertFalse(Files.exists(trash));
+    }
+
+    private Path version(String version, int bytes) throws IOException {
+        Path folder = Files.createDirectories(root.resolve("deliver/ts").resolve(version));
+        Files.write(folder.resolve("ts.pdf"), new byte[bytes]);
+        Files.write(Files.createDirectories(folder.resolve("attachments")).resolve("ts.zip"), new byte[bytes * 2]);
+        return folder;
+    }
+
+    private static boolean isEmpty(Path folder) throws IOException {
+        try (Stream<Path> stream = Files.list(folder)) {
+            return stream.findAny().isEmpty();
+        }
+    }
+
+    private CrawlMetrics metrics;
+
+    @BeforeEach
+    void startUp() {
+        this.metrics = new CrawlMetrics(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.metrics = null;
+    }
+
+}
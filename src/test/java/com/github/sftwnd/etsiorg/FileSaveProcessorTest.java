@@ -9,19 +9,42 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 class FileSaveProcessorTest extends AbstractFileSourceTest {
 
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
     @Test
     void processPathCheckTest() {
         var future = this.fileSaveProcessor.process();
@@ -30,6 +53,14 @@ class FileSaveProcessorTest extends AbstractFileSourceTest {
         assertEquals(List.of(tempFile), future.join().collect(Collectors.toList()));
     }
 
+    @Test
+    void processSinkTest() {
+        List<Path> saved = new LinkedList<>();
+        when(this.fileSaveProcessor.getSink()).thenReturn(saved::add);
+        assertEquals(0, this.fileSaveProcessor.process().join().count());
+        assertEquals(List.of(tempFile), saved);
+    }
+
     @Test
     void processFileContentTest() throws IOException {
         Path path = this.fileSaveProcessor.process().join().findFirst().orElse(null);
@@ -43,6 +74,204 @@ class FileSaveProcessorTest extends AbstractFileSourceTest {
         assertEquals(0, Arrays.compare(this.buff, 0, fileSize, buff, 0, fileSize));
     }
 
+    @Test
+    void resumeTest() throws IOException {
+        resumeTest(true);
+    }
+
+    @Test
+    void resumeWithoutRangesTest() throws IOException {
+        resumeTest(false);
+    }
+
+    private void resumeTest(boolean acceptRanges) throws IOException {
+        byte[] content = new byte[1 << 20];
+        new Random(1).nextBytes(content);
+        Path filePath = tempDir.resolve("deliver/file.zip");
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/file.zip", content, DATE_TIME);
+            server.setAcceptRanges(acceptRanges);
+            // The confirmed part differs from the site content to check it is not loaded again
+            Files.createDirectories(filePath.getParent());
+            Files.write(DownloadJournal.part(filePath), new byte[300_000]);
+            DownloadJournal.create(tempDir, "/deliver/file.zip", content.length, DATE_TIME, 1).confirm(300_000);
+            byte[] loaded = load(server, filePath, content.length);
+            assertTrue(Arrays.equals(new byte[300_000], Arrays.copyOf(loaded, 300_000)));
+            assertEquals(0, Arrays.compare(content, 300_000, content.length, loaded, 300_000, loaded.length));
+            assertTrue(DownloadJournal.find(tempDir, "/deliver/file.zip").isEmpty());
+            assertFalse(Files.exists(DownloadJournal.part(filePath)));
+            // The resumed file is hashed after the download
+            assertEquals(Optional.of(sha256(loaded)), ChecksumManifest.get(filePath));
+        } finally {
+            delete(filePath);
+        }
+    }
+
+    @Test
+    void listedFolderTest() throws IOException {
+        byte[] content = new byte[1 << 20];
+        new Random(1).nextBytes(content);
+        Path filePath = tempDir.resolve("deliver/file.zip");
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/file.zip", content, DATE_TIME);
+            Files.createDirectories(filePath.getParent());
+            Files.write(filePath, content);
+            Files.setLastModifiedTime(filePath, FileTime.from(Instant.EPOCH));
+            LocalFolder folder = LocalFolder.of(filePath.getParent());
+            // The listed file of the same size is not requested, only its time is synced
+            assertArrayEquals(content, load(server, filePath, content.length, folder));
+            assertEquals(0, server.getRequests().get());
+            assertEquals(DATE_TIME.atZone(ServerTime.getZone()).toInstant(), Files.getLastModifiedTime(filePath).toInstant());
+            // The partial file of the listing is resumed
+            Files.delete(filePath);
+            Files.write(DownloadJournal.part(filePath), Arrays.copyOf(content, 300_000));
+            DownloadJournal.create(tempDir, "/deliver/file.zip", content.length, DATE_TIME, 1).confirm(300_000);
+            assertArrayEquals(content, load(server, filePath, content.length, LocalFolder.of(filePath.getParent())));
+            assertTrue(DownloadJournal.find(tempDir, "/deliver/file.zip").isEmpty());
+        } finally {
+            delete(filePath);
+        }
+    }
+
+    @Test
+    void concurrentSaveTest() throws Exception {
+        int files = 8;
+        int processors = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(files * processors);
+        try (StubServer server = new StubServer()) {
+            List<byte[]> contents = new ArrayList<>();
+            for (int i = 0; i < files; i++) {
+                byte[] content = new byte[256 << 10];
+                new Random(i).nextBytes(content);
+                contents.add(content);
+                server.file("/deliver/file" + i + ".zip", content, DATE_TIME);
+            }
+            // The processors of the same path start together from the overlapping listings
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Stream<Path>>> futures = new ArrayList<>();
+            for (int p = 0; p < processors; p++) {
+                for (int i = 0; i < files; i++) {
+                    HREF href = HREF.builder().uri(server.uri("/deliver/file" + i + ".zip")).bytes((long) contents.get(i).length).dateTime(DATE_TIME).build();
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            start.await();
+                        } catch (InterruptedException iex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return new FileSaveProcessor(tempDir, Page.of(href)).process();
+                    }, executor).thenCompose(Function.identity()));
+                }
+            }
+            start.countDown();
+            Set<Path> saved = futures.stream().flatMap(CompletableFuture::join).collect(Collectors.toSet());
+            // Each file is loaded once and is not interleaved with the other load of it
+            assertEquals(files, server.getRequests().get());
+            assertEquals(files, saved.size());
+            for (int i = 0; i < files; i++) {
+                Path filePath = tempDir.resolve("deliver/file" + i + ".zip");
+                assertArrayEquals(contents.get(i), Files.readAllBytes(filePath));
+                assertFalse(Files.exists(DownloadJournal.part(filePath)));
+                assertEquals(Optional.of(sha256(contents.get(i))), ChecksumManifest.get(filePath));
+            }
+        } finally {
+            executor.shutdownNow();
+            delete(tempDir.resolve("deliver"));
+        }
+    }
+
+    @Test
+    void responsePermitTest() throws IOException {
+        int connections = 2;
+        int files = connections + 1;
+        byte[] content = new byte[64 << 10];
+        Transport transport = new HttpClientTransport(null, connections, Duration.ofSeconds(5));
+        try (StubServer server = new StubServer();
+             CrawlIndex index = CrawlIndex.open(tempDir, true)) {
+            for (int i = 0; i < files; i++) {
+                server.file("/deliver/file" + i + ".zip", content, DATE_TIME);
+                HREF synced = HREF.builder().uri(server.uri("/deliver/file" + i + ".zip")).bytes((long) content.length).dateTime(DATE_TIME).build();
+                new FileSaveProcessor(tempDir, Page.of(synced, transport), null, CrawlContext.builder().index(index).build()).process().join();
+            }
+            // The files of the same size changed on the site are checked by the conditional requests,
+            // then the downloads fail before the transfer: the responses have to be closed anyway
+            byte[] changed = new byte[content.length];
+            new Random(1).nextBytes(changed);
+            Path partial = tempDir.resolve(CrawlIndex.INDEX_FOLDER).resolve(DownloadJournal.PARTIAL_FOLDER);
+            Files.deleteIfExists(partial);
+            Files.write(partial, new byte[1]);
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                for (int i = 0; i < files; i++) {
+                    server.file("/deliver/file" + i + ".zip", changed, DATE_TIME.plusDays(1));
+                    HREF href = HREF.builder().uri(server.uri("/deliver/file" + i + ".zip")).bytes((long) changed.length).dateTime(DATE_TIME.plusDays(1)).build();
+                    assertEquals(0, new FileSaveProcessor(tempDir, Page.of(href, transport), null, CrawlContext.builder().index(index).build()).process().join().count());
+                }
+            });
+            assertEquals(2 * files, server.getRequests().get());
+        } finally {
+            delete(tempDir.resolve("deliver"));
+        }
+    }
+
+    @Test
+    void incompleteFileTest() throws IOException {
+        byte[] content = new byte[1 << 20];
+        new Random(1).nextBytes(content);
+        Path filePath = tempDir.resolve("deliver/file.zip");
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/file.zip", content, DATE_TIME);
+            // The file without the journal can have the broken tail: it is loaded again
+            Files.createDirectories(filePath.getParent());
+            Files.write(filePath, new byte[300_000]);
+            assertArrayEquals(content, load(server, filePath, content.length));
+            assertEquals(Optional.of(sha256(content)), ChecksumManifest.get(filePath));
+        } finally {
+            delete(filePath);
+        }
+    }
+
+    @Test
+    void otherVersionJournalTest() throws IOException {
+        byte[] content = new byte[1 << 20];
+        new Random(1).nextBytes(content);
+        Path filePath = tempDir.resolve("deliver/file.zip");
+        try (StubServer server = new StubServer()) {
+            server.file("/deliver/file.zip", content, DATE_TIME);
+            // The journal of the other version of the file is discarded
+            Files.createDirectories(filePath.getParent());
+            Files.write(DownloadJournal.part(filePath), new byte[300_000]);
+            DownloadJournal.create(tempDir, "/deliver/file.zip", content.length, DATE_TIME.minusDays(1), 1).confirm(300_000);
+            assertArrayEquals(content, load(server, filePath, content.length));
+        } finally {
+            delete(filePath);
+        }
+    }
+
+    private byte[] load(StubServer server, Path filePath, long bytes) throws IOException {
+        return load(server, filePath, bytes, null);
+    }
+
+    private byte[] load(StubServer server, Path filePath, long bytes, LocalFolder folder) throws IOException {
+        HREF href = HREF.builder().uri(server.uri("/deliver/file.zip")).bytes(bytes).dateTime(DATE_TIME).build();
+        assertEquals(List.of(filePath), new FileSaveProcessor(tempDir, Page.of(href), folder, CrawlContext.EMPTY)
+                .process().join().collect(Collectors.toList()));
+        return Files.readAllBytes(filePath);
+    }
+
+    private static String sha256(byte[] content) {
+        MessageDigest digest = ChecksumManifest.digest();
+        digest.update(content);
+        return ChecksumManifest.hex(digest);
+    }
+
+    private void delete(Path filePath) throws IOException {
+        try (Stream<Path> stream = Files.walk(tempDir)) {
+            stream.filter(Predicate.not(tempDir::equals))
+                    .filter(Predicate.not(tempFile::equals))
+                    .sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
     @Test
     void getRoot() {
     }
@@ -91,6 +320,7 @@ class FileSaveProcessorTest extends AbstractFileSourceTest {
     void tearDown() {
         try {
             Files.delete(this.tempFile);
+            Files.deleteIfExists(this.tempDir.resolve(ChecksumManifest.MANIFEST_FILE));
         } finally {
             try {
                 Files.delete(this.tempDir);
@@ -8,7 +8,10 @@ import org.junit.jupiter.api.Test;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -18,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.atLeastOnce;
@@ -63,6 +67,45 @@ class HREFTest {
         assertEquals(DEFAULT_VERSIONED_NAME, HREF.versionName(DEFAULT_VERSION));
     }
 
+    @Test
+    void appendVersionNameTest() {
+        StringBuilder builder = new StringBuilder("/deliver/");
+        assertEquals("/deliver/01.02.03_04", HREF.appendVersionName(builder, DEFAULT_VERSION).toString());
+        builder.setLength(0);
+        assertEquals("17.00.100_4095", HREF.appendVersionName(builder, HREF.versionOfFile("17.0.100_4095")).toString());
+        assertThrows(IllegalArgumentException.class, () -> HREF.appendVersionName(builder, 0L));
+    }
+
+    @Test
+    void versionOfTest() {
+        assertEquals(DEFAULT_VERSION, HREF.versionOf("/deliver/01.02.03_04/", 9, 20));
+        assertEquals(DEFAULT_VERSION, HREF.versionOfFile("0001.2.03_0004"));
+        // The newer version has the greater packed value
+        assertTrue(HREF.versionOfFile("10.10.00_60") > HREF.versionOfFile("10.9.99_60"));
+        for (String name : new String[] { "", "1.2.3", "1.2.3_", ".2.3_4", "1..3_4", "1.2_3.4", "1.2.3_4_5", "1.2.3.4_5",
+                "1.2.3_4a", "v1.2.3_4", "1.2.4096_60", "99999999999999999999.0.0_60" }) {
+            assertEquals(0L, HREF.versionOfFile(name), name);
+        }
+    }
+
+    @Test
+    void unsupportedVersionTest() {
+        // The version names out of the packed version are crawled as the unversioned ones with the warning
+        for (String name : new String[] { "1.2.3.4_5", "1.2.4096_60", "99999999999999999999.0.0_60" }) {
+            assertEquals(0L, HREF.versionOfFile(name), name);
+            assertTrue(HREF.isUnsupportedVersion(name, 0, name.length()), name);
+        }
+        for (String name : new String[] { "01.02.03_04", "1.2.3", "1.2.3_4_5", "1.2_3.4", "20220421", "ts_129078v150000p.pdf" }) {
+            assertFalse(HREF.isUnsupportedVersion(name, 0, name.length()), name);
+        }
+    }
+
+    @Test
+    void versionOfUriTest() {
+        assertEquals(DEFAULT_VERSION, builder("/deliver/" + DEFAULT_VERSIONED_NAME + "/").build().getVersion());
+        assertEquals(0L, builder("/deliver/" + DEFAULT_VERSIONED_NAME + "/ts.pdf").build().getVersion());
+    }
+
     @Test
     void calculatedVersionTest() {
         assertEquals(DEFAULT_VERSION, builder(DEFAULT_VERSIONED_NAME).build().getVersion());
@@ -134,6 +177,13 @@ class HREFTest {
         assertEquals(path, builder(path).build().path().toString());
     }
 
+    @Test
+    void cachedPathTest() {
+        HREF href = builder(Path.of("/zero", DEFAULT_VERSIONED_NAME).toString()).build();
+        assertSame(href.path(), href.path());
+        assertSame(href.name(), href.name());
+    }
+
     @Test
     void nonVersionedTest() {
         assertFalse(builder("nevada").build().isVersioned());
@@ -160,6 +210,21 @@ class HREFTest {
         verify(href, atLeastOnce()).isVersioned();
     }
 
+    @Test
+    void instantTest() {
+        LocalDateTime dateTime = LocalDateTime.of(2022, 4, 21, 8, 39);
+        HREF href = builder().bytes(10L).dateTime(dateTime).build();
+        Instant instant = href.instant(ServerTime.ETSI_ZONE);
+        assertEquals(dateTime.atZone(ServerTime.ETSI_ZONE).toInstant(), instant);
+        // The instant is converted once for the zone
+        assertSame(instant, href.instant(ServerTime.ETSI_ZONE));
+        assertEquals(dateTime.toInstant(ZoneOffset.UTC), href.instant(ZoneOffset.UTC));
+        href.setDateTime(dateTime.plusDays(1));
+        assertEquals(instant.plus(1, ChronoUnit.DAYS), href.instant(ServerTime.ETSI_ZONE));
+        assertNull(HREF.builder().uri(URI.create(DEFAULT_URI)).build().instant(ServerTime.ETSI_ZONE));
+        assertThrows(NullPointerException.class, () -> href.instant(null));
+    }
+
     private HREF.Builder builder() {
         return builder("");
     }
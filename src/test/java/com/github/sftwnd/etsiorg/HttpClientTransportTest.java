@@ -0,0 +1,141 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientTransportTest {
+
+    private static final String PATH = "/deliver/etsi_ts/file.pdf";
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(1024).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void illegalConnectionsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new HttpClientTransport(null, 0, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void pageContentTest() throws IOException {
+        Page page = page();
+        assertEquals(CONTENT.length, page.contentLength());
+        try (InputStream inputStream = page.inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void pageOffsetTest() throws IOException {
+        Page page = page();
+        page.connect(0);
+        page.connect(100);
+        try (InputStream inputStream = page.inputStream()) {
+            assertEquals(CONTENT.length - 100, inputStream.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void pageNotFoundTest() {
+        Page page = Page.of(HREF.builder().uri(server.uri("/not-found.pdf")).build(), transport);
+        assertThrows(IOException.class, page::inputStream);
+    }
+
+    @Test
+    void connectionReuseTest() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            try (InputStream inputStream = page().inputStream()) {
+                assertArrayEquals(CONTENT, inputStream.readAllBytes());
+            }
+        }
+        assertEquals(20, server.getRequests().get());
+        // Keep-alive connection is reused instead of the TCP handshake per file
+        assertEquals(1, server.getConnections().size());
+    }
+
+    @Test
+    void connectionsPerHostTest() {
+        this.transport = new HttpClientTransport(null, 2, Duration.ofSeconds(5));
+        server.setDelay(50);
+        CompletableFuture.allOf(IntStream.range(0, 10)
+                        .mapToObj(i -> transport.get(server.uri(PATH), Map.of()).thenApply(response -> {
+                            try (response) {
+                                return response.body().readAllBytes().length;
+                            } catch (IOException ioex) {
+                                throw new IllegalStateException(ioex);
+                            }
+                        }))
+                        .collect(Collectors.toList())
+                        .toArray(CompletableFuture<?>[]::new))
+                .join();
+        assertEquals(10, server.getRequests().get());
+        assertTrue(server.getMaxInFlight().get() <= 2, "Requests in flight: " + server.getMaxInFlight().get());
+    }
+
+    @Test
+    void bandwidthTest() throws IOException {
+        this.transport = new HttpClientTransport(null, 2, Duration.ofSeconds(5), new RateLimiter(CONTENT.length / 2.0), 0);
+        long start = System.nanoTime();
+        try (InputStream inputStream = page().inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        // The first half is the burst, the second one is read in a second
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 900);
+    }
+
+    @Test
+    void requestRateTest() {
+        this.transport = new HttpClientTransport(null, 2, Duration.ofSeconds(5), null, 4);
+        long start = System.nanoTime();
+        CompletableFuture.allOf(IntStream.range(0, 6)
+                        .mapToObj(i -> transport.get(server.uri(PATH), Map.of()).thenAccept(response -> {
+                            try (response) {
+                                response.body().readAllBytes();
+                            } catch (IOException ioex) {
+                                throw new IllegalStateException(ioex);
+                            }
+                        }))
+                        .toArray(CompletableFuture<?>[]::new))
+                .join();
+        assertEquals(6, server.getRequests().get());
+        // Four requests are the burst, two more are sent after 250ms each
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 450);
+    }
+
+    private Page page() {
+        return Page.of(HREF.builder().uri(server.uri(PATH)).bytes((long) CONTENT.length).dateTime(LocalDateTime.now()).build(), transport);
+    }
+
+    private StubServer server;
+    private HttpClientTransport transport;
+
+    @BeforeEach
+    void startUp() throws IOException {
+        this.server = new StubServer().file(PATH, CONTENT, LocalDateTime.now());
+        this.transport = new HttpClientTransport();
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.server.close();
+        } finally {
+            this.server = null;
+            this.transport = null;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaseQueueTest extends AbstractRootTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(10);
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+
+    @Test
+    void illegalAttemptsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new LeaseQueue(file, clock::get, 0));
+    }
+
+    @Test
+    void leaseTest() throws IOException {
+        assertTrue(queue.initialize(this::shards));
+        assertFalse(new LeaseQueue(file).initialize(() -> { throw new IOException("seeded twice"); }));
+        LeaseQueue.Lease first = queue.lease("a", LEASE).orElseThrow();
+        LeaseQueue.Lease second = queue.lease("b", LEASE).orElseThrow();
+        assertNotEquals(first.getHref().getUri(), second.getHref().getUri());
+        assertTrue(queue.lease("c", LEASE).isEmpty());
+        assertFalse(queue.isFinished());
+        // The file subtree keeps its description
+        HREF file = second.getHref();
+        assertTrue(file.isRegularFile());
+        assertEquals(100L, file.getBytes());
+        assertEquals(DATE_TIME, file.getDateTime());
+        assertFalse(first.getHref().isRegularFile());
+        assertTrue(queue.complete(first));
+        assertTrue(queue.complete(second));
+        assertTrue(queue.isFinished());
+        assertEquals(2, queue.states().get(LeaseQueue.State.DONE));
+    }
+
+    @Test
+    void expiryTest() throws IOException {
+        queue.initialize(() -> shards().subList(0, 1));
+        LeaseQueue.Lease crashed = queue.lease("a", LEASE).orElseThrow();
+        assertTrue(queue.lease("b", LEASE).isEmpty());
+        clock.addAndGet(LEASE.toMillis() / 2);
+        crashed = queue.renew(crashed, LEASE).orElseThrow();
+        clock.addAndGet(LEASE.toMillis() / 2);
+        // The renewed lease has not been expired yet
+        assertTrue(queue.lease("b", LEASE).isEmpty());
+        clock.addAndGet(LEASE.toMillis());
+        LeaseQueue.Lease lease = queue.lease("b", LEASE).orElseThrow();
+        assertEquals(crashed.getHref().getUri(), lease.getHref().getUri());
+        assertFalse(queue.complete(crashed));
+        assertTrue(queue.renew(crashed, LEASE).isEmpty());
+        assertTrue(queue.complete(lease));
+        assertTrue(queue.isFinished());
+    }
+
+    @Test
+    void attemptsTest() throws IOException {
+        queue = new LeaseQueue(file, clock::get, 2);
+        queue.initialize(() -> shards().subList(0, 1));
+        assertTrue(queue.release(queue.lease("a", LEASE).orElseThrow()));
+        assertFalse(queue.isFinished());
+        assertTrue(queue.release(queue.lease("a", LEASE).orElseThrow()));
+        assertTrue(queue.lease("a", LEASE).isEmpty());
+        assertTrue(queue.isFinished());
+        assertEquals(1, queue.states().get(LeaseQueue.State.FAILED));
+    }
+
+    @Test
+    void concurrentTest() throws IOException {
+        AtomicInteger seeds = new AtomicInteger();
+        List<CompletableFuture<Integer>> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String owner = "worker-" + i;
+            workers.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    LeaseQueue workerQueue = new LeaseQueue(file);
+                    workerQueue.initialize(() -> {
+                        seeds.incrementAndGet();
+                        return shards(20);
+                    });
+                    int leased = 0;
+                    for (var lease = workerQueue.lease(owner, LEASE); lease.isPresent(); lease = workerQueue.lease(owner, LEASE)) {
+                        workerQueue.complete(lease.get());
+                        leased++;
+                    }
+                    return leased;
+                } catch (IOException ioex) {
+                    throw new IllegalStateException(ioex);
+                }
+            }));
+        }
+        assertEquals(20, workers.stream().mapToInt(CompletableFuture::join).sum());
+        assertEquals(1, seeds.get());
+        assertEquals(20, queue.states().get(LeaseQueue.State.DONE));
+    }
+
+    private List<HREF> shards() {
+        return List.of(
+                HREF.builder().uri(URI.create("http://localhost/deliver/ts/")).build(),
+                HREF.builder().uri(URI.create("http://localhost/deliver/ts.pdf")).bytes(100L).dateTime(DATE_TIME).build());
+    }
+
+    private static List<HREF> shards(int count) {
+        List<HREF> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(HREF.builder().uri(URI.create("http://localhost/deliver/ts_" + i + "/")).build());
+        }
+        return result;
+    }
+
+    private Path file;
+    private AtomicLong clock;
+    private LeaseQueue queue;
+
+    @BeforeEach
+    void startUp() {
+        this.file = root.resolve("queue.tsv");
+        this.clock = new AtomicLong(1_000_000L);
+        this.queue = new LeaseQueue(file, clock::get, LeaseQueue.DEFAULT_ATTEMPTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.file = null;
+        this.clock = null;
+        this.queue = null;
+    }
+
+}
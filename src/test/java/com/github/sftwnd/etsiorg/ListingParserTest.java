@@ -0,0 +1,113 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListingParserTest {
+
+    private static final URI BASE = URI.create("http://localhost/");
+
+    @Test
+    void filesTest() throws IOException {
+        List<HREF> hrefs = parse(resource("files.html"), ListingParser.DEFAULT_BUFFER_SIZE);
+        assertEquals(2, hrefs.size());
+        HREF href = hrefs.get(0);
+        assertEquals(URI.create("http://localhost/deliver/etsi_ts/129000_129099/129078/17.00.00_60/ts_129078v170000p.pdf"), href.getUri());
+        assertEquals(932564L, href.getBytes());
+        assertEquals(LocalDateTime.of(2022, 4, 21, 8, 39), href.getDateTime());
+        assertTrue(href.isRegularFile());
+    }
+
+    @Test
+    void bufferSizeTest() throws IOException {
+        // The rows are split between the reads and longer than the small buffers
+        for (int bufferSize : new int[] {1, 7, 64, ListingParser.DEFAULT_BUFFER_SIZE}) {
+            List<HREF> hrefs = parse(resource("versions.html"), bufferSize);
+            assertEquals(16, hrefs.size());
+            hrefs.forEach(href -> assertFalse(href.isRegularFile()));
+            hrefs.forEach(href -> assertNull(href.getBytes()));
+            assertEquals(LocalDateTime.of(2000, 2, 3, 10, 11), hrefs.get(0).getDateTime());
+        }
+    }
+
+    @Test
+    void rowsTest() throws IOException {
+        String listing = "<pre><A HREF=\"/deliver/\">[To Parent Directory]</A>" +
+                "<BR><br> 12/14/2022 12:46 PM        &lt;dir&gt; <a href=\"/deliver/a/\">a</a>" +
+                "<br> 1/2/2022 12:05 AM 3000000000 <A  HREF = \"/deliver/a/b.zip\">b.zip</A>" +
+                "<br>13/45/2022  1:00 PM 1 <A HREF=\"/deliver/a/wrong-date.zip\">wrong-date.zip</A>" +
+                "<br> 1/2/2022  1:00 PM 1 <A HREF=\"/deliver/a/wrong uri.zip\">wrong uri.zip</A>" +
+                "<br> 1/2/2022  1:00 XM 1 <A HREF=\"/deliver/a/wrong-meridiem.zip\">wrong-meridiem.zip</A>" +
+                "<br></pre>";
+        List<HREF> hrefs = parse(listing.getBytes(StandardCharsets.UTF_8), 16);
+        assertEquals(2, hrefs.size());
+        assertEquals(URI.create("http://localhost/deliver/a/"), hrefs.get(0).getUri());
+        assertEquals(LocalDateTime.of(2022, 12, 14, 12, 46), hrefs.get(0).getDateTime());
+        assertFalse(hrefs.get(0).isRegularFile());
+        assertEquals(3000000000L, hrefs.get(1).getBytes());
+        assertEquals(LocalDateTime.of(2022, 1, 2, 0, 5), hrefs.get(1).getDateTime());
+    }
+
+    @Test
+    void incrementalTest() throws IOException {
+        byte[] listing = resource("versions.html");
+        int[] available = {0};
+        List<Integer> readAt = new ArrayList<>();
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                if (available[0] >= listing.length) {
+                    return -1;
+                }
+                int bytes = Math.min(Math.min(dst.remaining(), 100), listing.length - available[0]);
+                dst.put(listing, available[0], bytes);
+                available[0] += bytes;
+                return bytes;
+            }
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+            @Override
+            public void close() {
+            }
+        };
+        ListingParser.parse(channel, BASE, href -> readAt.add(available[0]));
+        assertEquals(16, readAt.size());
+        // The reference is passed before the rest of the listing is read
+        assertTrue(readAt.get(0) < listing.length / 4, "First reference after " + readAt.get(0) + " bytes");
+    }
+
+    private static @NonNull List<HREF> parse(@NonNull byte[] listing, int bufferSize) throws IOException {
+        List<HREF> hrefs = new ArrayList<>();
+        try (ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(listing))) {
+            ListingParser.parse(channel, BASE, hrefs::add, bufferSize);
+        }
+        return hrefs;
+    }
+
+    private static @NonNull byte[] resource(@NonNull String name) throws IOException {
+        try (InputStream inputStream = ListingParserTest.class.getClassLoader().getResourceAsStream(name)) {
+            return Objects.requireNonNull(inputStream, name).readAllBytes();
+        }
+    }
+
+}
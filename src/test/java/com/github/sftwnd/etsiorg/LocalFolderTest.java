@@ -0,0 +1,59 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalFolderTest extends AbstractRootTest {
+
+    @Test
+    void attributesTest() throws IOException {
+        Files.write(root.resolve("file.pdf"), new byte[10]);
+        Files.createDirectories(root.resolve("folder"));
+        LocalFolder folder = LocalFolder.of(root);
+        BasicFileAttributes file = folder.attributes("file.pdf");
+        assertNotNull(file);
+        assertTrue(file.isRegularFile());
+        assertEquals(10, file.size());
+        assertTrue(folder.attributes("folder").isDirectory());
+        assertNull(folder.attributes("missing.pdf"));
+        // The folder is listed once
+        Files.write(root.resolve("missing.pdf"), new byte[10]);
+        assertFalse(folder.contains("missing.pdf"));
+        assertTrue(folder.create());
+        assertThrows(NullPointerException.class, () -> folder.attributes(null));
+        assertThrows(NullPointerException.class, () -> LocalFolder.of(null));
+    }
+
+    @Test
+    void createTest() throws IOException {
+        Path path = root.resolve("a/b");
+        LocalFolder folder = LocalFolder.of(path);
+        assertNull(folder.attributes("file.pdf"));
+        assertTrue(folder.create());
+        assertTrue(Files.isDirectory(path));
+        // The folder is created once
+        Files.delete(path);
+        assertTrue(folder.create());
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void fileTest() throws IOException {
+        Path path = Files.write(root.resolve("file"), new byte[10]);
+        LocalFolder folder = LocalFolder.of(path);
+        assertFalse(folder.create());
+        assertNull(folder.attributes("file.pdf"));
+    }
+
+}
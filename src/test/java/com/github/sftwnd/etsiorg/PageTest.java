@@ -6,10 +6,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.Random;
 import java.util.function.Supplier;
@@ -18,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
@@ -45,9 +46,24 @@ class PageTest {
     @Test
     void dateTimeTest() {
         LocalDateTime dateTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
-        when(href.getDateTime()).thenReturn(dateTime);
-        Instant checkInstant = dateTime.atZone(ZoneId.systemDefault()).toInstant();
+        Instant checkInstant = dateTime.atZone(ServerTime.getZone()).toInstant();
+        when(href.instant(ServerTime.getZone())).thenReturn(checkInstant);
         assertEquals(checkInstant, this.page().dateTime());
+        verify(href).instant(ServerTime.getZone());
+    }
+
+    @Test
+    void bufferTest() {
+        ByteBuffer buffer = Page.buffer();
+        assertTrue(buffer.isDirect());
+        buffer.position(10);
+        Page.release(buffer);
+        // The buffer of the finished transfer is reused
+        ByteBuffer reused = Page.buffer();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        Page.release(reused);
     }
 
     @Test
@@ -0,0 +1,100 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathTrieTest {
+
+    @Test
+    void internTest() {
+        PathTrie.Node file = trie.intern(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/ts_129078v170000p.pdf"));
+        PathTrie.Node folder = trie.intern(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/"));
+        // The prefix is shared: authority, deliver, etsi_ts, 129000_129099, 129078 and the file
+        assertEquals(6, trie.size());
+        assertSame(folder, file.getParent());
+        assertSame(folder, trie.intern(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078")));
+        assertNotSame(folder, trie.intern(URI.create("http://www.etsi.org/deliver/etsi_ts/129000_129099/129078/")));
+        assertEquals("ts_129078v170000p.pdf", file.getName());
+        assertEquals("/deliver/etsi_ts/129000_129099/129078/", folder.path(true));
+        assertEquals("/deliver/etsi_ts/129000_129099/129078", folder.path(false));
+        assertEquals(URI.create("https://www.etsi.org/deliver/etsi_ts/129000_129099/129078/ts_129078v170000p.pdf"), file.uri(false));
+        assertEquals(URI.create("https://www.etsi.org/"), trie.intern(URI.create("https://www.etsi.org")).uri(false));
+    }
+
+    @Test
+    void rawPathTest() {
+        URI uri = URI.create("http://localhost:8080/deliver/a%20b/c%2Fd.pdf");
+        assertEquals(uri, trie.intern(uri).uri(false));
+    }
+
+    @Test
+    void unsupportedTest() {
+        assertThrows(IllegalArgumentException.class, () -> trie.intern(URI.create("http://localhost/deliver/?a=b")));
+        assertThrows(IllegalArgumentException.class, () -> trie.intern(URI.create("/deliver/")));
+        assertThrows(IllegalArgumentException.class, () -> trie.intern(URI.create("mailto:a@b")));
+    }
+
+    @Test
+    void findTest() {
+        PathTrie.Node file = trie.intern(URI.create("http://localhost/deliver/a/file.pdf"));
+        PathTrie.Node other = trie.intern(URI.create("http://localhost/deliver/a/b/"));
+        int size = trie.size();
+        PathTrie.Node folder = trie.find(URI.create("http://localhost/deliver/a/"));
+        assertSame(file.getParent(), folder);
+        assertEquals(Set.of(file, other), new HashSet<>(folder.getChildren()));
+        assertTrue(file.getChildren().isEmpty());
+        // The missing nodes are not interned by the search
+        assertNull(trie.find(URI.create("http://localhost/deliver/c/")));
+        assertNull(trie.find(URI.create("http://localhost/deliver/?a=b")));
+        assertEquals(size, trie.size());
+        // The value is attached to the interned node
+        trie.intern(URI.create("http://localhost/deliver/a/file.pdf")).setValue("record");
+        assertEquals("record", file.getValue());
+        assertNull(folder.getValue());
+        assertSame(trie.getRoot(), folder.getParent().getParent().getParent());
+    }
+
+    @Test
+    void concurrentTest() {
+        List<CompletableFuture<PathTrie.Node>> futures = new ArrayList<>();
+        IntStream.range(0, 8).forEach(i -> futures.add(CompletableFuture.supplyAsync(() -> {
+            PathTrie.Node last = null;
+            for (int n = 0; n < 1000; n++) {
+                last = trie.intern(URI.create("http://localhost/deliver/" + n % 10 + "/" + n));
+            }
+            return last;
+        })));
+        PathTrie.Node node = futures.get(0).join();
+        futures.forEach(future -> assertSame(node, future.join()));
+        assertEquals(1 + 1 + 10 + 1000, trie.size());
+    }
+
+    private PathTrie trie;
+
+    @BeforeEach
+    void startUp() {
+        this.trie = new PathTrie();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.trie = null;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void illegalRateTest() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Double.NaN));
+    }
+
+    @Test
+    void burstTest() {
+        RateLimiter limiter = new RateLimiter(1000, clock::get);
+        // The bucket of one second is full at the start
+        assertEquals(0, limiter.reserve(600));
+        assertEquals(0, limiter.reserve(400));
+        assertEquals(SECOND / 10, limiter.reserve(100));
+        assertEquals(SECOND / 10 + SECOND / 2, limiter.reserve(500));
+    }
+
+    @Test
+    void refillTest() {
+        RateLimiter limiter = new RateLimiter(1000, clock::get);
+        assertEquals(0, limiter.reserve(1000));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(0, limiter.reserve(500));
+        assertEquals(SECOND / 1000, limiter.reserve(1));
+        // Unused permits are not accumulated over the burst
+        clock.addAndGet(10 * SECOND);
+        assertEquals(0, limiter.reserve(1000));
+        assertEquals(SECOND / 1000, limiter.reserve(1));
+    }
+
+    @Test
+    void slowRateTest() {
+        RateLimiter limiter = new RateLimiter(0.5, clock::get);
+        assertEquals(0, limiter.reserve(1));
+        assertEquals(2 * SECOND, limiter.reserve(1));
+    }
+
+    @Test
+    void concurrentReserveTest() {
+        RateLimiter limiter = new RateLimiter(1000, clock::get);
+        CompletableFuture.allOf(IntStream.range(0, 8)
+                        .mapToObj(i -> CompletableFuture.runAsync(() -> IntStream.range(0, 1000).forEach(ignore -> limiter.reserve(1)), executor))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+        // No reservation is lost: 8000 permits with the burst of 1000 are paid in 7 seconds
+        assertEquals(7 * SECOND + SECOND / 1000, limiter.reserve(1));
+    }
+
+    private AtomicLong clock;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startUp() {
+        this.clock = new AtomicLong(100 * SECOND);
+        this.executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.executor.shutdownNow();
+        } finally {
+            this.clock = null;
+            this.executor = null;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void illegalAttemptsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0));
+    }
+
+    @Test
+    void retryableTest() {
+        RetryPolicy policy = new RetryPolicy(3);
+        for (int status : new int[]{408, 429, 500, 502, 503, 504}) {
+            assertTrue(policy.isRetryable(status), "Status: " + status);
+        }
+        for (int status : new int[]{200, 206, 304, 400, 403, 404, 501}) {
+            assertFalse(policy.isRetryable(status), "Status: " + status);
+        }
+        assertTrue(policy.isRetryable(new ConnectException("Connection refused")));
+        assertTrue(policy.isRetryable(new HttpTimeoutException("Request timed out")));
+        assertTrue(policy.isRetryable(new IOException("Connection reset")));
+        assertFalse(policy.isRetryable(new InterruptedIOException()));
+        assertFalse(policy.isRetryable(new IllegalArgumentException()));
+    }
+
+    @Test
+    void backoffTest() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofSeconds(1));
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.delay(1, null));
+            assertBetween(100, 200, policy.delay(2, null));
+            assertBetween(400, 800, policy.delay(4, null));
+            // The delay is limited by the maximum one
+            assertBetween(500, 1000, policy.delay(8, null));
+            assertBetween(500, 1000, policy.delay(64, null));
+        }
+    }
+
+    @Test
+    void retryAfterTest() {
+        RetryPolicy policy = new RetryPolicy(3);
+        assertEquals(Duration.ofSeconds(120).toNanos(), policy.delay(1, "120"));
+        assertEquals(Optional.of(RetryPolicy.MAX_RETRY_AFTER), RetryPolicy.retryAfter("86400"));
+        assertEquals(Optional.of(Duration.ZERO), RetryPolicy.retryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        Duration delay = RetryPolicy.retryAfter(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME)).orElseThrow();
+        assertTrue(delay.toSeconds() >= 58 && delay.toSeconds() <= 60, "Delay: " + delay);
+        assertEquals(Optional.empty(), RetryPolicy.retryAfter("soon"));
+        assertEquals(Optional.empty(), RetryPolicy.retryAfter(" "));
+    }
+
+    private static void assertBetween(long fromMillis, long toMillis, long nanos) {
+        assertTrue(nanos >= Duration.ofMillis(fromMillis).toNanos() && nanos <= Duration.ofMillis(toMillis).toNanos(),
+                "Delay: " + Duration.ofNanos(nanos) + " is out of [" + fromMillis + ", " + toMillis + "] ms");
+    }
+
+}
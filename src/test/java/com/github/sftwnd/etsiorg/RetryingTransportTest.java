@@ -0,0 +1,170 @@
+package com.github.sftwnd.etsiorg;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryingTransportTest {
+
+    private static final String PATH = "/deliver/etsi_ts/file.pdf";
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(64).getBytes(StandardCharsets.UTF_8);
+    private static final RetryPolicy POLICY = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(50));
+
+    @Test
+    void illegalThresholdTest() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryingTransport(new HttpClientTransport(), POLICY, 0, Duration.ofSeconds(1), null));
+    }
+
+    @Test
+    void retryTest() throws IOException {
+        server.getFailures().set(2);
+        try (InputStream inputStream = page().inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        assertEquals(3, server.getRequests().get());
+        assertEquals(2, metrics.getRetries().count());
+    }
+
+    @Test
+    void exhaustedTest() {
+        server.getFailures().set(3);
+        assertThrows(IOException.class, () -> page().inputStream());
+        assertEquals(3, server.getRequests().get());
+        assertEquals(2, metrics.getRetries().count());
+    }
+
+    @Test
+    void notRetryableTest() {
+        server.getFailures().set(1);
+        server.setFailureStatus(403);
+        assertThrows(IOException.class, () -> page().inputStream());
+        assertEquals(1, server.getRequests().get());
+        assertEquals(0, metrics.getRetries().count());
+    }
+
+    @Test
+    void retryAfterTest() throws IOException {
+        server.getFailures().set(1);
+        server.setFailureStatus(429);
+        server.setRetryAfter("1");
+        long start = System.nanoTime();
+        try (InputStream inputStream = page().inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 900);
+    }
+
+    @Test
+    void deferredTest() throws IOException {
+        server.getFailures().set(2);
+        RetryDeferredException drex = assertThrows(RetryDeferredException.class, () -> page().deferrable(true).inputStream());
+        assertTrue(drex.getDelay() > 0);
+        assertThrows(RetryDeferredException.class, () -> page().deferrable(true).inputStream());
+        try (InputStream inputStream = page().deferrable(true).inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        assertEquals(3, server.getRequests().get());
+        assertEquals(2, metrics.getRetries().count());
+    }
+
+    @Test
+    void deferredExhaustedTest() {
+        server.getFailures().set(3);
+        assertThrows(RetryDeferredException.class, () -> page().deferrable(true).inputStream());
+        assertThrows(RetryDeferredException.class, () -> page().deferrable(true).inputStream());
+        IOException ioex = assertThrows(IOException.class, () -> page().deferrable(true).inputStream());
+        assertFalse(ioex instanceof RetryDeferredException);
+        assertEquals(3, server.getRequests().get());
+    }
+
+    @Test
+    void deferredExpirationTest() throws IOException, InterruptedException {
+        this.transport = new RetryingTransport(new HttpClientTransport(), POLICY, 10, Duration.ofMillis(100), metrics);
+        server.getFailures().set(1);
+        assertThrows(RetryDeferredException.class, () -> page().deferrable(true).inputStream());
+        assertEquals(1, transport.getDeferred().size());
+        // The resource is not requested again: its attempt expires after the delay and the open period
+        for (int i = 0; i < 50 && !transport.getDeferred().isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(transport.getDeferred().isEmpty());
+        try (InputStream inputStream = page().deferrable(true).inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        assertTrue(transport.getDeferred().isEmpty());
+    }
+
+    @Test
+    void connectionErrorTest() throws IOException {
+        URI uri;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            uri = URI.create("http://" + socket.getInetAddress().getHostAddress() + ":" + socket.getLocalPort() + PATH);
+        }
+        CompletionException cex = assertThrows(CompletionException.class, () -> transport.get(uri, Map.of()).join());
+        assertInstanceOf(ConnectException.class, cex.getCause());
+        assertEquals(2, metrics.getRetries().count());
+    }
+
+    @Test
+    void circuitTest() throws IOException {
+        this.transport = new RetryingTransport(new HttpClientTransport(), new RetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(10)),
+                2, Duration.ofMillis(300), metrics);
+        server.getFailures().set(2);
+        long start = System.nanoTime();
+        try (InputStream inputStream = page().inputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+        // The third request is the trial one after the open period
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 300);
+        assertEquals(3, server.getRequests().get());
+        assertEquals(1, metrics.getCircuitOpenings().count());
+        assertEquals(0, transport.pause(HREF.builder().uri(server.uri(PATH)).build()));
+    }
+
+    private Page page() {
+        return Page.of(HREF.builder().uri(server.uri(PATH)).bytes((long) CONTENT.length).dateTime(LocalDateTime.now()).build(), transport);
+    }
+
+    private StubServer server;
+    private CrawlMetrics metrics;
+    private RetryingTransport transport;
+
+    @BeforeEach
+    void startUp() throws IOException {
+        this.server = new StubServer().file(PATH, CONTENT, LocalDateTime.now());
+        this.metrics = new CrawlMetrics(new SimpleMeterRegistry());
+        this.transport = new RetryingTransport(new HttpClientTransport(), POLICY, 10, Duration.ofSeconds(1), metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.server.close();
+        } finally {
+            this.server = null;
+            this.metrics = null;
+            this.transport = null;
+        }
+    }
+
+}
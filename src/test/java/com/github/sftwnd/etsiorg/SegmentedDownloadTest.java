@@ -0,0 +1,136 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedDownloadTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+    private static final int SEGMENTS = 4;
+
+    @Test
+    void segmentsTest() throws IOException {
+        assertEquals(List.of(filePath), download());
+        assertArrayEquals(content, Files.readAllBytes(filePath));
+        assertEquals(SEGMENTS, server.getRequests().get());
+        assertFalse(partial());
+    }
+
+    @Test
+    void singleStreamTest() throws IOException {
+        server.setAcceptRanges(false);
+        assertEquals(List.of(filePath), download());
+        assertArrayEquals(content, Files.readAllBytes(filePath));
+        assertEquals(1, server.getRequests().get());
+        assertFalse(partial());
+    }
+
+    @Test
+    void resumeTest() throws IOException {
+        // Segments 1 and 3 have been loaded before the crash: their content is not loaded again
+        Files.createDirectories(filePath.getParent());
+        Files.write(DownloadJournal.part(filePath), new byte[content.length]);
+        DownloadJournal journal = DownloadJournal.create(root, "/deliver/file.zip", content.length, DATE_TIME, SEGMENTS);
+        journal.completed(1);
+        journal.completed(3);
+        assertTrue(partial());
+        assertEquals(List.of(filePath), download());
+        byte[] loaded = Files.readAllBytes(filePath);
+        int[] from = {0, content.length / SEGMENTS, content.length * 2 / SEGMENTS, content.length * 3 / SEGMENTS};
+        assertEquals(0, Arrays.compare(content, 0, from[1], loaded, 0, from[1]));
+        assertTrue(Arrays.equals(new byte[from[2] - from[1]], Arrays.copyOfRange(loaded, from[1], from[2])));
+        assertEquals(0, Arrays.compare(content, from[2], from[3], loaded, from[2], from[3]));
+        assertEquals(2, server.getRequests().get());
+        assertFalse(partial());
+    }
+
+    @Test
+    void busySlotsTest() throws IOException {
+        // All the download slots are taken by the other download: the segments are loaded by the caller alone
+        var busy = new CrawlScheduler(executor, 1, 1, 1024, CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        CountDownLatch latch = new CountDownLatch(1);
+        assertTrue(busy.startHelper(() -> await(latch)));
+        this.segmentedDownload = new SegmentedDownload(busy, 1024, SEGMENTS);
+        try {
+            assertEquals(List.of(filePath), download());
+        } finally {
+            latch.countDown();
+        }
+        assertArrayEquals(content, Files.readAllBytes(filePath));
+        assertEquals(SEGMENTS, server.getRequests().get());
+        assertFalse(partial());
+    }
+
+    @Test
+    void smallFileTest() {
+        assertFalse(new SegmentedDownload(scheduler, content.length + 1, SEGMENTS).applies(content.length));
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedDownload(scheduler, 0, 1));
+    }
+
+    private boolean partial() {
+        return DownloadJournal.find(root, "/deliver/file.zip").isPresent() || Files.exists(DownloadJournal.part(filePath));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Path> download() {
+        HREF href = HREF.builder().uri(server.uri("/deliver/file.zip")).bytes((long) content.length).dateTime(DATE_TIME).build();
+        return new FileSaveProcessor(root, Page.of(href), null, CrawlContext.builder().segmentedDownload(segmentedDownload).build()).process().join().collect(Collectors.toList());
+    }
+
+    private ExecutorService executor;
+    private CrawlScheduler scheduler;
+    private SegmentedDownload segmentedDownload;
+    private byte[] content;
+    private Path filePath;
+
+    @BeforeEach
+    void startUp() {
+        this.content = new byte[(1 << 20) + 3];
+        new Random(1).nextBytes(this.content);
+        this.server.file("/deliver/file.zip", this.content, DATE_TIME);
+        this.executor = Executors.newFixedThreadPool(SEGMENTS);
+        this.scheduler = new CrawlScheduler(this.executor, 1, SEGMENTS, 1024, CrawlScheduler.DEPTH_FIRST, CrawlScheduler.SMALLEST_FIRST);
+        this.segmentedDownload = new SegmentedDownload(this.scheduler, 1024, SEGMENTS);
+        this.filePath = this.root.resolve("deliver/file.zip");
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            this.executor.shutdownNow();
+        } finally {
+            this.executor = null;
+            this.scheduler = null;
+            this.segmentedDownload = null;
+            this.content = null;
+            this.filePath = null;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ServerTimeTest {
+
+    @Test
+    void defaultZoneTest() {
+        assertSame(ServerTime.ETSI_ZONE, ServerTime.getZone());
+    }
+
+    @Test
+    void setZoneTest() {
+        ServerTime.setZone(ZoneOffset.UTC);
+        assertSame(ZoneOffset.UTC, ServerTime.getZone());
+        assertThrows(NullPointerException.class, () -> ServerTime.setZone(null));
+    }
+
+    @Test
+    void epochSecondTest() {
+        // The ordinary time, the gap and the overlap of the summer time, the fixed offset
+        for (LocalDateTime dateTime : List.of(LocalDateTime.of(2022, 4, 21, 8, 39),
+                LocalDateTime.of(2022, 3, 27, 2, 30), LocalDateTime.of(2022, 10, 30, 2, 30),
+                LocalDateTime.of(1999, 12, 31, 23, 59))) {
+            for (ZoneId zone : List.of(ServerTime.ETSI_ZONE, ZoneId.of("America/New_York"), ZoneOffset.ofHours(3))) {
+                assertEquals(dateTime.atZone(zone).toEpochSecond(), ServerTime.epochSecond(dateTime, zone), dateTime + " " + zone);
+            }
+        }
+        assertThrows(NullPointerException.class, () -> ServerTime.epochSecond(null, ServerTime.ETSI_ZONE));
+        assertThrows(NullPointerException.class, () -> ServerTime.epochSecond(LocalDateTime.now(), null));
+    }
+
+    @BeforeEach
+    void startUp() {
+        this.zone = ServerTime.getZone();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ServerTime.setZone(this.zone);
+        this.zone = null;
+    }
+
+    private ZoneId zone;
+
+}
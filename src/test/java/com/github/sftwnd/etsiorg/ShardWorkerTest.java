@@ -0,0 +1,139 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardWorkerTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(64).getBytes(StandardCharsets.UTF_8);
+    private static final Duration POLL = Duration.ofMillis(50);
+    private static final List<String> FILES = List.of(
+            "readme.txt",
+            "ts_1/100/ts.pdf", "ts_1/200/ts.pdf", "ts_1/200/ts.zip",
+            "ts_2/300/ts.pdf",
+            "ts_2/400/10.01.01_60/ts.pdf", "ts_2/400/10.02.01_60/ts.pdf",
+            "ts_3/10.01.01_60/ts.pdf", "ts_3/10.02.01_60/ts.pdf");
+    private static final List<String> ACTUAL = List.of(
+            "readme.txt",
+            "ts_1/100/ts.pdf", "ts_1/200/ts.pdf", "ts_1/200/ts.zip",
+            "ts_2/300/ts.pdf", "ts_2/400/10.02.01_60/ts.pdf",
+            "ts_3/10.02.01_60/ts.pdf");
+
+    @Test
+    void illegalLeaseTest() {
+        LeaseQueue queue = new LeaseQueue(root.resolve("queue.tsv"));
+        ComplexProcessorFactory factory = new ComplexProcessorFactory(root, null, null);
+        assertThrows(IllegalArgumentException.class, () -> new ShardWorker(queue, factory, null, null, "a", Duration.ZERO, POLL));
+        assertThrows(IllegalArgumentException.class, () -> new ShardWorker(queue, factory, null, null, "a", Duration.ofSeconds(1), Duration.ZERO));
+    }
+
+    @Test
+    void shardsTest() throws IOException {
+        Set<String> shards = ShardWorker.shards(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()), 2, CrawlFilter.ALL)
+                .stream()
+                .map(href -> href.getUri().getPath())
+                .collect(Collectors.toSet());
+        // The folders of the versions are not split
+        assertEquals(Set.of("/deliver/readme.txt", "/deliver/ts_1/100/", "/deliver/ts_1/200/",
+                "/deliver/ts_2/300/", "/deliver/ts_2/400/", "/deliver/ts_3/"), shards);
+    }
+
+    @Test
+    void workersTest() throws IOException {
+        Path file = root.resolve("queue.tsv");
+        List<CompletableFuture<Integer>> workers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String owner = "worker-" + i;
+            workers.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return worker(new LeaseQueue(file), owner, Duration.ofSeconds(10)).run(HREF.builder().uri(server.uri("/deliver/")).build(), 2);
+                } catch (IOException ioex) {
+                    throw new IllegalStateException(ioex);
+                }
+            }));
+        }
+        assertEquals(6, workers.stream().mapToInt(CompletableFuture::join).sum());
+        assertTrue(new LeaseQueue(file).isFinished());
+        assertTree();
+    }
+
+    @Test
+    void crashTest() throws IOException {
+        LeaseQueue queue = new LeaseQueue(root.resolve("queue.tsv"));
+        queue.initialize(() -> ShardWorker.shards(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()), 2, CrawlFilter.ALL));
+        // The crashed worker does not renew the lease
+        LeaseQueue.Lease crashed = queue.lease("crashed", Duration.ofMillis(300)).orElseThrow();
+        assertEquals(6, worker(queue, "worker", Duration.ofSeconds(10)).run());
+        assertFalse(queue.complete(crashed));
+        assertEquals(6, queue.states().get(LeaseQueue.State.DONE));
+        assertTree();
+    }
+
+    @Test
+    void jvmTest() throws IOException, InterruptedException {
+        // The workers of the separate JVMs share the queue and the destination
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            processes.add(new ProcessBuilder(java,
+                    "-cp", System.getProperty("java.class.path"),
+                    "-Duri=" + server.uri("/deliver/"),
+                    "-Ddest=" + root.toAbsolutePath(),
+                    "-Dshards=" + root.resolve("queue.tsv").toAbsolutePath(),
+                    "-Dmetrics=0",
+                    Main.class.getName())
+                    .redirectErrorStream(true)
+                    .redirectOutput(root.resolve("worker-" + i + ".log").toFile())
+                    .start());
+        }
+        for (Process process : processes) {
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            assertEquals(0, process.exitValue());
+        }
+        assertTrue(new LeaseQueue(root.resolve("queue.tsv")).isFinished());
+        assertTree();
+    }
+
+    private ShardWorker worker(LeaseQueue queue, String owner, Duration lease) {
+        return new ShardWorker(queue, new ComplexProcessorFactory(root, null, null), null, null, owner, lease, POLL);
+    }
+
+    private void assertTree() throws IOException {
+        for (String file : ACTUAL) {
+            assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("deliver").resolve(file.replace('/', File.separatorChar))), file);
+        }
+        assertFalse(Files.exists(root.resolve("deliver/ts_2/400/10.01.01_60/ts.pdf")));
+        assertFalse(Files.exists(root.resolve("deliver/ts_3/10.01.01_60/ts.pdf")));
+    }
+
+    @BeforeEach
+    void startUp() {
+        for (String file : FILES) {
+            server.file("/deliver/" + file, CONTENT, DATE_TIME);
+        }
+    }
+
+}
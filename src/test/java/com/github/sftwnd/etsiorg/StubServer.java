@@ -0,0 +1,241 @@
+package com.github.sftwnd.etsiorg;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP stub of the ETSI.ORG IIS-style directory listings and files
+ */
+class StubServer implements AutoCloseable {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Resource> resources = new ConcurrentHashMap<>();
+
+    /**
+     * Number of the served requests
+     */
+    @Getter
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Remote addresses of the client connections
+     */
+    @Getter
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Maximum number of the requests in flight
+     */
+    @Getter
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Number of the not modified responses
+     */
+    @Getter
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    /**
+     * Number of the next requests failed with the failure status
+     */
+    @Getter
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Status of the failed responses
+     */
+    @Setter
+    private volatile int failureStatus = 503;
+
+    /**
+     * Retry-After header of the failed responses
+     */
+    @Setter
+    private volatile String retryAfter;
+
+    /**
+     * Delay of each response in milliseconds
+     */
+    @Setter
+    private volatile long delay;
+
+    /**
+     * Accept-Ranges: bytes header of the file responses
+     */
+    @Setter
+    private volatile boolean acceptRanges = true;
+
+    StubServer() throws IOException {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Register the file and all its parent folders
+     * @param path absolute path of the file
+     * @param content file content
+     * @param dateTime file creation time
+     * @return this stub
+     */
+    StubServer file(@NonNull String path, @NonNull byte[] content, @NonNull LocalDateTime dateTime) {
+        resources.put(path, new Resource(content, dateTime));
+        // The time of the folder is changed by its own entries only: the new folders change the time of their parent,
+        // the time of the existing folder is not propagated to its ancestors
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            String folder = path.substring(0, slash + 1);
+            boolean created = !resources.containsKey(folder);
+            resources.merge(folder, new Resource(null, dateTime),
+                    (existing, changed) -> existing.dateTime.isBefore(changed.dateTime) ? changed : existing);
+            if (!created) {
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * URI of the path on the stub
+     * @param path absolute path
+     * @return uri of the resource
+     */
+    URI uri(@NonNull String path) {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path);
+    }
+
+    private void handle(@NonNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (failures.getAndUpdate(failures -> Math.max(0, failures - 1)) > 0) {
+                if (retryAfter != null) {
+                    exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                }
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            Resource resource = resources.get(path);
+            if (resource == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (resource.content == null) {
+                byte[] listing = listing(path);
+                if (!notModified(exchange, listing)) {
+                    send(exchange, 200, listing, 0);
+                }
+            } else if (!notModified(exchange, resource.content)) {
+                if (acceptRanges) {
+                    exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+                }
+                Matcher range = RANGE_PATTERN.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+                if (acceptRanges && range.matches()) {
+                    int from = Integer.parseInt(range.group(1));
+                    int to = range.group(2).isEmpty() ? resource.content.length - 1 : Integer.parseInt(range.group(2));
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + resource.content.length);
+                    send(exchange, 206, resource.content, from, to + 1);
+                } else {
+                    send(exchange, 200, resource.content, 0);
+                }
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Send ETag of the content or Not Modified response if the content has the same ETag
+     */
+    private boolean notModified(@NonNull HttpExchange exchange, @NonNull byte[] content) throws IOException {
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private static void send(@NonNull HttpExchange exchange, int code, @NonNull byte[] content, int from) throws IOException {
+        send(exchange, code, content, from, content.length);
+    }
+
+    private static void send(@NonNull HttpExchange exchange, int code, @NonNull byte[] content, int from, int to) throws IOException {
+        exchange.sendResponseHeaders(code, to - from);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content, from, to - from);
+        }
+    }
+
+    private byte[] listing(@NonNull String path) {
+        StringBuilder listing = new StringBuilder()
+                .append("<html><head><title>www.etsi.org - ").append(path).append("</title></head><body><H1>www.etsi.org - ")
+                .append(path).append("</H1><hr>\n\n<pre><A HREF=\"").append(path).append("\">[To Parent Directory]</A><br><br>");
+        new TreeMap<>(resources).forEach((child, resource) -> {
+            String name = child.startsWith(path) ? child.substring(path.length()) : "";
+            boolean folder = resource.content == null;
+            if (!name.isEmpty() && name.indexOf('/') == (folder ? name.length() - 1 : -1)) {
+                listing.append(String.format(Locale.US, "%10s %8s %12s",
+                                resource.dateTime.format(DATE_FORMAT), resource.dateTime.format(TIME_FORMAT),
+                                folder ? "&lt;dir&gt;" : String.valueOf(resource.content.length)))
+                        .append(" <A HREF=\"").append(child).append("\">")
+                        .append(folder ? name.substring(0, name.length() - 1) : name)
+                        .append("</A><br>");
+            }
+        });
+        return listing.append("</pre><hr></body></html>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static class Resource {
+        private final byte[] content;
+        private final LocalDateTime dateTime;
+        private Resource(byte[] content, LocalDateTime dateTime) {
+            this.content = content;
+            this.dateTime = dateTime;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.github.sftwnd.etsiorg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncPlanTest extends AbstractStubServerTest {
+
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(2022, 4, 21, 8, 39);
+    private static final byte[] CONTENT = "0123456789ABCDEF".repeat(64).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void jsonTest() {
+        HREF href = HREF.builder().uri(URI.create("http://localhost/deliver/a%20%22b%22.pdf")).bytes(10L).dateTime(DATE_TIME).build();
+        SyncPlan.Entry entry = SyncPlan.Entry.parse(SyncPlan.Entry.of(SyncPlan.Action.RESUME, href, 4L).json());
+        assertEquals(SyncPlan.Action.RESUME, entry.getAction());
+        assertEquals("/deliver/a \"b\".pdf", entry.getPath());
+        assertEquals(href.getUri(), entry.getUri());
+        assertEquals(10L, entry.getBytes());
+        assertEquals(4L, entry.getTransfer());
+        assertEquals(DATE_TIME, entry.getDateTime());
+        SyncPlan.Entry expired = SyncPlan.Entry.parse(SyncPlan.Entry.expired(Path.of("/deliver/10.01.01_60"), 100L).json());
+        assertEquals(SyncPlan.Action.EXPIRE, expired.getAction());
+        assertNull(expired.href());
+        assertThrows(IllegalArgumentException.class, () -> SyncPlan.Entry.parse("{\"bytes\":1}"));
+    }
+
+    @Test
+    void planTest() throws IOException {
+        StringWriter writer = new StringWriter();
+        try (SyncPlan plan = new SyncPlan(root, writer)) {
+            plan(plan);
+            assertEquals(2, plan.getFiles(SyncPlan.Action.FETCH));
+            assertEquals(2L * CONTENT.length, plan.getBytes(SyncPlan.Action.FETCH));
+            assertEquals(1, plan.getFiles(SyncPlan.Action.RESUME));
+            assertEquals(CONTENT.length - 100L, plan.getBytes(SyncPlan.Action.RESUME));
+            assertEquals(1, plan.getFiles(SyncPlan.Action.SKIP));
+            assertEquals(1, plan.getFiles(SyncPlan.Action.EXPIRE));
+            assertEquals(CONTENT.length, plan.getBytes(SyncPlan.Action.EXPIRE));
+        }
+        Map<String, SyncPlan.Action> actions = writer.toString().lines()
+                .map(SyncPlan.Entry::parse)
+                .collect(Collectors.toMap(SyncPlan.Entry::getPath, SyncPlan.Entry::getAction));
+        assertEquals(Map.of(
+                "/deliver/ts/ts_1.pdf", SyncPlan.Action.FETCH,
+                "/deliver/ts/ts_2.pdf", SyncPlan.Action.RESUME,
+                "/deliver/ts/ts_3.pdf", SyncPlan.Action.SKIP,
+                "/deliver/ts/10.02.01_60/ts.pdf", SyncPlan.Action.FETCH,
+                "/deliver/ts/10.01.01_60", SyncPlan.Action.EXPIRE), actions);
+        // The dry run does not change the tree
+        assertFalse(Files.exists(root.resolve("deliver/ts/ts_1.pdf")));
+        assertTrue(Files.exists(root.resolve("deliver/ts/10.01.01_60/ts.pdf")));
+        assertEquals(3, server.getRequests().get());
+    }
+
+    @Test
+    void executeTest() throws IOException {
+        Path planFile = root.resolve("plan.jsonl");
+        try (SyncPlan plan = SyncPlan.create(root, planFile)) {
+            plan(plan);
+        }
+        server.getRequests().set(0);
+        // The plan is split by two workers
+        long executed = 0;
+        for (int worker = 0; worker < 2; worker++) {
+            try (Expiration expiration = new Expiration(root);
+                 Stream<SyncPlan.Entry> entries = SyncPlan.read(planFile)) {
+                var factory = new ComplexProcessorFactory(root, CrawlContext.builder().scheduler(new CrawlScheduler(null)).onExpires(expiration).build());
+                executed += new PlanExecution(factory, null, null, worker, 2, 2).execute(entries);
+            }
+        }
+        assertEquals(4, executed);
+        // The listings are not loaded again
+        assertEquals(3, server.getRequests().get());
+        for (String file : List.of("ts_1.pdf", "ts_2.pdf", "10.02.01_60/ts.pdf")) {
+            assertArrayEquals(CONTENT, Files.readAllBytes(root.resolve("deliver/ts").resolve(file)));
+        }
+        assertFalse(Files.exists(root.resolve("deliver/ts/10.01.01_60")));
+    }
+
+    @Test
+    void illegalWorkerTest() {
+        var factory = new ComplexProcessorFactory(root, null, null);
+        assertThrows(IllegalArgumentException.class, () -> new PlanExecution(factory, null, null, 2, 2, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PlanExecution(factory, null, null, 0, 1, 0));
+    }
+
+    /**
+     * Local tree: ts_2 is partially loaded, ts_3 is in place and the old version is saved
+     */
+    private void plan(SyncPlan plan) throws IOException {
+        for (String file : List.of("ts_1.pdf", "ts_2.pdf", "ts_3.pdf", "10.01.01_60/ts.pdf", "10.02.01_60/ts.pdf")) {
+            server.file("/deliver/ts/" + file, CONTENT, DATE_TIME);
+        }
+        Path folder = Files.createDirectories(root.resolve("deliver/ts"));
+        Files.write(folder.resolve("ts_3.pdf"), CONTENT);
+        Files.write(Files.createDirectories(folder.resolve("10.01.01_60")).resolve("ts.pdf"), CONTENT);
+        Files.write(DownloadJournal.part(folder.resolve("ts_2.pdf")), Arrays.copyOf(CONTENT, 100));
+        DownloadJournal.create(root, "/deliver/ts/ts_2.pdf", CONTENT.length, DATE_TIME, 1).confirm(100);
+        new PlanningProcessorFactory(null, new CrawlScheduler(null), null, plan)
+                .processor(Page.of(HREF.builder().uri(server.uri("/deliver/")).build()))
+                .process()
+                .join();
+    }
+
+}
@@ -10,9 +10,12 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -81,6 +84,31 @@ class TextHtmlProcessorTest extends AbstractFileSourceTest {
         assertEquals(this.excludes, this.excluded);
     }
 
+    @Test
+    void processSinkTest() throws IOException {
+        startUp("versions");
+        Collection<Path> saved = new ConcurrentLinkedQueue<>();
+        ProcessorFactory<CompletableFuture<Stream<Path>>> factory = page -> () -> {
+            saved.add(page.path());
+            return CompletableFuture.completedFuture(Stream.empty());
+        };
+        var result = new TextHtmlProcessor(this.page, null, factory, CrawlContext.builder().onExpires(this.onExpires).sink(saved::add).build()).process().join();
+        assertEquals(0, result.count());
+        assertEquals(new HashSet<>(this.paths), new HashSet<>(saved));
+        assertEquals(this.excludes, this.excluded);
+    }
+
+    @Test
+    void processSinkErrorTest() throws IOException {
+        startUp("files");
+        ProcessorFactory<CompletableFuture<Stream<Path>>> factory = page -> () -> page.fileName().endsWith(".zip")
+                ? CompletableFuture.failedFuture(new IllegalStateException(page.fileName()))
+                : CompletableFuture.completedFuture(Stream.empty());
+        var result = new TextHtmlProcessor(this.page, null, factory, CrawlContext.builder().onExpires(this.onExpires).sink(path -> {}).build()).process();
+        CompletionException cex = assertThrows(CompletionException.class, result::join);
+        assertEquals(IllegalStateException.class, cex.getCause().getClass());
+    }
+
     private <T> Supplier<T> nullRef() {
         return () -> null;
     }
@@ -0,0 +1,46 @@
+package com.github.sftwnd.etsiorg;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransportTest {
+
+    @Test
+    void contentLengthTest() {
+        assertEquals(1024L, response(" 1024 ").contentLength());
+        assertEquals(0L, response("0").contentLength());
+        assertEquals(-1L, response(null).contentLength());
+    }
+
+    @Test
+    void malformedContentLengthTest() {
+        for (String contentLength : new String[] { "", "abc", "10, 10", "-5", "99999999999999999999" }) {
+            assertEquals(-1L, response(contentLength).contentLength(), contentLength);
+        }
+    }
+
+    private static Transport.Response response(String contentLength) {
+        return new Transport.Response() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public @NonNull Optional<String> header(@NonNull String name) {
+                return "Content-Length".equalsIgnoreCase(name) ? Optional.ofNullable(contentLength) : Optional.empty();
+            }
+
+            @Override
+            public @NonNull InputStream body() {
+                return InputStream.nullInputStream();
+            }
+        };
+    }
+
+}